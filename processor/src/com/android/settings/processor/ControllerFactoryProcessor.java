@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates {@code com.android.settings.core.PreferenceControllerFactoriesImpl}, which creates
+ * every public preference controller of the compiled sources from its class name with a
+ * {@code switch}, for {@code PreferenceControllerRegistry}. Controllers named in preference xml
+ * are then created without reflection, and nothing is set up before a controller is asked for.
+ *
+ * <p>The processor looks at every class rather than at an annotation, so controllers don't need
+ * to opt in. It never claims annotations, so other processors still see them.
+ */
+@SupportedAnnotationTypes("*")
+public class ControllerFactoryProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.android.settings.core";
+    private static final String CLASS_NAME = "PreferenceControllerFactoriesImpl";
+    private static final String BASE_CONTROLLER = PACKAGE + ".BasePreferenceController";
+    private static final String CONTEXT = "android.content.Context";
+    private static final String STRING = "java.lang.String";
+    private static final String REGISTRY = "PreferenceControllerRegistry";
+
+    // Keeps the generated methods well below the method size limit.
+    private static final int CASES_PER_METHOD = 250;
+
+    private boolean mGenerated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // All controllers are in the sources of the first round, later rounds only contain
+        // generated code.
+        if (mGenerated || roundEnv.processingOver()) {
+            return false;
+        }
+        mGenerated = true;
+        final Elements elements = processingEnv.getElementUtils();
+        final TypeElement baseController = elements.getTypeElement(BASE_CONTROLLER);
+        if (baseController == null) {
+            return false;
+        }
+        // Sorted by binary name, so that the generated source is stable.
+        final TreeMap<String, Factories> controllers = new TreeMap<>();
+        for (Element element : roundEnv.getRootElements()) {
+            collectControllers(element, baseController, controllers);
+        }
+        try {
+            writeFactories(controllers);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + CLASS_NAME + ": " + e);
+        }
+        return false;
+    }
+
+    private void collectControllers(Element element, TypeElement baseController,
+            TreeMap<String, Factories> controllers) {
+        if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+            return;
+        }
+        final Set<Modifier> modifiers = element.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC)) {
+            // Nested classes of a non public class can't be referenced either.
+            return;
+        }
+        if (element.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                && !modifiers.contains(Modifier.STATIC)) {
+            return;
+        }
+        final TypeElement type = (TypeElement) element;
+        for (Element enclosed : type.getEnclosedElements()) {
+            collectControllers(enclosed, baseController, controllers);
+        }
+        if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty()) {
+            return;
+        }
+        final Types types = processingEnv.getTypeUtils();
+        if (!types.isSubtype(types.erasure(type.asType()),
+                types.erasure(baseController.asType()))) {
+            return;
+        }
+        final Factories factories = new Factories(type.getQualifiedName().toString());
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.CONSTRUCTOR
+                    || !enclosed.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            final ExecutableElement constructor = (ExecutableElement) enclosed;
+            if (!constructor.getThrownTypes().isEmpty()) {
+                continue;
+            }
+            final List<? extends VariableElement> parameters = constructor.getParameters();
+            if (parameters.size() == 1 && isType(parameters.get(0), CONTEXT)) {
+                factories.mHasContextConstructor = true;
+            } else if (parameters.size() == 2 && isType(parameters.get(0), CONTEXT)
+                    && isType(parameters.get(1), STRING)) {
+                factories.mHasKeyConstructor = true;
+            }
+        }
+        if (factories.mHasContextConstructor || factories.mHasKeyConstructor) {
+            controllers.put(processingEnv.getElementUtils().getBinaryName(type).toString(),
+                    factories);
+        }
+    }
+
+    private boolean isType(VariableElement parameter, String typeName) {
+        final TypeMirror type = parameter.asType();
+        final TypeElement expected = processingEnv.getElementUtils().getTypeElement(typeName);
+        return expected != null
+                && processingEnv.getTypeUtils().isSameType(type, expected.asType());
+    }
+
+    private void writeFactories(TreeMap<String, Factories> controllers) throws IOException {
+        final List<String> names = new ArrayList<>(controllers.keySet());
+        final List<String> contextNames = new ArrayList<>();
+        final List<String> keyNames = new ArrayList<>();
+        for (String name : names) {
+            if (controllers.get(name).mHasContextConstructor) {
+                contextNames.add(name);
+            }
+            if (controllers.get(name).mHasKeyConstructor) {
+                keyNames.add(name);
+            }
+        }
+        final Writer writer = processingEnv.getFiler()
+                .createSourceFile(PACKAGE + "." + CLASS_NAME)
+                .openWriter();
+        try (PrintWriter out = new PrintWriter(writer)) {
+            out.println("// Generated by " + getClass().getName() + ", do not edit.");
+            out.println("package " + PACKAGE + ";");
+            out.println();
+            out.println("import " + CONTEXT + ";");
+            out.println();
+            out.println("final class " + CLASS_NAME + " {");
+            out.println();
+            out.println("    private " + CLASS_NAME + "() {");
+            out.println("    }");
+            writeSwitch(out, names, "int", "getConstructors", "String className", "className",
+                    "0", name -> {
+                        final Factories factories = controllers.get(name);
+                        if (!factories.mHasKeyConstructor) {
+                            return REGISTRY + ".CONTEXT_CONSTRUCTOR";
+                        }
+                        if (!factories.mHasContextConstructor) {
+                            return REGISTRY + ".KEY_CONSTRUCTOR";
+                        }
+                        return REGISTRY + ".CONTEXT_CONSTRUCTOR | " + REGISTRY
+                                + ".KEY_CONSTRUCTOR";
+                    });
+            writeSwitch(out, contextNames, "BasePreferenceController", "createWithContext",
+                    "String className, Context context", "className, context", "null",
+                    name -> "new " + controllers.get(name).mCanonicalName + "(context)");
+            writeSwitch(out, keyNames, "BasePreferenceController", "createWithKey",
+                    "String className, Context context, String key", "className, context, key",
+                    "null",
+                    name -> "new " + controllers.get(name).mCanonicalName + "(context, key)");
+            out.println("}");
+        }
+    }
+
+    /**
+     * Writes the method {@code name}, which returns the value of the case of {@code className}
+     * among {@code cases}, or {@code defaultValue}. The cases are split into several methods,
+     * tried in turn.
+     */
+    private static void writeSwitch(PrintWriter out, List<String> cases, String returnType,
+            String name, String parameters, String arguments, String defaultValue,
+            Function<String, String> valueOf) {
+        final int methodCount = (cases.size() + CASES_PER_METHOD - 1) / CASES_PER_METHOD;
+        out.println();
+        out.println("    static " + returnType + " " + name + "(" + parameters + ") {");
+        if (methodCount == 0) {
+            out.println("        return " + defaultValue + ";");
+        } else {
+            out.println("        " + returnType + " result = " + name + "0(" + arguments + ");");
+            for (int i = 1; i < methodCount; i++) {
+                out.println("        if (result == " + defaultValue + ") {");
+                out.println("            result = " + name + i + "(" + arguments + ");");
+                out.println("        }");
+            }
+            out.println("        return result;");
+        }
+        out.println("    }");
+        for (int i = 0; i < methodCount; i++) {
+            out.println();
+            out.println("    private static " + returnType + " " + name + i + "(" + parameters
+                    + ") {");
+            out.println("        switch (className) {");
+            final int end = Math.min(cases.size(), (i + 1) * CASES_PER_METHOD);
+            for (int j = i * CASES_PER_METHOD; j < end; j++) {
+                out.println("            case \"" + cases.get(j) + "\":");
+                out.println("                return " + valueOf.apply(cases.get(j)) + ";");
+            }
+            out.println("            default:");
+            out.println("                return " + defaultValue + ";");
+            out.println("        }");
+            out.println("    }");
+        }
+    }
+
+    private static class Factories {
+        final String mCanonicalName;
+        boolean mHasContextConstructor;
+        boolean mHasKeyConstructor;
+
+        Factories(String canonicalName) {
+            mCanonicalName = canonicalName;
+        }
+    }
+}
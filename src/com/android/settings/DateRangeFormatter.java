@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static android.text.format.DateUtils.FORMAT_ABBREV_MONTH;
+import static android.text.format.DateUtils.FORMAT_SHOW_DATE;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats the date ranges of {@link Utils#formatDateRange}, with one instance per thread so that
+ * callers formatting in parallel don't wait for each other.
+ *
+ * <p>The last ranges are remembered, as the same cycle boundaries are formatted over and over by
+ * the data usage cycle spinner and charts. They are dropped when the default locale or time zone
+ * changes, as the ranges are formatted with them.
+ */
+final class DateRangeFormatter {
+
+    private static final int FLAGS = FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH;
+
+    // Must be a power of two.
+    @VisibleForTesting
+    static final int CACHE_SIZE = 32;
+
+    private static final ThreadLocal<DateRangeFormatter> sFormatters =
+            ThreadLocal.withInitial(DateRangeFormatter::new);
+
+    private final StringBuilder mBuilder = new StringBuilder(50);
+    private Formatter mFormatter;
+    private Locale mLocale;
+    private String mTimeZoneId;
+
+    // Direct mapped, so that a lookup doesn't allocate.
+    private final long[] mStarts = new long[CACHE_SIZE];
+    private final long[] mEnds = new long[CACHE_SIZE];
+    private final String[] mRanges = new String[CACHE_SIZE];
+
+    /** Returns the formatter of the calling thread. */
+    static DateRangeFormatter get() {
+        return sFormatters.get();
+    }
+
+    @VisibleForTesting
+    DateRangeFormatter() {
+    }
+
+    /** Formats the range from {@code start} to {@code end} as abbreviated dates. */
+    String format(Context context, long start, long end) {
+        final Locale locale = Locale.getDefault();
+        final String timeZoneId = TimeZone.getDefault().getID();
+        if (mFormatter == null || !locale.equals(mLocale) || !timeZoneId.equals(mTimeZoneId)) {
+            mLocale = locale;
+            mTimeZoneId = timeZoneId;
+            mFormatter = new Formatter(mBuilder, locale);
+            Arrays.fill(mRanges, null);
+        }
+
+        final int index = indexOf(start, end);
+        final String cached = mRanges[index];
+        if (cached != null && mStarts[index] == start && mEnds[index] == end) {
+            return cached;
+        }
+
+        mBuilder.setLength(0);
+        final String range = DateUtils.formatDateRange(context, mFormatter, start, end, FLAGS,
+                null /* timeZone */).toString();
+        mStarts[index] = start;
+        mEnds[index] = end;
+        mRanges[index] = range;
+        return range;
+    }
+
+    private static int indexOf(long start, long end) {
+        int hash = 31 * Long.hashCode(start) + Long.hashCode(end);
+        hash ^= hash >>> 16;
+        return hash & (CACHE_SIZE - 1);
+    }
+}
@@ -39,7 +39,6 @@ import android.content.pm.UserInfo;
 import android.content.res.Resources;
 import android.content.res.Resources.Theme;
 import android.graphics.drawable.Icon;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -65,7 +64,9 @@ import com.android.settings.applications.manageapplications.ManageApplications;
 import com.android.settings.core.OnActivityResultListener;
 import com.android.settings.core.SettingsBaseActivity;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.core.TileUpdateScheduler;
 import com.android.settings.core.gateway.SettingsGateway;
+import com.android.settings.core.instrumentation.StartupTracer;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.homepage.DeepLinkHomepageActivityInternal;
 import com.android.settings.homepage.SettingsHomepageActivity;
@@ -274,22 +275,32 @@ public class SettingsActivity extends SettingsBaseActivity
 
     @Override
     protected void onCreate(Bundle savedState) {
-        // Should happen before any call to getIntent()
-        getMetaData();
-        final Intent intent = getIntent();
+        try (StartupTracer.Span span =
+                     StartupTracer.getInstance().begin("SettingsActivity#onCreate")) {
+            // Should happen before any call to getIntent()
+            getMetaData();
+            final Intent intent = getIntent();
+
+            if (shouldShowTwoPaneDeepLink(intent) && tryStartTwoPaneDeepLink(intent)) {
+                finish();
+                super.onCreate(savedState);
+                return;
+            }
 
-        if (shouldShowTwoPaneDeepLink(intent) && tryStartTwoPaneDeepLink(intent)) {
-            finish();
             super.onCreate(savedState);
-            return;
+            Log.d(LOG_TAG, "Starting onCreate");
+            createUiFromIntent(savedState, intent);
         }
-
-        super.onCreate(savedState);
-        Log.d(LOG_TAG, "Starting onCreate");
-        createUiFromIntent(savedState, intent);
     }
 
     protected void createUiFromIntent(Bundle savedState, Intent intent) {
+        try (StartupTracer.Span span =
+                     StartupTracer.getInstance().begin("SettingsActivity#createUiFromIntent")) {
+            createUiFromIntentInternal(savedState, intent);
+        }
+    }
+
+    private void createUiFromIntentInternal(Bundle savedState, Intent intent) {
         long startTime = System.currentTimeMillis();
 
         final FeatureFactory factory = FeatureFactory.getFactory(this);
@@ -703,6 +714,12 @@ public class SettingsActivity extends SettingsBaseActivity
         unregisterReceiver(mBatteryInfoReceiver);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        TileUpdateScheduler.getInstance().cancel(this);
+    }
+
     @Override
     public void setTaskDescription(ActivityManager.TaskDescription taskDescription) {
         taskDescription.setIcon(Icon.createWithResource(this, R.drawable.ic_launcher_settings));
@@ -806,11 +823,19 @@ public class SettingsActivity extends SettingsBaseActivity
     private void updateTilesList() {
         // Generally the items that are will be changing from these updates will
         // not be in the top list of tiles, so run it in the background and the
-        // SettingsBaseActivity will pick up on the updates automatically.
-        AsyncTask.execute(() -> doUpdateTilesList());
+        // SettingsBaseActivity will pick up on the updates automatically. Bursts of requests
+        // are coalesced into a single pending pass.
+        TileUpdateScheduler.getInstance().schedule(this, this::doUpdateTilesList);
     }
 
     private void doUpdateTilesList() {
+        try (StartupTracer.Span span =
+                     StartupTracer.getInstance().begin("SettingsActivity#doUpdateTilesList")) {
+            doUpdateTilesListInternal();
+        }
+    }
+
+    private void doUpdateTilesListInternal() {
         PackageManager pm = getPackageManager();
         final UserManager um = UserManager.get(this);
         final boolean isAdmin = um.isAdminUser();
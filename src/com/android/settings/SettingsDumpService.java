@@ -37,9 +37,13 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.TileUpdateScheduler;
+import com.android.settings.core.instrumentation.StartupTracer;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.network.CarrierConfigCache;
 import com.android.settings.network.MobileNetworkRepository;
+import com.android.settings.slices.SliceNotifyDispatcher;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -49,6 +53,7 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.util.Arrays;
 
 public class SettingsDumpService extends Service {
 
@@ -68,6 +73,14 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_STARTUP_TRACE = "startup_trace";
+    @VisibleForTesting
+    static final String KEY_TILE_UPDATES = "tile_updates";
+    @VisibleForTesting
+    static final String KEY_SLICE_NOTIFICATIONS = "slice_notifications";
+    @VisibleForTesting
+    static final String ARG_STARTUP_TRACE = "--startup-trace";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -89,7 +102,15 @@ public class SettingsDumpService extends Service {
     @Override
     protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
         IndentingPrintWriter pw = new IndentingPrintWriter(writer, "  ");
-        if (!mShouldShowNetworkDump) {
+        if (args != null && Arrays.asList(args).contains(ARG_STARTUP_TRACE)) {
+            // Print the raw trace only, so the output can be loaded into Perfetto as is.
+            try {
+                writer.println(StartupTracer.getInstance().toChromeTrace());
+            } catch (JSONException e) {
+                Log.w(TAG, "exception in startup trace dump: ", e);
+            }
+            writer.flush();
+        } else if (!mShouldShowNetworkDump) {
             JSONObject dump = new JSONObject();
             pw.println(TAG + ": ");
             pw.increaseIndent();
@@ -100,6 +121,9 @@ public class SettingsDumpService extends Service {
                 dump.put(KEY_MEMORY, dumpMemory());
                 dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
                 dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+                dump.put(KEY_STARTUP_TRACE, StartupTracer.getInstance().toJson());
+                dump.put(KEY_TILE_UPDATES, TileUpdateScheduler.getInstance().dumpJson());
+                dump.put(KEY_SLICE_NOTIFICATIONS, SliceNotifyDispatcher.dumpJson());
             } catch (Exception e) {
                 Log.w(TAG, "exception in dump: ", e);
             }
@@ -213,5 +237,6 @@ public class SettingsDumpService extends Service {
 
     private void dumpMobileNetworkSettings(IndentingPrintWriter writer) {
         MobileNetworkRepository.getInstance(this).dump(writer);
+        CarrierConfigCache.getInstance(this).dump(writer);
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import android.annotation.WorkerThread;
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.internal.annotations.GuardedBy;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disk backed cache of the subject names of CA certificates shown in
+ * {@link TrustedCredentialsFragment}, so that certificates do not need to be parsed every time
+ * the screen is opened.
+ *
+ * <p>Entries are keyed by alias and only used while the SHA-256 hash of the encoded certificate
+ * still matches, so a certificate replaced under the same alias is parsed again.
+ */
+class TrustedCredentialsDisplayCache {
+    private static final String TAG = "TrustedCredsCache";
+
+    private static final String CACHE_FILE_NAME = "trusted_credentials_display_cache";
+    private static final int MAGIC = 0x54434443;
+    private static final int VERSION = 1;
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 1024;
+
+    private static TrustedCredentialsDisplayCache sInstance;
+
+    private final AtomicFile mFile;
+    // Access ordered, so that the least recently shown certificates are evicted first.
+    @GuardedBy("this")
+    private final Map<String, Entry> mEntries = new LinkedHashMap<String, Entry>(
+            16 /* initialCapacity */, 0.75f /* loadFactor */, true /* accessOrder */) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    @GuardedBy("this")
+    private boolean mLoaded;
+    @GuardedBy("this")
+    private boolean mDirty;
+
+    static synchronized TrustedCredentialsDisplayCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TrustedCredentialsDisplayCache(
+                    new File(context.getApplicationContext().getCacheDir(), CACHE_FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TrustedCredentialsDisplayCache(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Returns the cached subject of the certificate, or {@code null} if the certificate has to be
+     * parsed.
+     */
+    @WorkerThread
+    @Nullable
+    synchronized CertSubject get(@NonNull String alias, @NonNull byte[] certHash) {
+        loadLocked();
+        final Entry entry = mEntries.get(alias);
+        if (entry == null || !Arrays.equals(entry.mCertHash, certHash)) {
+            return null;
+        }
+        return entry.mSubject;
+    }
+
+    @WorkerThread
+    synchronized void put(@NonNull String alias, @NonNull byte[] certHash,
+            @NonNull CertSubject subject) {
+        loadLocked();
+        mEntries.put(alias, new Entry(certHash, subject));
+        mDirty = true;
+    }
+
+    /** Writes the cache to disk if it changed since it was last loaded or written. */
+    @WorkerThread
+    synchronized void saveIfDirty() {
+        if (!mDirty) {
+            return;
+        }
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mEntries.size());
+            for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().mCertHash.length);
+                out.write(entry.getValue().mCertHash);
+                out.writeUTF(entry.getValue().mSubject.primary);
+                out.writeUTF(entry.getValue().mSubject.secondary);
+            }
+            out.flush();
+            mFile.finishWrite(fos);
+            mDirty = false;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the certificate cache", e);
+            mFile.failWrite(fos);
+        }
+    }
+
+    /** Returns the hash identifying the encoded certificate in the cache. */
+    @NonNull
+    static byte[] hash(@NonNull byte[] encodedCert) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encodedCert);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @GuardedBy("this")
+    private void loadLocked() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        try (DataInputStream in = new DataInputStream(mFile.openRead())) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.w(TAG, "Ignoring certificate cache with unknown format");
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String alias = in.readUTF();
+                final byte[] certHash = new byte[in.readInt()];
+                in.readFully(certHash);
+                final String primary = in.readUTF();
+                final String secondary = in.readUTF();
+                mEntries.put(alias, new Entry(certHash, new CertSubject(primary, secondary)));
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet.
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read the certificate cache", e);
+            mEntries.clear();
+        }
+    }
+
+    /** Names shown for a certificate in the list. */
+    static class CertSubject {
+        @NonNull
+        final String primary;
+        @NonNull
+        final String secondary;
+
+        CertSubject(@NonNull String primary, @NonNull String secondary) {
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] mCertHash;
+        private final CertSubject mSubject;
+
+        private Entry(byte[] certHash, CertSubject subject) {
+            mCertHash = certHash;
+            mSubject = subject;
+        }
+    }
+}
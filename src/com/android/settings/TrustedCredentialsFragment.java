@@ -66,15 +66,19 @@ import androidx.annotation.NonNull;
 import com.android.internal.annotations.GuardedBy;
 import com.android.internal.app.UnlaunchableAppActivity;
 import com.android.internal.widget.LockPatternUtils;
+import com.android.settings.TrustedCredentialsDisplayCache.CertSubject;
 import com.android.settings.TrustedCredentialsSettings.Tab;
 import com.android.settingslib.core.lifecycle.ObservableFragment;
 
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 
 /**
@@ -96,6 +100,10 @@ public class TrustedCredentialsFragment extends ObservableFragment
     private static final String SAVED_CONFIRMED_CREDENTIAL_USERS = "ConfirmedCredentialUsers";
     private static final String SAVED_CONFIRMING_CREDENTIAL_USER = "ConfirmingCredentialUser";
     private static final int REQUEST_CONFIRM_CREDENTIALS = 1;
+    // Upper bound of profiles whose certificates are loaded in parallel.
+    private static final int MAX_PARALLEL_PROFILES = 4;
+    // Number of certificates parsed before they are handed to the list.
+    private static final int CERT_CHUNK_SIZE = 16;
 
     private GroupAdapter mGroupAdapter;
     private AliasOperation mAliasOperation;
@@ -371,7 +379,13 @@ public class TrustedCredentialsFragment extends ObservableFragment
         }
 
         public void load() {
-            mData.new AliasLoader().execute();
+            // Results of a previous load would be streamed into the lists of the new one.
+            for (AdapterData.AliasLoader aliasLoader : mAliasLoaders) {
+                aliasLoader.cancel(true);
+            }
+            mAliasLoaders.clear();
+            // Don't queue behind the loader of the other tab on the serial executor.
+            mData.new AliasLoader().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         }
 
         public void remove(CertHolder certHolder) {
@@ -648,13 +662,20 @@ public class TrustedCredentialsFragment extends ObservableFragment
             mTab = tab;
         }
 
-        private class AliasLoader extends AsyncTask<Void, Integer, SparseArray<List<CertHolder>>> {
+        /**
+         * Loads the certificates of all profiles in parallel. Certificates are handed to the list
+         * in chunks as they are parsed, and the complete sorted lists replace them at the end.
+         */
+        private class AliasLoader extends
+                AsyncTask<Void, CertChunk, SparseArray<List<CertHolder>>> {
             private ProgressBar mProgressBar;
             private View mContentView;
             private Context mContext;
+            private final TrustedCredentialsDisplayCache mDisplayCache;
 
             AliasLoader() {
                 mContext = getActivity();
+                mDisplayCache = TrustedCredentialsDisplayCache.getInstance(mContext);
                 mAliasLoaders.add(this);
                 List<UserHandle> profiles = mUserManager.getUserProfiles();
                 for (UserHandle profile : profiles) {
@@ -679,78 +700,106 @@ public class TrustedCredentialsFragment extends ObservableFragment
             protected SparseArray<List<CertHolder>> doInBackground(Void... params) {
                 SparseArray<List<CertHolder>> certHoldersByProfile =
                         new SparseArray<>();
+                List<UserHandle> profiles = mUserManager.getUserProfiles();
+                SparseArray<Future<List<CertHolder>>> futures = new SparseArray<>(profiles.size());
+                ExecutorService executor = Executors.newFixedThreadPool(
+                        Math.max(1, Math.min(profiles.size(), MAX_PARALLEL_PROFILES)));
                 try {
-                    synchronized (mKeyChainConnectionByProfileId) {
-                        List<UserHandle> profiles = mUserManager.getUserProfiles();
-                        // First we get all aliases for all profiles in order to show progress
-                        // correctly. Otherwise this could all be in a single loop.
-                        SparseArray<List<String>> aliasesByProfileId =
-                                new SparseArray<>(profiles.size());
-                        int max = 0;
-                        int progress = 0;
-                        for (UserHandle profile : profiles) {
-                            int profileId = profile.getIdentifier();
-                            if (shouldSkipProfile(profile)) {
-                                continue;
-                            }
-                            KeyChainConnection keyChainConnection = KeyChain.bindAsUser(mContext,
-                                    profile);
-                            // Saving the connection for later use on the certificate dialog.
-                            mKeyChainConnectionByProfileId.put(profileId, keyChainConnection);
-                            IKeyChainService service = keyChainConnection.getService();
-                            List<String> aliases = mTab.getAliases(service);
-                            if (isCancelled()) {
-                                return new SparseArray<>();
-                            }
-                            max += aliases.size();
-                            aliasesByProfileId.put(profileId, aliases);
+                    for (UserHandle profile : profiles) {
+                        if (shouldSkipProfile(profile)) {
+                            certHoldersByProfile.put(profile.getIdentifier(), new ArrayList<>(0));
+                            continue;
                         }
-                        for (UserHandle profile : profiles) {
-                            int profileId = profile.getIdentifier();
-                            List<String> aliases = aliasesByProfileId.get(profileId);
-                            if (isCancelled()) {
-                                return new SparseArray<>();
-                            }
-                            KeyChainConnection keyChainConnection =
-                                    mKeyChainConnectionByProfileId.get(
-                                            profileId);
-                            if (shouldSkipProfile(profile) || aliases == null
-                                    || keyChainConnection == null) {
-                                certHoldersByProfile.put(profileId, new ArrayList<>(0));
-                                continue;
-                            }
-                            IKeyChainService service = keyChainConnection.getService();
-                            List<CertHolder> certHolders = new ArrayList<>(max);
-                            for (String alias : aliases) {
-                                byte[] encodedCertificate = service.getEncodedCaCertificate(alias,
-                                        true);
-                                X509Certificate cert = KeyChain.toCertificate(encodedCertificate);
-                                certHolders.add(new CertHolder(service, mAdapter,
-                                        mTab, alias, cert, profileId));
-                                publishProgress(++progress, max);
-                            }
-                            Collections.sort(certHolders);
-                            certHoldersByProfile.put(profileId, certHolders);
-                        }
-                        return certHoldersByProfile;
+                        futures.put(profile.getIdentifier(),
+                                executor.submit(() -> loadProfile(profile)));
+                    }
+                    for (int i = 0; i < futures.size(); i++) {
+                        certHoldersByProfile.put(futures.keyAt(i), futures.valueAt(i).get());
                     }
-                } catch (RemoteException e) {
-                    Log.e(TAG, "Remote exception while loading aliases.", e);
+                    mDisplayCache.saveIfDirty();
+                    return certHoldersByProfile;
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Exception while loading aliases.", e.getCause());
                     return new SparseArray<>();
                 } catch (InterruptedException e) {
                     Log.e(TAG, "InterruptedException while loading aliases.", e);
                     return new SparseArray<>();
+                } finally {
+                    executor.shutdownNow();
                 }
             }
 
+            private List<CertHolder> loadProfile(UserHandle profile)
+                    throws RemoteException, InterruptedException {
+                int profileId = profile.getIdentifier();
+                KeyChainConnection keyChainConnection = KeyChain.bindAsUser(mContext, profile);
+                // Saving the connection for later use on the certificate dialog. The fragment
+                // closes the saved connections after cancelling the loader.
+                synchronized (mKeyChainConnectionByProfileId) {
+                    if (isCancelled()) {
+                        keyChainConnection.close();
+                        return new ArrayList<>(0);
+                    }
+                    mKeyChainConnectionByProfileId.put(profileId, keyChainConnection);
+                }
+                IKeyChainService service = keyChainConnection.getService();
+                List<String> aliases = mTab.getAliases(service);
+                List<CertHolder> certHolders = new ArrayList<>(aliases.size());
+                List<CertHolder> chunk = new ArrayList<>(CERT_CHUNK_SIZE);
+                for (String alias : aliases) {
+                    if (isCancelled()) {
+                        return certHolders;
+                    }
+                    byte[] encodedCertificate = service.getEncodedCaCertificate(alias, true);
+                    if (encodedCertificate == null) {
+                        Log.w(TAG, "No certificate for alias " + alias);
+                        continue;
+                    }
+                    CertHolder certHolder = new CertHolder(service, mAdapter, mTab, alias,
+                            encodedCertificate, getSubject(alias, encodedCertificate), profileId);
+                    certHolders.add(certHolder);
+                    chunk.add(certHolder);
+                    if (chunk.size() == CERT_CHUNK_SIZE) {
+                        publishProgress(new CertChunk(profileId, chunk));
+                        chunk = new ArrayList<>(CERT_CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    publishProgress(new CertChunk(profileId, chunk));
+                }
+                Collections.sort(certHolders);
+                return certHolders;
+            }
+
+            private CertSubject getSubject(String alias, byte[] encodedCertificate) {
+                byte[] certHash = TrustedCredentialsDisplayCache.hash(encodedCertificate);
+                CertSubject subject = mDisplayCache.get(alias, certHash);
+                if (subject == null) {
+                    subject = CertHolder.parseSubject(KeyChain.toCertificate(encodedCertificate));
+                    mDisplayCache.put(alias, certHash, subject);
+                }
+                return subject;
+            }
+
             @Override
-            protected void onProgressUpdate(Integer... progressAndMax) {
-                int progress = progressAndMax[0];
-                int max = progressAndMax[1];
-                if (max != mProgressBar.getMax()) {
-                    mProgressBar.setMax(max);
+            protected void onProgressUpdate(CertChunk... chunks) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (CertChunk chunk : chunks) {
+                    List<CertHolder> certHolders = mCertHoldersByUserId.get(chunk.mProfileId);
+                    if (certHolders == null) {
+                        continue;
+                    }
+                    for (CertHolder certHolder : chunk.mCertHolders) {
+                        int index = Collections.binarySearch(certHolders, certHolder);
+                        certHolders.add(index < 0 ? -index - 1 : index, certHolder);
+                    }
                 }
-                mProgressBar.setProgress(progress);
+                // Show the list as soon as the first certificates are available.
+                mProgressBar.setVisibility(View.GONE);
+                mContentView.setVisibility(View.VISIBLE);
+                mAdapter.notifyDataSetChanged();
             }
 
             @Override
@@ -808,15 +857,25 @@ public class TrustedCredentialsFragment extends ObservableFragment
         }
     }
 
+    /** Certificates of one profile which were parsed by an {@link AdapterData.AliasLoader}. */
+    private static class CertChunk {
+        private final int mProfileId;
+        private final List<CertHolder> mCertHolders;
+
+        private CertChunk(int profileId, List<CertHolder> certHolders) {
+            mProfileId = profileId;
+            mCertHolders = certHolders;
+        }
+    }
+
     /* package */ static class CertHolder implements Comparable<CertHolder> {
         public int mProfileId;
         private final IKeyChainService mService;
         private final GroupAdapter mAdapter;
         private final Tab mTab;
         private final String mAlias;
-        private final X509Certificate mX509Cert;
+        private final byte[] mEncodedCert;
 
-        private final SslCertificate mSslCert;
         private final String mSubjectPrimary;
         private final String mSubjectSecondary;
         private boolean mDeleted;
@@ -825,47 +884,48 @@ public class TrustedCredentialsFragment extends ObservableFragment
                 GroupAdapter adapter,
                 Tab tab,
                 String alias,
-                X509Certificate x509Cert,
+                byte[] encodedCert,
+                CertSubject subject,
                 int profileId) {
             mProfileId = profileId;
             mService = service;
             mAdapter = adapter;
             mTab = tab;
             mAlias = alias;
-            mX509Cert = x509Cert;
+            mEncodedCert = encodedCert;
+            mSubjectPrimary = subject.primary;
+            mSubjectSecondary = subject.secondary;
+            try {
+                mDeleted = mTab.deleted(mService, mAlias);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Remote exception while checking if alias " + mAlias + " is deleted.",
+                        e);
+                mDeleted = false;
+            }
+        }
 
-            mSslCert = new SslCertificate(x509Cert);
+        private static CertSubject parseSubject(X509Certificate x509Cert) {
+            SslCertificate sslCert = new SslCertificate(x509Cert);
 
-            String cn = mSslCert.getIssuedTo().getCName();
-            String o = mSslCert.getIssuedTo().getOName();
-            String ou = mSslCert.getIssuedTo().getUName();
+            String cn = sslCert.getIssuedTo().getCName();
+            String o = sslCert.getIssuedTo().getOName();
+            String ou = sslCert.getIssuedTo().getUName();
             // if we have a O, use O as primary subject, secondary prefer CN over OU
             // if we don't have an O, use CN as primary, empty secondary
             // if we don't have O or CN, use DName as primary, empty secondary
             if (!o.isEmpty()) {
                 if (!cn.isEmpty()) {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = cn;
+                    return new CertSubject(o, cn);
                 } else {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = ou;
+                    return new CertSubject(o, ou);
                 }
             } else {
                 if (!cn.isEmpty()) {
-                    mSubjectPrimary = cn;
-                    mSubjectSecondary = "";
+                    return new CertSubject(cn, "");
                 } else {
-                    mSubjectPrimary = mSslCert.getIssuedTo().getDName();
-                    mSubjectSecondary = "";
+                    return new CertSubject(sslCert.getIssuedTo().getDName(), "");
                 }
             }
-            try {
-                mDeleted = mTab.deleted(mService, mAlias);
-            } catch (RemoteException e) {
-                Log.e(TAG, "Remote exception while checking if alias " + mAlias + " is deleted.",
-                        e);
-                mDeleted = false;
-            }
         }
 
         @Override
@@ -991,15 +1051,13 @@ public class TrustedCredentialsFragment extends ObservableFragment
                             mCertHolder.mProfileId);
                     IKeyChainService service = keyChainConnection.getService();
                     if (mCertHolder.mDeleted) {
-                        byte[] bytes = mCertHolder.mX509Cert.getEncoded();
-                        service.installCaCertificate(bytes);
+                        service.installCaCertificate(mCertHolder.mEncodedCert);
                         return true;
                     } else {
                         return service.deleteCaCertificate(mCertHolder.mAlias);
                     }
                 }
-            } catch (CertificateEncodingException | SecurityException | IllegalStateException
-                    | RemoteException e) {
+            } catch (SecurityException | IllegalStateException | RemoteException e) {
                 Log.w(TAG, "Error while toggling alias " + mCertHolder.mAlias, e);
                 return false;
             }
@@ -21,8 +21,6 @@ import static android.app.admin.DevicePolicyResources.Strings.Settings.WORK_PROF
 import static android.app.admin.DevicePolicyResources.Strings.Settings.WORK_PROFILE_CONFIRM_PIN;
 import static android.content.Intent.EXTRA_USER;
 import static android.content.Intent.EXTRA_USER_ID;
-import static android.text.format.DateUtils.FORMAT_ABBREV_MONTH;
-import static android.text.format.DateUtils.FORMAT_SHOW_DATE;
 
 import android.app.ActionBar;
 import android.app.Activity;
@@ -85,7 +83,6 @@ import android.telephony.TelephonyManager;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.TextUtils;
-import android.text.format.DateUtils;
 import android.text.style.TtsSpan;
 import android.util.ArraySet;
 import android.util.IconDrawableFactory;
@@ -825,18 +822,12 @@ public final class Utils extends com.android.settingslib.Utils {
         return null;
     }
 
-    private static final StringBuilder sBuilder = new StringBuilder(50);
-    private static final java.util.Formatter sFormatter = new java.util.Formatter(
-            sBuilder, Locale.getDefault());
-
+    /**
+     * Formats the range from {@code start} to {@code end} as abbreviated dates in the default
+     * locale. Safe to call from any thread, callers don't wait for each other.
+     */
     public static String formatDateRange(Context context, long start, long end) {
-        final int flags = FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH;
-
-        synchronized (sBuilder) {
-            sBuilder.setLength(0);
-            return DateUtils.formatDateRange(context, sFormatter, start, end, flags, null)
-                    .toString();
-        }
+        return DateRangeFormatter.get().format(context, start, end);
     }
 
     public static boolean startQuietModeDialogIfNecessary(Context context, UserManager um,
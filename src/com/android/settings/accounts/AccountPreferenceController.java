@@ -32,8 +32,7 @@ import static android.os.UserManager.DISALLOW_REMOVE_MANAGED_PROFILE;
 import static android.provider.Settings.ACTION_ADD_ACCOUNT;
 import static android.provider.Settings.EXTRA_AUTHORITIES;
 
-import android.accounts.Account;
-import android.accounts.AccountManager;
+import android.accounts.AuthenticatorDescription;
 import android.app.admin.DevicePolicyManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -43,7 +42,6 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -61,6 +59,8 @@ import androidx.preference.PreferenceScreen;
 import com.android.settings.AccessiblePreferenceCategory;
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.accounts.AccountSnapshotLoader.AccountEntry;
+import com.android.settings.accounts.AccountSnapshotLoader.AccountTypeInfo;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.dashboard.DashboardFragment;
@@ -74,10 +74,9 @@ import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnPause;
 import com.android.settingslib.core.lifecycle.events.OnResume;
 import com.android.settingslib.search.SearchIndexableRaw;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 public class AccountPreferenceController extends AbstractPreferenceController
@@ -108,6 +107,7 @@ public class AccountPreferenceController extends AbstractPreferenceController
     private AccountRestrictionHelper mHelper;
     private MetricsFeatureProvider mMetricsFeatureProvider;
     private @ProfileSelectFragment.ProfileType int mType;
+    private AccountSnapshotLoader mAccountLoader;
 
     /**
      * Holds data related to the accounts belonging to one profile.
@@ -145,6 +145,10 @@ public class AccountPreferenceController extends AbstractPreferenceController
          * The map from account key to account preference
          */
         public ArrayMap<String, AccountTypePreference> accountPreferences = new ArrayMap<>();
+        /**
+         * Incremented for every load of the accounts, only the latest one is shown.
+         */
+        public int accountsLoadGeneration;
     }
 
     public AccountPreferenceController(Context context, DashboardFragment parent,
@@ -168,6 +172,7 @@ public class AccountPreferenceController extends AbstractPreferenceController
         mMetricsFeatureProvider = featureFactory.getMetricsFeatureProvider();
         mHelper = helper;
         mType = type;
+        mAccountLoader = new AccountSnapshotLoader(context);
     }
 
     @Override
@@ -504,30 +509,13 @@ public class AccountPreferenceController extends AbstractPreferenceController
             return;
         }
         if (profileData.userInfo.isEnabled()) {
-            final ArrayMap<String, AccountTypePreference> preferenceToRemove =
-                    new ArrayMap<>(profileData.accountPreferences);
-            final ArrayList<AccountTypePreference> preferences = getAccountTypePreferences(
-                    profileData.authenticatorHelper, profileData.userInfo.getUserHandle(),
-                    preferenceToRemove);
-            final int count = preferences.size();
-            for (int i = 0; i < count; i++) {
-                final AccountTypePreference preference = preferences.get(i);
-                preference.setOrder(i);
-                final String key = preference.getKey();
-                if (!profileData.accountPreferences.containsKey(key)) {
-                    profileData.preferenceGroup.addPreference(preference);
-                    profileData.accountPreferences.put(key, preference);
-                }
-            }
             if (profileData.addAccountPreference != null) {
                 profileData.preferenceGroup.addPreference(profileData.addAccountPreference);
             }
-            for (String key : preferenceToRemove.keySet()) {
-                profileData.preferenceGroup.removePreference(
-                        profileData.accountPreferences.get(key));
-                profileData.accountPreferences.remove(key);
-            }
+            loadAccounts(profileData);
         } else {
+            // Drop the accounts of a load still running.
+            profileData.accountsLoadGeneration++;
             profileData.preferenceGroup.removeAll();
             // Put a label instead of the accounts list
             if (mProfileNotAvailablePreference == null) {
@@ -551,72 +539,97 @@ public class AccountPreferenceController extends AbstractPreferenceController
         }
     }
 
-    private ArrayList<AccountTypePreference> getAccountTypePreferences(AuthenticatorHelper helper,
-            UserHandle userHandle, ArrayMap<String, AccountTypePreference> preferenceToRemove) {
-        final String[] accountTypes = helper.getEnabledAccountTypes();
-        final ArrayList<AccountTypePreference> accountTypePreferences =
-                new ArrayList<>(accountTypes.length);
-
-        for (int i = 0; i < accountTypes.length; i++) {
-            final String accountType = accountTypes[i];
+    /**
+     * Loads the accounts of {@code profileData} in the background, then updates the preferences
+     * of the accounts which changed.
+     */
+    private void loadAccounts(ProfileData profileData) {
+        final AuthenticatorHelper helper = profileData.authenticatorHelper;
+        final UserHandle userHandle = profileData.userInfo.getUserHandle();
+        // The helper is updated on the main thread, copy what the loader needs of the types to
+        // show here.
+        final String[] enabledAccountTypes = helper.getEnabledAccountTypes();
+        final List<AccountTypeInfo> accountTypes = new ArrayList<>(enabledAccountTypes.length);
+        for (String accountType : enabledAccountTypes) {
             // Skip showing any account that does not have any of the requested authorities
-            if (!accountTypeHasAnyRequestedAuthorities(helper, accountType)) {
+            if (!accountTypeHasAnyRequestedAuthorities(helper, accountType)
+                    || !AccountRestrictionHelper.showAccount(mAuthorities,
+                            helper.getAuthoritiesForAccountType(accountType))) {
                 continue;
             }
-            final CharSequence label = helper.getLabelForType(mContext, accountType);
-            if (label == null) {
-                continue;
+            final AuthenticatorDescription description =
+                    helper.getAccountTypeDescription(accountType);
+            if (description != null) {
+                accountTypes.add(new AccountTypeInfo(description));
             }
-            final String titleResPackageName = helper.getPackageForType(accountType);
-            final int titleResId = helper.getLabelIdForType(accountType);
-
-            final Account[] accounts = AccountManager.get(mContext)
-                    .getAccountsByTypeAsUser(accountType, userHandle);
-            final Drawable icon = helper.getDrawableForType(mContext, accountType);
-            final Context prefContext = mFragment.getPreferenceManager().getContext();
-
-            // Add a preference row for each individual account
-            for (Account account : accounts) {
-                final AccountTypePreference preference =
-                        preferenceToRemove.remove(AccountTypePreference.buildKey(account));
-                if (preference != null) {
-                    accountTypePreferences.add(preference);
-                    continue;
-                }
-                final ArrayList<String> auths =
-                        helper.getAuthoritiesForAccountType(account.type);
-                if (!AccountRestrictionHelper.showAccount(mAuthorities, auths)) {
-                    continue;
+        }
+        final int generation = ++profileData.accountsLoadGeneration;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<AccountEntry> entries = mAccountLoader.load(userHandle, accountTypes);
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation == profileData.accountsLoadGeneration
+                        && mProfiles.get(profileData.userInfo.id) == profileData) {
+                    updateAccountPreferences(profileData, entries);
                 }
-                final Bundle fragmentArguments = new Bundle();
-                fragmentArguments.putParcelable(AccountDetailDashboardFragment.KEY_ACCOUNT,
-                        account);
-                fragmentArguments.putParcelable(AccountDetailDashboardFragment.KEY_USER_HANDLE,
-                        userHandle);
-                fragmentArguments.putString(AccountDetailDashboardFragment.KEY_ACCOUNT_TYPE,
-                        accountType);
-                fragmentArguments.putString(AccountDetailDashboardFragment.KEY_ACCOUNT_LABEL,
-                        label.toString());
-                fragmentArguments.putInt(AccountDetailDashboardFragment.KEY_ACCOUNT_TITLE_RES,
-                        titleResId);
-                fragmentArguments.putParcelable(EXTRA_USER, userHandle);
-                accountTypePreferences.add(new AccountTypePreference(
-                        prefContext, mMetricsFeatureProvider.getMetricsCategory(mFragment),
-                        account, titleResPackageName, titleResId, label,
-                        AccountDetailDashboardFragment.class.getName(), fragmentArguments, icon));
+            });
+        });
+    }
+
+    private void updateAccountPreferences(ProfileData profileData, List<AccountEntry> entries) {
+        if (mFragment.getPreferenceManager() == null
+                || profileData.preferenceGroup.getPreferenceManager() == null) {
+            // This could happen if activity is finishing
+            return;
+        }
+        final Context prefContext = mFragment.getPreferenceManager().getContext();
+        final UserHandle userHandle = profileData.userInfo.getUserHandle();
+        final ArrayMap<String, AccountTypePreference> preferenceToRemove =
+                new ArrayMap<>(profileData.accountPreferences);
+        final int count = entries.size();
+        for (int i = 0; i < count; i++) {
+            final AccountEntry entry = entries.get(i);
+            final String key = AccountTypePreference.buildKey(entry.mAccount);
+            AccountTypePreference preference = preferenceToRemove.remove(key);
+            if (preference != null && !entry.isShownBy(preference)) {
+                // The label or icon of the account type changed.
+                profileData.preferenceGroup.removePreference(preference);
+                profileData.accountPreferences.remove(key);
+                preference = null;
             }
-            helper.preloadDrawableForType(mContext, accountType);
-        }
-        // Sort by label
-        Collections.sort(accountTypePreferences, new Comparator<AccountTypePreference>() {
-            @Override
-            public int compare(AccountTypePreference t1, AccountTypePreference t2) {
-                int result = t1.getSummary().toString().compareTo(t2.getSummary().toString());
-                return result != 0
-                        ? result : t1.getTitle().toString().compareTo(t2.getTitle().toString());
+            if (preference == null) {
+                preference = newAccountTypePreference(prefContext, entry, userHandle);
+                preference.setOrder(i);
+                profileData.preferenceGroup.addPreference(preference);
+                profileData.accountPreferences.put(key, preference);
+            } else {
+                preference.setOrder(i);
             }
-        });
-        return accountTypePreferences;
+        }
+        for (String key : preferenceToRemove.keySet()) {
+            profileData.preferenceGroup.removePreference(
+                    profileData.accountPreferences.get(key));
+            profileData.accountPreferences.remove(key);
+        }
+    }
+
+    private AccountTypePreference newAccountTypePreference(Context prefContext,
+            AccountEntry entry, UserHandle userHandle) {
+        final Bundle fragmentArguments = new Bundle();
+        fragmentArguments.putParcelable(AccountDetailDashboardFragment.KEY_ACCOUNT,
+                entry.mAccount);
+        fragmentArguments.putParcelable(AccountDetailDashboardFragment.KEY_USER_HANDLE,
+                userHandle);
+        fragmentArguments.putString(AccountDetailDashboardFragment.KEY_ACCOUNT_TYPE,
+                entry.mAccount.type);
+        fragmentArguments.putString(AccountDetailDashboardFragment.KEY_ACCOUNT_LABEL,
+                entry.mLabel.toString());
+        fragmentArguments.putInt(AccountDetailDashboardFragment.KEY_ACCOUNT_TITLE_RES,
+                entry.mTitleResId);
+        fragmentArguments.putParcelable(EXTRA_USER, userHandle);
+        return new AccountTypePreference(
+                prefContext, mMetricsFeatureProvider.getMetricsCategory(mFragment),
+                entry.mAccount, entry.mTitleResPackageName, entry.mTitleResId, entry.mLabel,
+                AccountDetailDashboardFragment.class.getName(), fragmentArguments, entry.mIcon);
     }
 
     private boolean accountTypeHasAnyRequestedAuthorities(AuthenticatorHelper helper,
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.accounts;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.accounts.AuthenticatorDescription;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the accounts {@link AccountPreferenceController} shows for a profile, with the label and
+ * icon of their type.
+ *
+ * <p>The account types are given as {@link AccountTypeInfo}s copied from the
+ * {@link com.android.settingslib.accounts.AuthenticatorHelper} on the main thread, as the helper
+ * is updated there. Labels are kept per account type and shared by the profiles, icons are kept
+ * per profile as they are badged for it. Both are kept for the lifetime of the loader, and
+ * reloaded when the authenticator of the type points at other resources.
+ */
+class AccountSnapshotLoader {
+
+    private static final String TAG = "AccountSnapshotLoader";
+
+    private final Context mContext;
+
+    // Keyed by account type, authenticator package and label resource.
+    @GuardedBy("mLabels")
+    private final ArrayMap<String, CharSequence> mLabels = new ArrayMap<>();
+    // Keyed by user id and account type.
+    @GuardedBy("mIcons")
+    private final ArrayMap<String, CachedIcon> mIcons = new ArrayMap<>();
+
+    AccountSnapshotLoader(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the accounts of {@code accountTypes} of the profile {@code userHandle}, sorted by
+     * the label of their type and then by name. Types without a label are skipped.
+     */
+    @WorkerThread
+    List<AccountEntry> load(UserHandle userHandle, List<AccountTypeInfo> accountTypes) {
+        final AccountManager accountManager = AccountManager.get(mContext);
+        final List<AccountEntry> entries = new ArrayList<>();
+        for (int i = 0; i < accountTypes.size(); i++) {
+            final AccountTypeInfo accountType = accountTypes.get(i);
+            final CharSequence label = getLabel(accountType, userHandle);
+            if (label == null) {
+                continue;
+            }
+            final Account[] accounts =
+                    accountManager.getAccountsByTypeAsUser(accountType.mType, userHandle);
+            if (accounts.length == 0) {
+                continue;
+            }
+            final Drawable icon = getIcon(accountType, userHandle);
+            for (Account account : accounts) {
+                entries.add(new AccountEntry(account, label, accountType.mPackageName,
+                        accountType.mLabelId, icon));
+            }
+        }
+        // Sort by label
+        Collections.sort(entries, (e1, e2) -> {
+            final int result = e1.mLabel.toString().compareTo(e2.mLabel.toString());
+            return result != 0 ? result : e1.mAccount.name.compareTo(e2.mAccount.name);
+        });
+        return Collections.unmodifiableList(entries);
+    }
+
+    private CharSequence getLabel(AccountTypeInfo accountType, UserHandle userHandle) {
+        final String key =
+                accountType.mType + '/' + accountType.mPackageName + '/' + accountType.mLabelId;
+        synchronized (mLabels) {
+            if (mLabels.containsKey(key)) {
+                return mLabels.get(key);
+            }
+        }
+        final CharSequence label = loadLabel(accountType, userHandle);
+        synchronized (mLabels) {
+            mLabels.put(key, label);
+        }
+        return label;
+    }
+
+    private Drawable getIcon(AccountTypeInfo accountType, UserHandle userHandle) {
+        final String key = userHandle.getIdentifier() + "/" + accountType.mType;
+        synchronized (mIcons) {
+            final CachedIcon cached = mIcons.get(key);
+            if (cached != null && cached.mPackageName.equals(accountType.mPackageName)
+                    && cached.mIconId == accountType.mIconId) {
+                return cached.mIcon;
+            }
+        }
+        final Drawable icon = loadIcon(accountType, userHandle);
+        synchronized (mIcons) {
+            mIcons.put(key, new CachedIcon(accountType.mPackageName, accountType.mIconId, icon));
+        }
+        return icon;
+    }
+
+    /** Returns the label of {@code accountType}, or null if it cannot be found. */
+    @VisibleForTesting
+    @Nullable
+    CharSequence loadLabel(AccountTypeInfo accountType, UserHandle userHandle) {
+        try {
+            final Context authContext = mContext.createPackageContextAsUser(
+                    accountType.mPackageName, 0, userHandle);
+            return authContext.getResources().getText(accountType.mLabelId);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "No label name for account type " + accountType.mType);
+        } catch (Resources.NotFoundException e) {
+            Log.w(TAG, "No label resource for account type " + accountType.mType);
+        }
+        return null;
+    }
+
+    /** Returns the icon of {@code accountType} badged for the profile, or a default icon. */
+    @VisibleForTesting
+    Drawable loadIcon(AccountTypeInfo accountType, UserHandle userHandle) {
+        final PackageManager packageManager = mContext.getPackageManager();
+        try {
+            final Context authContext = mContext.createPackageContextAsUser(
+                    accountType.mPackageName, 0, userHandle);
+            return packageManager.getUserBadgedIcon(
+                    authContext.getDrawable(accountType.mIconId), userHandle);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "No icon name for account type " + accountType.mType);
+        } catch (Resources.NotFoundException e) {
+            Log.w(TAG, "No icon resource for account type " + accountType.mType);
+        }
+        return packageManager.getDefaultActivityIcon();
+    }
+
+    @VisibleForTesting
+    int getCachedIconCount() {
+        synchronized (mIcons) {
+            return mIcons.size();
+        }
+    }
+
+    /** What the loader needs to know about an account type. */
+    static class AccountTypeInfo {
+        final String mType;
+        final String mPackageName;
+        final int mLabelId;
+        final int mIconId;
+
+        AccountTypeInfo(AuthenticatorDescription description) {
+            this(description.type, description.packageName, description.labelId,
+                    description.iconId);
+        }
+
+        @VisibleForTesting
+        AccountTypeInfo(String type, String packageName, int labelId, int iconId) {
+            mType = type;
+            mPackageName = packageName;
+            mLabelId = labelId;
+            mIconId = iconId;
+        }
+    }
+
+    private static class CachedIcon {
+        final String mPackageName;
+        final int mIconId;
+        final Drawable mIcon;
+
+        CachedIcon(String packageName, int iconId, Drawable icon) {
+            mPackageName = packageName;
+            mIconId = iconId;
+            mIcon = icon;
+        }
+    }
+
+    /** An account shown by {@link AccountPreferenceController}. */
+    static class AccountEntry {
+        final Account mAccount;
+        final CharSequence mLabel;
+        final String mTitleResPackageName;
+        final int mTitleResId;
+        final Drawable mIcon;
+
+        AccountEntry(Account account, CharSequence label, String titleResPackageName,
+                int titleResId, Drawable icon) {
+            mAccount = account;
+            mLabel = label;
+            mTitleResPackageName = titleResPackageName;
+            mTitleResId = titleResId;
+            mIcon = icon;
+        }
+
+        /** Returns whether {@code preference} shows this account as it is. */
+        boolean isShownBy(AccountTypePreference preference) {
+            return TextUtils.equals(mAccount.name, preference.getTitle())
+                    && TextUtils.equals(mLabel, preference.getSummary())
+                    && mIcon == preference.getIcon();
+        }
+    }
+}
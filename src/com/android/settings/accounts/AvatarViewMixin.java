@@ -40,6 +40,7 @@ import com.android.settings.R;
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.homepage.SettingsHomepageActivity;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.users.UserAvatarCache;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.net.URISyntaxException;
@@ -65,6 +66,7 @@ public class AvatarViewMixin implements LifecycleObserver {
     private final Context mContext;
     private final ImageView mAvatarView;
     private final MutableLiveData<Bitmap> mAvatarImage;
+    private final int mAvatarSize;
 
     @VisibleForTesting
     String mAccountName;
@@ -83,6 +85,7 @@ public class AvatarViewMixin implements LifecycleObserver {
     public AvatarViewMixin(SettingsHomepageActivity activity, ImageView avatarView) {
         mContext = activity.getApplicationContext();
         mAvatarView = avatarView;
+        mAvatarSize = mContext.getResources().getDimensionPixelSize(R.dimen.avatar_length);
         mAvatarView.setOnClickListener(v -> {
             Intent intent;
             try {
@@ -135,6 +138,12 @@ public class AvatarViewMixin implements LifecycleObserver {
     @OnLifecycleEvent(Lifecycle.Event.ON_START)
     public void onStart() {
         if (hasAccount()) {
+            // Show the avatar of the last load until the provider answers.
+            final Bitmap cachedAvatar =
+                    UserAvatarCache.getInstance().getCachedAccountAvatar(mAvatarSize);
+            if (cachedAvatar != null) {
+                mAvatarView.setImageBitmap(cachedAvatar);
+            }
             loadAccount();
         } else {
             mAccountName = null;
@@ -161,7 +170,10 @@ public class AvatarViewMixin implements LifecycleObserver {
                     .build();
             final Bundle bundle = mContext.getContentResolver().call(uri,
                     METHOD_GET_ACCOUNT_AVATAR, null /* arg */, null /* extras */);
-            final Bitmap bitmap = bundle.getParcelable(KEY_AVATAR_BITMAP);
+            Bitmap bitmap = bundle.getParcelable(KEY_AVATAR_BITMAP);
+            if (bitmap != null) {
+                bitmap = UserAvatarCache.getInstance().putAccountAvatar(bitmap, mAvatarSize);
+            }
             mAccountName = bundle.getString(KEY_ACCOUNT_NAME, "" /* defaultValue */);
             mAvatarImage.postValue(bitmap);
         });
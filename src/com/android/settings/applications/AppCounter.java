@@ -17,39 +17,34 @@ package com.android.settings.applications;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.content.pm.UserInfo;
 import android.os.AsyncTask;
-import android.os.UserHandle;
 import android.os.UserManager;
 
-import java.util.List;
-
 public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
 
     protected final PackageManager mPm;
     protected final UserManager mUm;
+    private final SharedAppEnumeration mEnumeration;
+    private SharedAppEnumeration.Request mRequest;
 
     public AppCounter(Context context, PackageManager packageManager) {
         mPm = packageManager;
         mUm = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        mEnumeration = SharedAppEnumeration.getInstance(context);
+    }
+
+    @Override
+    protected void onPreExecute() {
+        // Enqueue right away, so that counters executed together are counted in one sweep.
+        mRequest = mEnumeration.enqueue(mUm, mPm, this::includeInCount);
     }
 
     @Override
     protected Integer doInBackground(Void... params) {
-        int count = 0;
-        for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                            | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                            | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0),
-                            user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    count++;
-                }
-            }
+        if (mRequest == null) {
+            mRequest = mEnumeration.enqueue(mUm, mPm, this::includeInCount);
         }
-        return count;
+        return mEnumeration.awaitCount(mRequest);
     }
 
     @Override
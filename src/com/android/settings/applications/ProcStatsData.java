@@ -41,9 +41,16 @@ import com.android.internal.util.MemInfoReader;
 import com.android.settings.R;
 import com.android.settings.Utils;
 
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -53,6 +60,9 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // How long stats loaded for a duration are reused when switching back to that duration.
+    private static final long MAX_STATS_AGE_MS = 60 * 1000;
+
     private static ProcessStats sStatsXfer;
 
     private PackageManager mPm;
@@ -73,6 +83,9 @@ public class ProcStatsData {
 
     private ArrayList<ProcStatsPackageEntry> pkgEntries;
 
+    // Recently loaded stats, keyed by duration.
+    private final ArrayMap<Long, StatsWindow> mStatsWindows = new ArrayMap<>();
+
     public ProcStatsData(Context context, boolean useXfer) {
         mContext = context;
         mPm = context.getPackageManager();
@@ -125,7 +138,13 @@ public class ProcStatsData {
     public void setDuration(long duration) {
         if (duration != mDuration) {
             mDuration = duration;
-            refreshStats(true);
+            final StatsWindow window = mStatsWindows.get(duration);
+            if (window != null && !window.isStale(SystemClock.uptimeMillis())) {
+                mStats = window.mStats;
+                refreshStats(false);
+            } else {
+                refreshStats(true);
+            }
         }
     }
 
@@ -160,7 +179,20 @@ public class ProcStatsData {
         ProcessDataCollection runTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
 
-        createPkgMap(getProcs(bgTotals, runTotals), bgTotals, runTotals);
+        // The process entries only depend on the stats and the states, reuse them if those
+        // didn't change. What depends on the time is recomputed below.
+        final StatsWindow window = mStatsWindows.get(mDuration);
+        final boolean canCache = window != null && window.mStats == mStats;
+        ArrayList<ProcStatsEntry> procEntries = canCache
+                ? window.getProcEntries(mMemStates, mStates) : null;
+        final boolean reused = procEntries != null;
+        if (!reused) {
+            procEntries = getProcs(bgTotals, runTotals);
+            if (canCache) {
+                window.setProcEntries(procEntries, mMemStates, mStates);
+            }
+        }
+        createPkgMap(procEntries, bgTotals, runTotals, !reused);
         if (totalMem.sysMemZRamWeight > 0 && !totalMem.hasSwappedOutPss) {
             distributeZRam(totalMem.sysMemZRamWeight);
         }
@@ -171,12 +203,15 @@ public class ProcStatsData {
     }
 
     private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
-            ProcessDataCollection runTotals) {
+            ProcessDataCollection runTotals, boolean evaluate) {
         // Combine processes into packages.
         ArrayMap<String, ProcStatsPackageEntry> pkgMap = new ArrayMap<>();
         for (int i = procEntries.size() - 1; i >= 0; i--) {
             ProcStatsEntry proc = procEntries.get(i);
-            proc.evaluateTargetPackage(mPm, mStats, bgTotals, runTotals, sEntryCompare, mUseUss);
+            if (evaluate) {
+                proc.evaluateTargetPackage(mPm, mStats, bgTotals, runTotals, sEntryCompare,
+                        mUseUss);
+            }
             ProcStatsPackageEntry pkg = pkgMap.get(proc.mBestTargetPackage);
             if (pkg == null) {
                 pkg = new ProcStatsPackageEntry(proc.mBestTargetPackage, memTotalTime);
@@ -345,20 +380,117 @@ public class ProcStatsData {
         try {
             ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
             mStats = new ProcessStats(false);
-            InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
-            mStats.read(is);
             try {
-                is.close();
+                mStats.read(openStatsStream(pfd));
             } catch (IOException e) {
+                mStats.mReadError = "caught exception: " + e;
+            }
+            final long now = SystemClock.uptimeMillis();
+            for (int i = mStatsWindows.size() - 1; i >= 0; i--) {
+                if (mStatsWindows.valueAt(i).isStale(now)) {
+                    mStatsWindows.removeAt(i);
+                }
             }
             if (mStats.mReadError != null) {
                 Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
+                mStatsWindows.remove(mDuration);
+            } else {
+                mStatsWindows.put(mDuration, new StatsWindow(mStats, now));
             }
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
         }
     }
 
+    /**
+     * Returns a stream over the whole content of {@code pfd}, which it closes. Regular files are
+     * memory-mapped. Anything else, like the pipe the stats service writes to, is read at once
+     * into a buffer. Either way the stream knows its size, so {@link ProcessStats#read} reads it
+     * with a single allocation rather than growing its buffer for every 16KB read.
+     */
+    @VisibleForTesting
+    static InputStream openStatsStream(ParcelFileDescriptor pfd) throws IOException {
+        final long size = pfd.getStatSize();
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+            if (size >= 0 && size <= Integer.MAX_VALUE) {
+                final FileChannel channel = in.getChannel();
+                return new ByteBufferInputStream(
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            byte[] data = new byte[16384];
+            int length = 0;
+            int amt;
+            while ((amt = in.read(data, length, data.length - length)) >= 0) {
+                length += amt;
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+            return new ByteArrayInputStream(data, 0, length);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? (mBuffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+
+    /** Stats loaded for a duration, and the process entries last computed from them. */
+    private static class StatsWindow {
+        final ProcessStats mStats;
+        final long mLoadTime;
+        private ArrayList<ProcStatsEntry> mProcEntries;
+        private int[] mMemStates;
+        private int[] mStates;
+
+        StatsWindow(ProcessStats stats, long loadTime) {
+            mStats = stats;
+            mLoadTime = loadTime;
+        }
+
+        boolean isStale(long now) {
+            return now - mLoadTime > MAX_STATS_AGE_MS;
+        }
+
+        ArrayList<ProcStatsEntry> getProcEntries(int[] memStates, int[] states) {
+            return Arrays.equals(memStates, mMemStates) && Arrays.equals(states, mStates)
+                    ? mProcEntries : null;
+        }
+
+        void setProcEntries(ArrayList<ProcStatsEntry> procEntries, int[] memStates,
+                int[] states) {
+            mProcEntries = procEntries;
+            mMemStates = memStates.clone();
+            mStates = states.clone();
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
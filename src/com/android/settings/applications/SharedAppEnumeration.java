@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.annotation.WorkerThread;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Enumerates the apps installed in the profiles of the current user on behalf of
+ * {@link AppCounter}s.
+ *
+ * <p>Counters enqueue their predicate when they are executed. The first counter whose background
+ * work runs counts for every enqueued counter in a single sweep over the apps, so the counters of
+ * a screen share one enumeration. The installed apps of each profile are cached until the next
+ * package broadcast. They are then queried with the package manager of the application context,
+ * so that counters created with different package manager instances share them.
+ */
+public class SharedAppEnumeration {
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static SharedAppEnumeration sInstance;
+
+    // Null if the enumeration can't tell when packages change, the apps are not cached then.
+    private final Context mContext;
+
+    @GuardedBy("this")
+    private final List<Request> mPendingRequests = new ArrayList<>();
+    // Installed apps keyed by user id and query flags.
+    @GuardedBy("this")
+    private final Map<String, List<ApplicationInfo>> mCachedApps = new ArrayMap<>();
+    @GuardedBy("this")
+    private boolean mReceiverRegistered;
+    @GuardedBy("this")
+    private int mGeneration;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /**
+     * Returns the shared instance. Contexts without an application context, like in tests, get
+     * an instance which doesn't cache the apps.
+     */
+    public static SharedAppEnumeration getInstance(Context context) {
+        final Context appContext = context.getApplicationContext();
+        if (appContext == null) {
+            return new SharedAppEnumeration(null);
+        }
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                sInstance = new SharedAppEnumeration(appContext);
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    SharedAppEnumeration(Context context) {
+        mContext = context;
+    }
+
+    /** Enqueues a count of the apps matching {@code predicate}, see {@link #awaitCount}. */
+    public synchronized Request enqueue(UserManager userManager, PackageManager packageManager,
+            Predicate<ApplicationInfo> predicate) {
+        final Request request = new Request(userManager, packageManager, predicate);
+        mPendingRequests.add(request);
+        return request;
+    }
+
+    /**
+     * Returns the count of {@code request}. Counts it together with the other pending requests
+     * for the same user manager, unless it was already counted with an earlier sweep. Requests
+     * for other package managers are only counted apart when the apps are not cached.
+     */
+    @WorkerThread
+    public int awaitCount(Request request) {
+        final List<Request> batch = new ArrayList<>();
+        synchronized (this) {
+            while (!request.mDone && !mPendingRequests.contains(request)) {
+                // Another thread is sweeping for this request.
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return request.mCount;
+                }
+            }
+            if (request.mDone) {
+                return request.mCount;
+            }
+            for (Request pending : mPendingRequests) {
+                if (pending.mUserManager == request.mUserManager && (mContext != null
+                        || pending.mPackageManager == request.mPackageManager)) {
+                    batch.add(pending);
+                }
+            }
+            mPendingRequests.removeAll(batch);
+        }
+        try {
+            sweep(request.mUserManager, request.mPackageManager, batch);
+        } finally {
+            synchronized (this) {
+                for (Request counted : batch) {
+                    counted.mDone = true;
+                }
+                notifyAll();
+            }
+        }
+        return request.mCount;
+    }
+
+    private void sweep(UserManager userManager, PackageManager packageManager,
+            List<Request> batch) {
+        for (UserInfo user : userManager.getProfiles(UserHandle.myUserId())) {
+            for (ApplicationInfo info : getInstalledApplications(packageManager, user)) {
+                for (Request request : batch) {
+                    if (request.mPredicate.test(info)) {
+                        request.mCount++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the apps installed for {@code user}, from the cache if packages didn't change.
+     * {@code packageManager} is only used by the instances which don't cache the apps.
+     */
+    @WorkerThread
+    public List<ApplicationInfo> getInstalledApplications(PackageManager packageManager,
+            UserInfo user) {
+        final int flags = PackageManager.GET_DISABLED_COMPONENTS
+                | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
+                | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
+        if (mContext == null) {
+            return packageManager.getInstalledApplicationsAsUser(flags, user.id);
+        }
+        final String key = user.id + ":" + flags;
+        final int generation;
+        synchronized (this) {
+            registerReceiverLocked();
+            final List<ApplicationInfo> cached = mCachedApps.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            generation = mGeneration;
+        }
+        final List<ApplicationInfo> apps = Collections.unmodifiableList(new ArrayList<>(
+                mContext.getPackageManager().getInstalledApplicationsAsUser(flags, user.id)));
+        synchronized (this) {
+            // Don't cache apps which may have changed while they were queried.
+            if (generation == mGeneration) {
+                mCachedApps.put(key, apps);
+            }
+        }
+        return apps;
+    }
+
+    /** Drops the cached apps. */
+    public synchronized void invalidate() {
+        mGeneration++;
+        mCachedApps.clear();
+    }
+
+    @GuardedBy("this")
+    private void registerReceiverLocked() {
+        if (mReceiverRegistered) {
+            return;
+        }
+        mReceiverRegistered = true;
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter,
+                null /* broadcastPermission */, null /* scheduler */);
+        final IntentFilter externalFilter = new IntentFilter();
+        externalFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_AVAILABLE);
+        externalFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_UNAVAILABLE);
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, externalFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+    }
+
+    /** A pending count of one {@link AppCounter}. */
+    public static class Request {
+        private final UserManager mUserManager;
+        private final PackageManager mPackageManager;
+        private final Predicate<ApplicationInfo> mPredicate;
+        // Guarded by the enumeration.
+        private boolean mDone;
+        private int mCount;
+
+        private Request(UserManager userManager, PackageManager packageManager,
+                Predicate<ApplicationInfo> predicate) {
+            mUserManager = userManager;
+            mPackageManager = packageManager;
+            mPredicate = predicate;
+        }
+    }
+}
@@ -67,11 +67,18 @@ public class PreferenceControllerListHelper {
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
-            BasePreferenceController controller;
-            try {
-                controller = BasePreferenceController.createInstance(context, controllerName);
-            } catch (IllegalStateException e) {
-                Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
+            BasePreferenceController controller = null;
+            // Only try the Context-only constructor if there is one, rather than failing for
+            // every controller which needs a key.
+            if (PreferenceControllerRegistry.getContextFactory(controllerName) != null) {
+                try {
+                    controller = BasePreferenceController.createInstance(context, controllerName);
+                } catch (IllegalStateException e) {
+                    Log.d(TAG, "Could not create Context-only controller for pref: "
+                            + controllerName);
+                }
+            }
+            if (controller == null) {
                 final String key = metadata.getString(METADATA_KEY);
                 final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
                 if (TextUtils.isEmpty(key)) {
@@ -83,7 +90,7 @@ public class PreferenceControllerListHelper {
                     controller = BasePreferenceController.createInstance(context, controllerName,
                             key, isWorkProfile);
                 } catch (IllegalStateException e2) {
-                    Log.w(TAG, "Cannot instantiate controller from reflection: " + controllerName);
+                    Log.w(TAG, "Cannot instantiate controller: " + controllerName);
                     continue;
                 }
             }
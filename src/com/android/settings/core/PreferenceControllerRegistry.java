@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Factories of the {@link BasePreferenceController}s named in preference xml, keyed by class
+ * name.
+ *
+ * <p>The controllers of this app are created by a {@code switch} on their class name generated at
+ * build time, see {@code ControllerFactoryProcessor}. Other controllers, like the ones of tests,
+ * are looked up with reflection. Either way, the factory of a class is made the first time it is
+ * asked for, then kept.
+ */
+public final class PreferenceControllerRegistry {
+
+    private static final String TAG = "PrefCtrlRegistry";
+
+    // Constructors of a controller, as returned by the generated code.
+    static final int CONTEXT_CONSTRUCTOR = 1;
+    static final int KEY_CONSTRUCTOR = 1 << 1;
+
+    /** Creates a controller with its {@code (Context)} constructor. */
+    public interface ContextFactory {
+        /** Returns a new controller. */
+        BasePreferenceController create(Context context);
+    }
+
+    /** Creates a controller with its {@code (Context, String)} constructor. */
+    public interface KeyFactory {
+        /** Returns a new controller for the preference {@code key}. */
+        BasePreferenceController create(Context context, String key);
+    }
+
+    // Marks classes without the matching constructor, as the maps can't hold null.
+    private static final ContextFactory NO_CONTEXT_FACTORY = context -> null;
+    private static final KeyFactory NO_KEY_FACTORY = (context, key) -> null;
+
+    private static final Map<String, ContextFactory> sContextFactories =
+            new ConcurrentHashMap<>();
+    private static final Map<String, KeyFactory> sKeyFactories = new ConcurrentHashMap<>();
+
+    private PreferenceControllerRegistry() {
+    }
+
+    /**
+     * Overrides the factories of {@code className}, null for a constructor the class doesn't
+     * have.
+     */
+    @VisibleForTesting
+    static void register(String className, @Nullable ContextFactory contextFactory,
+            @Nullable KeyFactory keyFactory) {
+        sContextFactories.put(className,
+                contextFactory != null ? contextFactory : NO_CONTEXT_FACTORY);
+        sKeyFactories.put(className, keyFactory != null ? keyFactory : NO_KEY_FACTORY);
+    }
+
+    /** Returns the factory of {@code className}, or null if it has no context constructor. */
+    @Nullable
+    public static ContextFactory getContextFactory(String className) {
+        ContextFactory factory = sContextFactories.get(className);
+        if (factory == null) {
+            factory = makeContextFactory(className);
+            sContextFactories.putIfAbsent(className, factory);
+        }
+        return factory != NO_CONTEXT_FACTORY ? factory : null;
+    }
+
+    /** Returns the factory of {@code className}, or null if it has no key constructor. */
+    @Nullable
+    public static KeyFactory getKeyFactory(String className) {
+        KeyFactory factory = sKeyFactories.get(className);
+        if (factory == null) {
+            factory = makeKeyFactory(className);
+            sKeyFactories.putIfAbsent(className, factory);
+        }
+        return factory != NO_KEY_FACTORY ? factory : null;
+    }
+
+    private static ContextFactory makeContextFactory(String className) {
+        final int constructors = PreferenceControllerFactoriesImpl.getConstructors(className);
+        if (constructors != 0) {
+            return (constructors & CONTEXT_CONSTRUCTOR) == 0 ? NO_CONTEXT_FACTORY
+                    : context -> PreferenceControllerFactoriesImpl.createWithContext(className,
+                            context);
+        }
+        final Constructor<?> constructor = findConstructor(className, Context.class);
+        return constructor == null ? NO_CONTEXT_FACTORY
+                : context -> newInstance(className, constructor, context);
+    }
+
+    private static KeyFactory makeKeyFactory(String className) {
+        final int constructors = PreferenceControllerFactoriesImpl.getConstructors(className);
+        if (constructors != 0) {
+            return (constructors & KEY_CONSTRUCTOR) == 0 ? NO_KEY_FACTORY
+                    : (context, key) -> PreferenceControllerFactoriesImpl.createWithKey(className,
+                            context, key);
+        }
+        final Constructor<?> constructor =
+                findConstructor(className, Context.class, String.class);
+        return constructor == null ? NO_KEY_FACTORY
+                : (context, key) -> newInstance(className, constructor, context, key);
+    }
+
+    @Nullable
+    private static Constructor<?> findConstructor(String className, Class<?>... parameterTypes) {
+        try {
+            final Class<?> clazz = Class.forName(className);
+            if (!BasePreferenceController.class.isAssignableFrom(clazz)) {
+                Log.w(TAG, "Not a preference controller: " + className);
+                return null;
+            }
+            return clazz.getConstructor(parameterTypes);
+        } catch (ClassNotFoundException e) {
+            Log.w(TAG, "Cannot find preference controller: " + className);
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static BasePreferenceController newInstance(String className,
+            Constructor<?> constructor, Object... params) {
+        try {
+            return (BasePreferenceController) constructor.newInstance(params);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Invalid preference controller: " + className, e);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Invalid preference controller: " + className, e);
+        }
+    }
+}
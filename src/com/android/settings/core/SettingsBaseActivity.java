@@ -27,6 +27,7 @@ import android.content.res.TypedArray;
 import android.graphics.text.LineBreakConfig;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -66,6 +67,9 @@ public class SettingsBaseActivity extends FragmentActivity implements CategoryHa
     private static final int DEFAULT_REQUEST = -1;
     private static final float TOOLBAR_LINE_SPACING_MULTIPLIER = 1.1f;
 
+    // Enabled states of tile components already applied by this process.
+    private static final ArrayMap<ComponentName, Boolean> sTileEnabledStates = new ArrayMap<>();
+
     protected CategoryMixin mCategoryMixin;
     protected CollapsingToolbarLayout mCollapsingToolbarLayout;
     protected AppBarLayout mAppBarLayout;
@@ -240,10 +244,19 @@ public class SettingsBaseActivity extends FragmentActivity implements CategoryHa
      * @return whether or not the enabled state actually changed.
      */
     public boolean setTileEnabled(ComponentName component, boolean enabled) {
+        synchronized (sTileEnabledStates) {
+            // Skip the PackageManager round trip when this process already applied the state.
+            final Boolean appliedState = sTileEnabledStates.get(component);
+            if (appliedState != null && appliedState == enabled) {
+                return false;
+            }
+        }
         final PackageManager pm = getPackageManager();
         int state = pm.getComponentEnabledSetting(component);
         boolean isEnabled = state == PackageManager.COMPONENT_ENABLED_STATE_ENABLED;
-        if (isEnabled != enabled || state == PackageManager.COMPONENT_ENABLED_STATE_DEFAULT) {
+        final boolean changed =
+                isEnabled != enabled || state == PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+        if (changed) {
             if (enabled) {
                 mCategoryMixin.removeFromDenylist(component);
             } else {
@@ -253,9 +266,11 @@ public class SettingsBaseActivity extends FragmentActivity implements CategoryHa
                             ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
                             : PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
                     PackageManager.DONT_KILL_APP);
-            return true;
         }
-        return false;
+        synchronized (sTileEnabledStates) {
+            sTileEnabledStates.put(component, enabled);
+        }
+        return changed;
     }
 
     private void autoSetCollapsingToolbarLayoutScrolling() {
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Single-flight scheduler for the tile list update passes of Settings activities.
+ *
+ * <p>At most one pass runs at a time across the process. While a pass runs, further requests are
+ * coalesced so that each owner has at most one pending pass, which runs once the current one
+ * finishes. Pending passes of an owner can be cancelled when it goes away.
+ */
+public class TileUpdateScheduler {
+
+    private static final String TAG = "TileUpdateScheduler";
+
+    private static final TileUpdateScheduler sInstance =
+            new TileUpdateScheduler(ThreadUtils::postOnBackgroundThread);
+
+    private final Executor mExecutor;
+    // Pending passes keyed by owner, in request order.
+    private final Map<Object, Runnable> mPendingPasses = new LinkedHashMap<>();
+    private boolean mRunning;
+
+    private int mRequestCount;
+    private int mCoalescedCount;
+    private int mCancelledCount;
+    private int mRunCount;
+    private long mTotalDurationMs;
+    private long mMaxDurationMs;
+    private long mLastDurationMs;
+
+    public static TileUpdateScheduler getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TileUpdateScheduler(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Requests a tile list update pass for {@code owner}. The pass replaces any pass of the same
+     * owner which has not started yet.
+     */
+    public void schedule(@NonNull Object owner, @NonNull Runnable updatePass) {
+        synchronized (this) {
+            mRequestCount++;
+            if (mRunning) {
+                if (mPendingPasses.put(owner, updatePass) != null) {
+                    mCoalescedCount++;
+                }
+                return;
+            }
+            mRunning = true;
+        }
+        mExecutor.execute(() -> runPasses(updatePass));
+    }
+
+    /** Drops the pending pass of {@code owner}, if any. A running pass is not interrupted. */
+    public synchronized void cancel(@NonNull Object owner) {
+        if (mPendingPasses.remove(owner) != null) {
+            mCancelledCount++;
+        }
+    }
+
+    private void runPasses(Runnable firstPass) {
+        Runnable pass = firstPass;
+        while (pass != null) {
+            final long startTime = SystemClock.elapsedRealtime();
+            try {
+                pass.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Tile update pass failed", e);
+            }
+            final long duration = SystemClock.elapsedRealtime() - startTime;
+            synchronized (this) {
+                mRunCount++;
+                mTotalDurationMs += duration;
+                mMaxDurationMs = Math.max(mMaxDurationMs, duration);
+                mLastDurationMs = duration;
+                pass = pollPendingPassLocked();
+                if (pass == null) {
+                    mRunning = false;
+                }
+            }
+        }
+    }
+
+    private Runnable pollPendingPassLocked() {
+        final Iterator<Runnable> iterator = mPendingPasses.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final Runnable pass = iterator.next();
+        iterator.remove();
+        return pass;
+    }
+
+    /** Returns the statistics of the scheduler, for dumpsys. */
+    public synchronized JSONObject dumpJson() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("requests", mRequestCount);
+        obj.put("runs", mRunCount);
+        obj.put("coalesced", mCoalescedCount);
+        obj.put("cancelled", mCancelledCount);
+        obj.put("pending", mPendingPasses.size());
+        obj.put("running", mRunning);
+        obj.put("lastDurationMs", mLastDurationMs);
+        obj.put("maxDurationMs", mMaxDurationMs);
+        obj.put("avgDurationMs", mRunCount == 0 ? 0 : mTotalDurationMs / mRunCount);
+        return obj;
+    }
+
+    @VisibleForTesting
+    synchronized int getRunCount() {
+        return mRunCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getCoalescedCount() {
+        return mCoalescedCount;
+    }
+}
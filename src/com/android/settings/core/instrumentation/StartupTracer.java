@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.core.instrumentation;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records named, nested spans of the Settings startup phases.
+ *
+ * <p>Spans use monotonic timestamps and are mirrored as {@link Trace} sections. The most recent
+ * {@link #MAX_SPANS} finished spans are kept and can be dumped as JSON, or exported in the Chrome
+ * trace event format which Perfetto imports.
+ *
+ * <pre>
+ * try (StartupTracer.Span span = StartupTracer.getInstance().begin("phase")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class StartupTracer {
+
+    @VisibleForTesting
+    static final int MAX_SPANS = 256;
+
+    private static final StartupTracer sInstance = new StartupTracer();
+
+    private final ThreadLocal<Deque<Span>> mOpenSpans = ThreadLocal.withInitial(ArrayDeque::new);
+    private final SpanRecord[] mRecords = new SpanRecord[MAX_SPANS];
+    private int mNextRecord;
+    private int mRecordCount;
+
+    public static StartupTracer getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    StartupTracer() {
+    }
+
+    /**
+     * Starts a span on the current thread, nested in the innermost open span of the thread.
+     * The span must be closed on the same thread.
+     */
+    @NonNull
+    public Span begin(@NonNull String name) {
+        final Deque<Span> openSpans = mOpenSpans.get();
+        final Span parent = openSpans.peek();
+        final Span span = new Span(name, parent == null ? null : parent.mName, openSpans.size());
+        openSpans.push(span);
+        Trace.beginSection(name);
+        return span;
+    }
+
+    /** Returns the recorded spans, oldest first. */
+    @NonNull
+    public synchronized List<SpanRecord> getSpans() {
+        final List<SpanRecord> spans = new ArrayList<>(mRecordCount);
+        final int first = (mNextRecord - mRecordCount + MAX_SPANS) % MAX_SPANS;
+        for (int i = 0; i < mRecordCount; i++) {
+            spans.add(mRecords[(first + i) % MAX_SPANS]);
+        }
+        return spans;
+    }
+
+    /** Returns the recorded spans as a JSON array, for dumpsys. */
+    @NonNull
+    public JSONArray toJson() throws JSONException {
+        final JSONArray array = new JSONArray();
+        for (SpanRecord record : getSpans()) {
+            final JSONObject obj = new JSONObject();
+            obj.put("name", record.name);
+            obj.put("parent", record.parentName);
+            obj.put("depth", record.depth);
+            obj.put("thread", record.threadName);
+            obj.put("startMs", record.startNanos / 1_000_000);
+            obj.put("durationUs", record.getDurationNanos() / 1_000);
+            array.put(obj);
+        }
+        return array;
+    }
+
+    /**
+     * Returns the recorded spans in the Chrome JSON trace event format, which can be opened with
+     * the Perfetto UI.
+     */
+    @NonNull
+    public String toChromeTrace() throws JSONException {
+        final int pid = Process.myPid();
+        final JSONArray events = new JSONArray();
+        for (SpanRecord record : getSpans()) {
+            final JSONObject event = new JSONObject();
+            event.put("name", record.name);
+            event.put("cat", "settings_startup");
+            event.put("ph", "X");
+            event.put("ts", record.startNanos / 1_000);
+            event.put("dur", record.getDurationNanos() / 1_000);
+            event.put("pid", pid);
+            event.put("tid", record.threadId);
+            events.put(event);
+        }
+        return new JSONObject().put("traceEvents", events).toString();
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mNextRecord = 0;
+        mRecordCount = 0;
+    }
+
+    private synchronized void record(SpanRecord record) {
+        mRecords[mNextRecord] = record;
+        mNextRecord = (mNextRecord + 1) % MAX_SPANS;
+        mRecordCount = Math.min(mRecordCount + 1, MAX_SPANS);
+    }
+
+    /** An open span, which is recorded when closed. */
+    public class Span implements AutoCloseable {
+        private final String mName;
+        private final String mParentName;
+        private final int mDepth;
+        private final long mStartNanos = SystemClock.elapsedRealtimeNanos();
+        private boolean mClosed;
+
+        private Span(String name, String parentName, int depth) {
+            mName = name;
+            mParentName = parentName;
+            mDepth = depth;
+        }
+
+        @Override
+        public void close() {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            final long endNanos = SystemClock.elapsedRealtimeNanos();
+            Trace.endSection();
+            mOpenSpans.get().remove(this);
+            final Thread thread = Thread.currentThread();
+            record(new SpanRecord(mName, mParentName, mDepth, Process.myTid(), thread.getName(),
+                    mStartNanos, endNanos));
+        }
+    }
+
+    /** A finished span. */
+    public static class SpanRecord {
+        public final String name;
+        public final String parentName;
+        public final int depth;
+        public final int threadId;
+        public final String threadName;
+        public final long startNanos;
+        public final long endNanos;
+
+        SpanRecord(String name, String parentName, int depth, int threadId, String threadName,
+                long startNanos, long endNanos) {
+            this.name = name;
+            this.parentName = parentName;
+            this.depth = depth;
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+}
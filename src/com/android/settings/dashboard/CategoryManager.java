@@ -25,6 +25,7 @@ import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.instrumentation.StartupTracer;
 import com.android.settings.homepage.HighlightableMenu;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -152,35 +153,42 @@ public class CategoryManager {
             return;
         }
         if (mCategories == null) {
-            final boolean firstLoading = mCategoryByKeyMap.isEmpty();
-            if (forceClearCache) {
-                mTileByComponentCache.clear();
+            try (StartupTracer.Span span =
+                         StartupTracer.getInstance().begin("CategoryManager#initCategories")) {
+                initCategories(context, forceClearCache);
             }
-            mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
-            }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
-            if (firstLoading) {
-                logTiles(context);
+        }
+    }
 
-                final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
-                        CategoryKey.CATEGORY_HOMEPAGE);
-                if (homepageCategory == null) {
-                    return;
-                }
-                for (Tile tile : homepageCategory.getTiles()) {
-                    final String key = tile.getKey(context);
-                    if (TextUtils.isEmpty(key)) {
-                        Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
-                        continue;
-                    }
-                    HighlightableMenu.addMenuKey(key);
+    private synchronized void initCategories(Context context, boolean forceClearCache) {
+        final boolean firstLoading = mCategoryByKeyMap.isEmpty();
+        if (forceClearCache) {
+            mTileByComponentCache.clear();
+        }
+        mCategoryByKeyMap.clear();
+        mCategories = TileUtils.getCategories(context, mTileByComponentCache);
+        for (DashboardCategory category : mCategories) {
+            mCategoryByKeyMap.put(category.key, category);
+        }
+        backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
+        mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
+        sortCategories(context, mCategoryByKeyMap);
+        filterDuplicateTiles(mCategoryByKeyMap);
+        if (firstLoading) {
+            logTiles(context);
+
+            final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
+                    CategoryKey.CATEGORY_HOMEPAGE);
+            if (homepageCategory == null) {
+                return;
+            }
+            for (Tile tile : homepageCategory.getTiles()) {
+                final String key = tile.getKey(context);
+                if (TextUtils.isEmpty(key)) {
+                    Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
+                    continue;
                 }
+                HighlightableMenu.addMenuKey(key);
             }
         }
     }
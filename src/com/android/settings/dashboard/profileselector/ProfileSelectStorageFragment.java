@@ -216,6 +216,7 @@ public class ProfileSelectStorageFragment extends ProfileSelectFragment {
     }
 
     private void refreshUi() {
+        mStorageCacheHelper = mStorageCacheHelper.forVolume(mSelectedStorageEntry.getFsUuid());
         mStorageSelectionController.setStorageEntries(mStorageEntries);
         mStorageSelectionController.setSelectedStorageEntry(mSelectedStorageEntry);
         mStorageUsageProgressBarController.setSelectedStorageEntry(mSelectedStorageEntry);
@@ -250,6 +251,7 @@ public class ProfileSelectStorageFragment extends ProfileSelectFragment {
 
         initializeOptionsMenu(activity);
 
+        mStorageCacheHelper = mStorageCacheHelper.forVolume(mSelectedStorageEntry.getFsUuid());
         if (mStorageCacheHelper.hasCachedSizeInfo()) {
             mIsLoadedFromCache = true;
             mStorageEntries.clear();
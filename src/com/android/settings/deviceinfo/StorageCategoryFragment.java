@@ -110,6 +110,7 @@ public class StorageCategoryFragment extends DashboardFragment
             mPreferenceController.setVolume(null);
             return;
         }
+        setSelectedVolumeUuid(mSelectedStorageEntry.getFsUuid());
         if (mStorageCacheHelper.hasCachedSizeInfo() && mSelectedStorageEntry.isPrivate()) {
             StorageCacheHelper.StorageCache cachedData = mStorageCacheHelper.retrieveCachedSize();
             mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
@@ -138,6 +139,13 @@ public class StorageCategoryFragment extends DashboardFragment
         }
     }
 
+    private void setSelectedVolumeUuid(String volumeUuid) {
+        mStorageCacheHelper = mStorageCacheHelper.forVolume(volumeUuid);
+        for (NonCurrentUserController userController : mNonCurrentUsers) {
+            userController.setVolumeUuid(volumeUuid);
+        }
+    }
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -147,6 +155,9 @@ public class StorageCategoryFragment extends DashboardFragment
         if (icicle != null) {
             mSelectedStorageEntry = icicle.getParcelable(SELECTED_STORAGE_ENTRY_KEY);
         }
+        if (mSelectedStorageEntry != null) {
+            setSelectedVolumeUuid(mSelectedStorageEntry.getFsUuid());
+        }
 
         if (mStorageCacheHelper.hasCachedSizeInfo()) {
             mIsLoadedFromCache = true;
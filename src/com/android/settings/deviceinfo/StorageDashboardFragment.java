@@ -226,6 +226,7 @@ public class StorageDashboardFragment extends DashboardFragment
     };
 
     private void refreshUi() {
+        setSelectedVolumeUuid(mSelectedStorageEntry.getFsUuid());
         mStorageSelectionController.setStorageEntries(mStorageEntries);
         mStorageSelectionController.setSelectedStorageEntry(mSelectedStorageEntry);
         mStorageUsageProgressBarController.setSelectedStorageEntry(mSelectedStorageEntry);
@@ -273,6 +274,13 @@ public class StorageDashboardFragment extends DashboardFragment
         }
     }
 
+    private void setSelectedVolumeUuid(String volumeUuid) {
+        mStorageCacheHelper = mStorageCacheHelper.forVolume(volumeUuid);
+        for (NonCurrentUserController userController : mNonCurrentUsers) {
+            userController.setVolumeUuid(volumeUuid);
+        }
+    }
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -292,6 +300,7 @@ public class StorageDashboardFragment extends DashboardFragment
 
         initializeOptionsMenu(activity);
 
+        setSelectedVolumeUuid(mSelectedStorageEntry.getFsUuid());
         if (mStorageCacheHelper.hasCachedSizeInfo()) {
             mIsLoadedFromCache = true;
             mStorageEntries.clear();
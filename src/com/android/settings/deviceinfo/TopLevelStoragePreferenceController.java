@@ -64,7 +64,8 @@ public class TopLevelStoragePreferenceController extends BasePreferenceControlle
     protected Future refreshSummaryThread(Preference preference) {
         int userId = Utils.getCurrentUserId(mContext.getSystemService(UserManager.class),
                 /* isWorkProfile */ false);
-        final StorageCacheHelper storageCacheHelper = new StorageCacheHelper(mContext, userId);
+        final StorageCacheHelper storageCacheHelper = new StorageCacheHelper(mContext, userId,
+                StorageManager.UUID_PRIVATE_INTERNAL);
         long cachedUsedSize = storageCacheHelper.retrieveUsedSize();
         long cachedTotalSize = storageCacheHelper.retrieveCachedSize().totalSize;
         if (cachedUsedSize != 0 && cachedTotalSize != 0) {
@@ -159,6 +159,13 @@ public class NonCurrentUserController extends AbstractPreferenceController imple
         }
     }
 
+    /**
+     * Sets the volume whose cached size is used, {@code null} for the internal storage.
+     */
+    public void setVolumeUuid(@Nullable String volumeUuid) {
+        mStorageCacheHelper = mStorageCacheHelper.forVolume(volumeUuid);
+    }
+
     /**
      * Sets the total size for the preference for the progress bar.
      *
@@ -35,6 +35,7 @@ import android.os.UserManager;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.MediaColumns;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
@@ -43,8 +44,14 @@ import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -54,11 +61,12 @@ public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    // Upper bound of users loaded concurrently, each of them issuing binder calls of its own.
+    private static final int MAX_PARALLEL_USERS = 4;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
-    private ArraySet<String> mSeenPackages;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
@@ -75,7 +83,6 @@ public class StorageAsyncLoader
     }
 
     private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
         final SparseArray<StorageResult> results = new SparseArray<>();
         final List<UserInfo> infos = mUserManager.getUsers();
 
@@ -83,48 +90,135 @@ public class StorageAsyncLoader
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
-        for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
-            results.put(info.id, result);
+        final int userCount = infos.size();
+        if (userCount == 0) {
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(userCount, MAX_PARALLEL_USERS));
+        try {
+            final List<Future<UserLoadResult>> futures = new ArrayList<>(userCount);
+            for (UserInfo info : infos) {
+                final int userId = info.id;
+                futures.add(executor.submit(() -> loadForUser(userId)));
+            }
+
+            // Code bytes may be shared between profiles. Fold the per-user results in ascending
+            // user id order so the duplicate code attribution stays deterministic.
+            final ArraySet<String> seenPackages = new ArraySet<>();
+            for (int i = 0; i < userCount; i++) {
+                final UserLoadResult userResult = getUserResult(futures.get(i), infos.get(i).id);
+                if (userResult == null) {
+                    // Callers expect an entry for every user, show its sizes as empty.
+                    results.put(infos.get(i).id, newEmptyResult());
+                    continue;
+                }
+                final StorageResult result = userResult.result;
+                for (int j = 0, size = userResult.codeBytes.size(); j < size; j++) {
+                    final String packageName = userResult.codeBytes.keyAt(j);
+                    if (seenPackages.contains(packageName)) {
+                        result.duplicateCodeSize += userResult.codeBytes.valueAt(j);
+                    } else {
+                        seenPackages.add(packageName);
+                    }
+                }
+                results.put(infos.get(i).id, result);
+            }
+        } finally {
+            executor.shutdownNow();
         }
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
+    private UserLoadResult getUserResult(Future<UserLoadResult> future, int userId) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while loading storage for user " + userId);
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to load storage for user " + userId, e.getCause());
+        }
+        return null;
+    }
+
+    private static StorageResult newEmptyResult() {
+        final StorageResult result = new StorageResult();
+        result.externalStats = new StorageStatsSource.ExternalStorageStats(0 /* totalBytes */,
+                0 /* audioBytes */, 0 /* videoBytes */, 0 /* imageBytes */, 0 /* appBytes */);
+        return result;
+    }
+
+    private UserLoadResult loadForUser(int userId) {
+        final UserLoadResult userResult = getAppsAndGamesSize(userId);
+        final StorageResult result = userResult.result;
+        loadMediaSizes(userId, result);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(userId,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+        return userResult;
+    }
+
+    /**
+     * Fills the images, videos, audio and documents & other sizes of {@code result} with a single
+     * MediaStore query grouped by media type, instead of one {@code sum(size)} query per category.
+     */
+    private void loadMediaSizes(int userId, StorageResult result) {
+        final Context perUserContext = getPerUserContext(userId);
+        if (perUserContext == null) {
+            return;
+        }
+
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MIME_TYPE + " IS NOT NULL");
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY, FileColumns.MEDIA_TYPE);
+        try (Cursor cursor = perUserContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                new String[] {FileColumns.MEDIA_TYPE, "sum(" + MediaColumns.SIZE + ")"},
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                final long size = cursor.getLong(1);
+                switch (cursor.getInt(0)) {
+                    case FileColumns.MEDIA_TYPE_IMAGE:
+                        result.imagesSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_VIDEO:
+                        result.videosSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_AUDIO:
+                        result.audioSize += size;
+                        break;
+                    default:
+                        result.documentsAndOtherSize += size;
+                        break;
+                }
+            }
+        }
+    }
+
+    private Context getPerUserContext(int userId) {
         try {
-            perUserContext = getContext().createPackageContextAsUser(
+            return getContext().createPackageContextAsUser(
                 getContext().getApplicationContext().getPackageName(),
                 0 /* flags= */,
                 UserHandle.of(userId));
         } catch (NameNotFoundException e) {
             Log.e(TAG, "Not able to get Context for user ID " + userId);
+            return null;
+        }
+    }
+
+    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
+        final Context perUserContext = getPerUserContext(userId);
+        if (perUserContext == null) {
             return 0L;
         }
 
@@ -140,12 +234,17 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    private UserLoadResult getAppsAndGamesSize(int userId) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
+        final UserLoadResult userResult = new UserLoadResult(applicationInfos.size());
+        final StorageResult result = userResult.result;
         final UserHandle myUser = UserHandle.of(userId);
+        // Min-heap of the largest apps seen so far.
+        final PriorityQueue<StorageCacheHelper.AppSize> topApps = new PriorityQueue<>(
+                StorageCacheHelper.TOP_APPS_COUNT + 1,
+                (app, otherApp) -> Long.compare(app.size, otherApp.size));
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
 
@@ -172,10 +271,11 @@ public class StorageAsyncLoader
 
             // Code bytes may share between different profiles. To know all the duplicate code size
             // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
+            userResult.codeBytes.put(app.packageName, stats.getCodeBytes());
+
+            topApps.offer(new StorageCacheHelper.AppSize(app.packageName, blamedSize));
+            if (topApps.size() > StorageCacheHelper.TOP_APPS_COUNT) {
+                topApps.poll();
             }
 
             switch (app.category) {
@@ -198,6 +298,10 @@ public class StorageAsyncLoader
             }
         }
 
+        final List<StorageCacheHelper.AppSize> sortedTopApps = new ArrayList<>(topApps);
+        sortedTopApps.sort((app, otherApp) -> Long.compare(otherApp.size, app.size));
+        result.topApps = sortedTopApps;
+
         Log.d(TAG, "Loading external stats");
         try {
             result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
@@ -206,7 +310,7 @@ public class StorageAsyncLoader
             Log.w(TAG, e);
         }
         Log.d(TAG, "Obtaining result completed");
-        return result;
+        return userResult;
     }
 
     @Override
@@ -228,9 +332,21 @@ public class StorageAsyncLoader
 
         public long cacheSize;
         public long duplicateCodeSize;
+        // The largest apps in descending order of size.
+        public List<StorageCacheHelper.AppSize> topApps = Collections.emptyList();
         public StorageStatsSource.ExternalStorageStats externalStats;
     }
 
+    /** Per-user intermediate result, before cross-profile duplicate code is accounted for. */
+    private static class UserLoadResult {
+        final StorageResult result = new StorageResult();
+        final ArrayMap<String, Long> codeBytes;
+
+        UserLoadResult(int packageCount) {
+            codeBytes = new ArrayMap<>(packageCount);
+        }
+    }
+
     /**
      * ResultHandler defines a destination of data which can handle a result from
      * {@link StorageAsyncLoader}.
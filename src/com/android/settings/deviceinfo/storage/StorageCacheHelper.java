@@ -18,12 +18,55 @@ package com.android.settings.deviceinfo.storage;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A utility class to cache and restore the storage size information.
+ *
+ * <p>All the sizes of a user and volume are kept in one compact binary snapshot file, which is
+ * memory-mapped on first access and shared by every helper instance of the process afterwards.
+ * Updates are applied to the in-memory snapshot immediately and written atomically to disk on a
+ * background thread.
  */
 public class StorageCacheHelper {
 
+    private static final String TAG = "StorageCacheHelper";
+
+    /** Cached sizes older than this are considered stale. */
+    public static final long MAX_CACHE_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /** Maximum number of apps kept in the per-app size breakdown. */
+    public static final int TOP_APPS_COUNT = 10;
+
+    private static final String SNAPSHOT_DIR = "storage_cache";
+    private static final String INTERNAL_VOLUME_NAME = "internal";
+    private static final int SNAPSHOT_MAGIC = 0x53544f43; // "STOC"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Legacy SharedPreferences storage, only read to migrate existing caches.
     private static final String SHARED_PREFERENCE_NAME = "StorageCache";
     private static final String TOTAL_SIZE_KEY = "total_size_key";
     private static final String TOTAL_USED_SIZE_KEY = "total_used_size_key";
@@ -37,18 +80,52 @@ public class StorageCacheHelper {
     private static final String SYSTEM_SIZE_KEY = "system_size_key";
     private static final String USED_SIZE_KEY = "used_size_key";
 
-    private final SharedPreferences mSharedPreferences;
+    // Snapshots of the process keyed by snapshot file path.
+    private static final Map<String, Snapshot> sSnapshots = new ArrayMap<>();
+    private static final Object sWriteLock = new Object();
+
+    private final Context mContext;
+    private final int mUserId;
+    @Nullable
+    private final String mVolumeUuid;
+    private final boolean mIsInternalVolume;
+    private final File mSnapshotFile;
 
     public StorageCacheHelper(Context context, int userId) {
-        String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
-        mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        this(context, userId, null /* volumeUuid */);
+    }
+
+    /**
+     * @param volumeUuid the file system UUID of the volume, or {@code null} for the internal
+     *                   private volume.
+     */
+    public StorageCacheHelper(Context context, int userId, @Nullable String volumeUuid) {
+        mContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        mUserId = userId;
+        mVolumeUuid = volumeUuid;
+        mIsInternalVolume = volumeUuid == null;
+        final String volumeName = mIsInternalVolume ? INTERNAL_VOLUME_NAME : volumeUuid;
+        mSnapshotFile = new File(new File(mContext.getFilesDir(), SNAPSHOT_DIR),
+                userId + "_" + volumeName + ".bin");
+    }
+
+    /**
+     * Returns a helper for the sizes of the same user on the volume {@code volumeUuid}, this one
+     * if it is already for that volume.
+     */
+    public StorageCacheHelper forVolume(@Nullable String volumeUuid) {
+        return TextUtils.equals(volumeUuid, mVolumeUuid)
+                ? this : new StorageCacheHelper(mContext, mUserId, volumeUuid);
     }
 
     /**
      * Returns true if there's a cached size info.
      */
     public boolean hasCachedSizeInfo() {
-        return mSharedPreferences.getAll().size() > 0;
+        synchronized (sSnapshots) {
+            return !getSnapshotLocked().isEmpty();
+        }
     }
 
     /**
@@ -56,66 +133,249 @@ public class StorageCacheHelper {
      * @param data a data about the file size info.
      */
     public void cacheSizeInfo(StorageCache data) {
-        mSharedPreferences
-                .edit()
-                .putLong(IMAGES_SIZE_KEY, data.imagesSize)
-                .putLong(VIDEOS_SIZE_KEY, data.videosSize)
-                .putLong(AUDIO_SIZE_KEY, data.audioSize)
-                .putLong(APPS_SIZE_KEY, data.allAppsExceptGamesSize)
-                .putLong(GAMES_SIZE_KEY, data.gamesSize)
-                .putLong(DOCUMENTS_AND_OTHER_SIZE_KEY, data.documentsAndOtherSize)
-                .putLong(TRASH_SIZE_KEY, data.trashSize)
-                .putLong(SYSTEM_SIZE_KEY, data.systemSize)
-                .apply();
+        synchronized (sSnapshots) {
+            final StorageCache cache = getSnapshotLocked().cache;
+            cache.imagesSize = data.imagesSize;
+            cache.videosSize = data.videosSize;
+            cache.audioSize = data.audioSize;
+            cache.allAppsExceptGamesSize = data.allAppsExceptGamesSize;
+            cache.gamesSize = data.gamesSize;
+            cache.documentsAndOtherSize = data.documentsAndOtherSize;
+            cache.trashSize = data.trashSize;
+            cache.systemSize = data.systemSize;
+            cache.topApps = Collections.unmodifiableList(new ArrayList<>(data.topApps));
+        }
+        onSnapshotChanged();
     }
 
     /**
      * Cache total size and total used size
      */
     public void cacheTotalSizeAndTotalUsedSize(long totalSize, long totalUsedSize) {
-        mSharedPreferences
-                .edit()
-                .putLong(TOTAL_SIZE_KEY, totalSize)
-                .putLong(TOTAL_USED_SIZE_KEY, totalUsedSize)
-                .apply();
+        synchronized (sSnapshots) {
+            final StorageCache cache = getSnapshotLocked().cache;
+            cache.totalSize = totalSize;
+            cache.totalUsedSize = totalUsedSize;
+        }
+        onSnapshotChanged();
     }
 
     /**
      * Cache used size info when a user is treated as a secondary user.
      */
     public void cacheUsedSize(long usedSize) {
-        mSharedPreferences.edit().putLong(USED_SIZE_KEY, usedSize).apply();
+        synchronized (sSnapshots) {
+            getSnapshotLocked().usedSize = usedSize;
+        }
+        onSnapshotChanged();
     }
 
     /**
      * Returns used size for secondary user.
      */
     public long retrieveUsedSize() {
-        return mSharedPreferences.getLong(USED_SIZE_KEY, 0);
+        synchronized (sSnapshots) {
+            return getSnapshotLocked().usedSize;
+        }
     }
 
     /**
      * Returns a cached data about all file size information.
      */
     public StorageCache retrieveCachedSize() {
-        StorageCache result = new StorageCache();
-        result.totalSize = mSharedPreferences.getLong(TOTAL_SIZE_KEY, 0);
-        result.totalUsedSize = mSharedPreferences.getLong(TOTAL_USED_SIZE_KEY, 0);
-        result.imagesSize = mSharedPreferences.getLong(IMAGES_SIZE_KEY, 0);
-        result.videosSize = mSharedPreferences.getLong(VIDEOS_SIZE_KEY, 0);
-        result.audioSize = mSharedPreferences.getLong(AUDIO_SIZE_KEY, 0);
-        result.allAppsExceptGamesSize = mSharedPreferences.getLong(APPS_SIZE_KEY, 0);
-        result.gamesSize = mSharedPreferences.getLong(GAMES_SIZE_KEY, 0);
-        result.documentsAndOtherSize = mSharedPreferences.getLong(DOCUMENTS_AND_OTHER_SIZE_KEY, 0);
-        result.trashSize = mSharedPreferences.getLong(TRASH_SIZE_KEY, 0);
-        result.systemSize = mSharedPreferences.getLong(SYSTEM_SIZE_KEY, 0);
-        return result;
+        synchronized (sSnapshots) {
+            return getSnapshotLocked().cache.copy();
+        }
+    }
+
+    private void onSnapshotChanged() {
+        synchronized (sSnapshots) {
+            getSnapshotLocked().cache.lastUpdatedMillis = System.currentTimeMillis();
+        }
+        ThreadUtils.postOnBackgroundThread(this::writeSnapshot);
+    }
+
+    private void writeSnapshot() {
+        synchronized (sWriteLock) {
+            // Always serialize the latest state, so writes finishing out of order are harmless.
+            final byte[] data;
+            synchronized (sSnapshots) {
+                data = getSnapshotLocked().toBytes();
+            }
+            final File dir = mSnapshotFile.getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                Log.w(TAG, "Unable to create " + dir);
+                return;
+            }
+            final AtomicFile file = new AtomicFile(mSnapshotFile);
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(data);
+                file.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write " + mSnapshotFile, e);
+                file.failWrite(out);
+                return;
+            }
+            if (mIsInternalVolume) {
+                mContext.deleteSharedPreferences(SHARED_PREFERENCE_NAME + mUserId);
+            }
+        }
+    }
+
+    private Snapshot getSnapshotLocked() {
+        final String key = mSnapshotFile.getPath();
+        Snapshot snapshot = sSnapshots.get(key);
+        if (snapshot == null) {
+            snapshot = readSnapshot();
+            if (snapshot == null && mIsInternalVolume) {
+                snapshot = readLegacySnapshot();
+            }
+            if (snapshot == null) {
+                snapshot = new Snapshot();
+            }
+            sSnapshots.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Nullable
+    private Snapshot readSnapshot() {
+        if (!mSnapshotFile.exists()) {
+            return null;
+        }
+        // AtomicFile.openRead() restores a backup left behind by an interrupted write.
+        try (FileInputStream in = new AtomicFile(mSnapshotFile).openRead();
+             FileChannel channel = in.getChannel()) {
+            return Snapshot.fromBuffer(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Ignoring unreadable snapshot " + mSnapshotFile, e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private Snapshot readLegacySnapshot() {
+        final SharedPreferences prefs = mContext.getSharedPreferences(
+                SHARED_PREFERENCE_NAME + mUserId, Context.MODE_PRIVATE);
+        if (prefs.getAll().isEmpty()) {
+            return null;
+        }
+        final Snapshot snapshot = new Snapshot();
+        final StorageCache cache = snapshot.cache;
+        cache.totalSize = prefs.getLong(TOTAL_SIZE_KEY, 0);
+        cache.totalUsedSize = prefs.getLong(TOTAL_USED_SIZE_KEY, 0);
+        cache.imagesSize = prefs.getLong(IMAGES_SIZE_KEY, 0);
+        cache.videosSize = prefs.getLong(VIDEOS_SIZE_KEY, 0);
+        cache.audioSize = prefs.getLong(AUDIO_SIZE_KEY, 0);
+        cache.allAppsExceptGamesSize = prefs.getLong(APPS_SIZE_KEY, 0);
+        cache.gamesSize = prefs.getLong(GAMES_SIZE_KEY, 0);
+        cache.documentsAndOtherSize = prefs.getLong(DOCUMENTS_AND_OTHER_SIZE_KEY, 0);
+        cache.trashSize = prefs.getLong(TRASH_SIZE_KEY, 0);
+        cache.systemSize = prefs.getLong(SYSTEM_SIZE_KEY, 0);
+        snapshot.usedSize = prefs.getLong(USED_SIZE_KEY, 0);
+        // Legacy caches have no timestamp, treat them as stale.
+        cache.lastUpdatedMillis = 0;
+        return snapshot;
+    }
+
+    @VisibleForTesting
+    static void clearInMemorySnapshots() {
+        synchronized (sSnapshots) {
+            sSnapshots.clear();
+        }
+    }
+
+    /** The in-memory form of a snapshot file. */
+    private static class Snapshot {
+        final StorageCache cache = new StorageCache();
+        long usedSize;
+
+        boolean isEmpty() {
+            return cache.lastUpdatedMillis == StorageCache.NEVER_UPDATED;
+        }
+
+        byte[] toBytes() {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(cache.lastUpdatedMillis);
+                out.writeLong(cache.totalSize);
+                out.writeLong(cache.totalUsedSize);
+                out.writeLong(cache.imagesSize);
+                out.writeLong(cache.videosSize);
+                out.writeLong(cache.audioSize);
+                out.writeLong(cache.allAppsExceptGamesSize);
+                out.writeLong(cache.gamesSize);
+                out.writeLong(cache.documentsAndOtherSize);
+                out.writeLong(cache.trashSize);
+                out.writeLong(cache.systemSize);
+                out.writeLong(usedSize);
+                out.writeInt(cache.topApps.size());
+                for (AppSize app : cache.topApps) {
+                    final byte[] name = app.packageName.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeLong(app.size);
+                }
+            } catch (IOException e) {
+                // Not expected when writing to memory.
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        static Snapshot fromBuffer(ByteBuffer buffer) throws IOException {
+            try {
+                if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Bad magic");
+                }
+                final int version = buffer.getInt();
+                if (version != SNAPSHOT_VERSION) {
+                    throw new IOException("Unsupported version " + version);
+                }
+                final Snapshot snapshot = new Snapshot();
+                final StorageCache cache = snapshot.cache;
+                cache.lastUpdatedMillis = buffer.getLong();
+                cache.totalSize = buffer.getLong();
+                cache.totalUsedSize = buffer.getLong();
+                cache.imagesSize = buffer.getLong();
+                cache.videosSize = buffer.getLong();
+                cache.audioSize = buffer.getLong();
+                cache.allAppsExceptGamesSize = buffer.getLong();
+                cache.gamesSize = buffer.getLong();
+                cache.documentsAndOtherSize = buffer.getLong();
+                cache.trashSize = buffer.getLong();
+                cache.systemSize = buffer.getLong();
+                snapshot.usedSize = buffer.getLong();
+                final int appCount = buffer.getInt();
+                if (appCount < 0 || appCount > TOP_APPS_COUNT) {
+                    throw new IOException("Bad app count " + appCount);
+                }
+                final List<AppSize> topApps = new ArrayList<>(appCount);
+                for (int i = 0; i < appCount; i++) {
+                    final byte[] name = new byte[buffer.getInt()];
+                    buffer.get(name);
+                    topApps.add(new AppSize(new String(name, StandardCharsets.UTF_8),
+                            buffer.getLong()));
+                }
+                cache.topApps = Collections.unmodifiableList(topApps);
+                return snapshot;
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException("Truncated snapshot", e);
+            }
+        }
     }
 
     /**
      *  All the cached data about the file size information.
      */
     public static class StorageCache {
+        static final long NEVER_UPDATED = -1;
+
         public long totalSize;
         public long totalUsedSize;
         public long gamesSize;
@@ -126,5 +386,42 @@ public class StorageCacheHelper {
         public long documentsAndOtherSize;
         public long trashSize;
         public long systemSize;
+        /** The largest apps in descending order of size, at most {@link #TOP_APPS_COUNT}. */
+        public List<AppSize> topApps = Collections.emptyList();
+        /** Wall clock time of the last update, or {@link #NEVER_UPDATED}. */
+        public long lastUpdatedMillis = NEVER_UPDATED;
+
+        /** Returns true if the data is older than {@link #MAX_CACHE_AGE_MILLIS}. */
+        public boolean isStale() {
+            return System.currentTimeMillis() - lastUpdatedMillis > MAX_CACHE_AGE_MILLIS;
+        }
+
+        StorageCache copy() {
+            final StorageCache copy = new StorageCache();
+            copy.totalSize = totalSize;
+            copy.totalUsedSize = totalUsedSize;
+            copy.gamesSize = gamesSize;
+            copy.allAppsExceptGamesSize = allAppsExceptGamesSize;
+            copy.audioSize = audioSize;
+            copy.imagesSize = imagesSize;
+            copy.videosSize = videosSize;
+            copy.documentsAndOtherSize = documentsAndOtherSize;
+            copy.trashSize = trashSize;
+            copy.systemSize = systemSize;
+            copy.topApps = topApps;
+            copy.lastUpdatedMillis = lastUpdatedMillis;
+            return copy;
+        }
+    }
+
+    /** The size attributed to a single app. */
+    public static class AppSize {
+        public final String packageName;
+        public final long size;
+
+        public AppSize(String packageName, long size) {
+            this.packageName = packageName;
+            this.size = size;
+        }
     }
 }
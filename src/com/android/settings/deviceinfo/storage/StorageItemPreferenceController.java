@@ -141,6 +141,7 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
     // the Document entry.
     private boolean mIsDocumentsPrefShown;
     private boolean mIsPreferenceOrderedBySize;
+    private boolean mIsOrderedByStaleCache;
 
     public StorageItemPreferenceController(Context context, Fragment hostFragment,
             VolumeInfo volume, StorageVolumeProvider svp, boolean isWorkProfile) {
@@ -154,7 +155,8 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
         mUserId = getCurrentUserId();
         mIsDocumentsPrefShown = isDocumentsPrefShown();
-        mStorageCacheHelper = new StorageCacheHelper(mContext, mUserId);
+        mStorageCacheHelper = new StorageCacheHelper(mContext, mUserId,
+                volume != null ? volume.getFsUuid() : null);
 
         mImagesUri = Uri.parse(context.getResources()
                 .getString(R.string.config_images_storage_category_uri));
@@ -227,6 +229,10 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
      */
     public void setVolume(VolumeInfo volume) {
         mVolume = volume;
+        // A null volume only hides the categories, keep the sizes of the last one.
+        if (volume != null) {
+            mStorageCacheHelper = mStorageCacheHelper.forVolume(volume.getFsUuid());
+        }
 
         if (mPublicStoragePreference != null) {
             mPublicStoragePreference.setVisible(isValidPublicVolume() && !mIsWorkProfile);
@@ -382,7 +388,8 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
             int userId) {
         // Enable animation when the storage size info is from StorageAsyncLoader whereas disable
         // animation when the cached storage size info is used instead.
-        boolean animate = result != null && mIsPreferenceOrderedBySize;
+        final boolean fromCache = result == null;
+        boolean animate = !fromCache && mIsPreferenceOrderedBySize;
         // Calculate the size info for each category
         StorageCacheHelper.StorageCache storageCache = getSizeInfo(result, userId);
         // Set size info to each preference
@@ -402,10 +409,12 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
             mStorageCacheHelper.cacheSizeInfo(storageCache);
         }
 
-        // Sort the preference according to size info in descending order
-        if (!mIsPreferenceOrderedBySize) {
+        // Sort the preference according to size info in descending order. An order taken from a
+        // stale cache is refreshed once the fresh size info arrives.
+        if (!mIsPreferenceOrderedBySize || (!fromCache && mIsOrderedByStaleCache)) {
             updatePrivateStorageCategoryPreferencesOrder();
             mIsPreferenceOrderedBySize = true;
+            mIsOrderedByStaleCache = fromCache && storageCache.isStale();
         }
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
@@ -424,6 +433,7 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         storageCache.gamesSize = data.gamesSize;
         storageCache.documentsAndOtherSize = data.documentsAndOtherSize;
         storageCache.trashSize = data.trashSize;
+        storageCache.topApps = data.topApps;
         // Everything else that hasn't already been attributed is tracked as
         // belonging to system.
         long attributedSize = 0;
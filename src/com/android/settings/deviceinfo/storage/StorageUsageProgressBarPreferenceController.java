@@ -60,6 +60,9 @@ public class StorageUsageProgressBarPreferenceController extends BasePreferenceC
     /** Set StorageEntry to display. */
     public void setSelectedStorageEntry(StorageEntry storageEntry) {
         mStorageEntry = storageEntry;
+        if (storageEntry != null) {
+            mStorageCacheHelper = mStorageCacheHelper.forVolume(storageEntry.getFsUuid());
+        }
         getStorageStatsAndUpdateUi();
     }
 
@@ -18,12 +18,15 @@ package com.android.settings.deviceinfo.storage;
 
 import android.content.Context;
 import android.content.pm.UserInfo;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.UserManager;
 import android.util.SparseArray;
 
 import com.android.internal.util.Preconditions;
 import com.android.settings.Utils;
+import com.android.settings.users.UserAvatarCache;
+import com.android.settingslib.drawable.UserIconDrawable;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 /**
@@ -61,13 +64,22 @@ public class UserIconLoader extends AsyncLoaderCompat<SparseArray<Drawable>> {
 
     /**
      * Loads the user icons using a given context. This returns a {@link SparseArray} which maps
-     * user ids to their user icons.
+     * user ids to their user icons. Avatars come from the shared {@link UserAvatarCache}, managed
+     * profiles keep their badge icon.
      */
     public static SparseArray<Drawable> loadUserIconsWithContext(Context context) {
         SparseArray<Drawable> value = new SparseArray<>();
         UserManager um = context.getSystemService(UserManager.class);
+        UserAvatarCache avatarCache = UserAvatarCache.getInstance();
+        int iconSize = UserIconDrawable.getDefaultSize(context);
         for (UserInfo userInfo : um.getUsers()) {
-            value.put(userInfo.id, Utils.getUserIcon(context, um, userInfo));
+            if (userInfo.isManagedProfile()) {
+                value.put(userInfo.id, Utils.getUserIcon(context, um, userInfo));
+            } else {
+                value.put(userInfo.id, new BitmapDrawable(context.getResources(),
+                        avatarCache.loadUserAvatar(context.getResources(), um, userInfo.id,
+                                iconSize)));
+            }
         }
         return value;
     }
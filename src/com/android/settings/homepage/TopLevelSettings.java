@@ -43,6 +43,7 @@ import com.android.settings.Utils;
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.core.instrumentation.StartupTracer;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.search.BaseSearchIndexProvider;
@@ -99,7 +100,11 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
 
     @Override
     public void onAttach(Context context) {
-        super.onAttach(context);
+        // Preference controllers of the homepage are created in DashboardFragment#onAttach.
+        try (StartupTracer.Span span =
+                     StartupTracer.getInstance().begin("TopLevelSettings#onAttach")) {
+            super.onAttach(context);
+        }
         HighlightableMenu.fromXml(context, getPreferenceScreenResId());
         use(SupportPreferenceController.class).setActivity(getActivity());
     }
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.text.TextUtils;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
 import com.android.settings.overlay.FeatureFactory;
@@ -29,25 +30,53 @@ import com.android.settingslib.location.InjectedSetting;
 import com.android.settingslib.location.SettingsInjector;
 import com.android.settingslib.widget.AppPreference;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Adds the preferences specified by the {@link InjectedSetting} objects to a preference group.
+ *
+ * <p>The status of the settings is loaded by {@link InjectedSettingStatusLoader} rather than one
+ * setting at a time by {@link SettingsInjector}.
  */
 public class AppSettingsInjector extends SettingsInjector {
 
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final int mMetricsCategory;
+    @VisibleForTesting
+    final InjectedSettingStatusLoader mStatusLoader;
 
     public AppSettingsInjector(Context context, int metricsCategory) {
         super(context);
         mMetricsCategory = metricsCategory;
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
+        mStatusLoader = new InjectedSettingStatusLoader(context);
+    }
+
+    @Override
+    public Map<Integer, List<Preference>> getInjectedSettings(Context prefContext,
+            int profileId) {
+        mStatusLoader.clear();
+        final Map<Integer, List<Preference>> settings =
+                super.getInjectedSettings(prefContext, profileId);
+        // Replaces the loading summary set by SettingsInjector, the new status is already being
+        // loaded.
+        mStatusLoader.showLastStatus();
+        return settings;
     }
 
     @Override
     protected Preference createPreference(Context prefContext, InjectedSetting setting) {
-        return TextUtils.isEmpty(setting.userRestriction)
+        final Preference preference = TextUtils.isEmpty(setting.userRestriction)
                 ? new AppPreference(prefContext)
                 : new RestrictedAppPreference(prefContext, setting.userRestriction);
+        mStatusLoader.add(setting, preference);
+        return preference;
+    }
+
+    @Override
+    public void reloadStatusMessages() {
+        mStatusLoader.reload();
     }
 
     @Override
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.location;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.SettingInjectorService;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+
+import com.android.settings.widget.RestrictedAppPreference;
+import com.android.settingslib.location.InjectedSetting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the status of the injected location settings of {@link AppSettingsInjector}.
+ *
+ * <p>All the services are asked at once, each with its own deadline, so that a slow app only
+ * delays its own setting rather than every setting after it. The last status of each setting is
+ * kept for the lifetime of the process and shown while the new one loads.
+ *
+ * <p>Must be used on the main thread.
+ */
+class InjectedSettingStatusLoader {
+
+    private static final String TAG = "InjectedStatusLoader";
+
+    @VisibleForTesting
+    static final long STATUS_TIMEOUT_MS = 1000;
+    // Services answering slower than this are reported.
+    @VisibleForTesting
+    static final long SLOW_STATUS_MS = 300;
+
+    // Keyed by user id, package and class of the service.
+    private static final ArrayMap<String, Status> sLastStatus = new ArrayMap<>();
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final List<Entry> mEntries = new ArrayList<>();
+    private int mGeneration;
+
+    InjectedSettingStatusLoader(Context context) {
+        mContext = context;
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /** Adds a setting whose status is loaded into {@code preference}. */
+    void add(InjectedSetting setting, Preference preference) {
+        mEntries.add(new Entry(setting, preference));
+    }
+
+    /** Forgets the settings added so far and drops the statuses being loaded for them. */
+    void clear() {
+        cancel();
+        mEntries.clear();
+    }
+
+    /** Shows the last known status of each setting, if there is one. */
+    void showLastStatus() {
+        for (int i = 0; i < mEntries.size(); i++) {
+            final Entry entry = mEntries.get(i);
+            final Status status = sLastStatus.get(entry.mKey);
+            if (status != null && status.mSummary != null) {
+                entry.apply(status);
+            }
+        }
+    }
+
+    /** Asks the service of each setting for its status. */
+    void reload() {
+        cancel();
+        final int generation = mGeneration;
+        for (int i = 0; i < mEntries.size(); i++) {
+            mEntries.get(i).start(generation);
+        }
+    }
+
+    /** Drops the statuses being loaded. */
+    void cancel() {
+        mGeneration++;
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    @VisibleForTesting
+    static Status getLastStatus(InjectedSetting setting) {
+        return sLastStatus.get(keyOf(setting));
+    }
+
+    @VisibleForTesting
+    static void clearLastStatus() {
+        sLastStatus.clear();
+    }
+
+    private static String keyOf(InjectedSetting setting) {
+        return setting.mUserHandle.getIdentifier() + "/" + setting.packageName + "/"
+                + setting.className;
+    }
+
+    /** The last status of a setting, and how its service has been answering. */
+    static class Status {
+        String mSummary;
+        boolean mEnabled = true;
+        long mLastLoadMs;
+        int mSlowCount;
+        int mTimeoutCount;
+    }
+
+    private class Entry {
+        final InjectedSetting mSetting;
+        final Preference mPreference;
+        final String mKey;
+        final Runnable mTimeout = this::onTimeout;
+        long mStartTime;
+
+        Entry(InjectedSetting setting, Preference preference) {
+            mSetting = setting;
+            mPreference = preference;
+            mKey = keyOf(setting);
+        }
+
+        void start(int generation) {
+            mStartTime = SystemClock.elapsedRealtime();
+            final Handler replyHandler = new Handler(mHandler.getLooper()) {
+                @Override
+                public void handleMessage(Message msg) {
+                    onStatus(generation, msg.getData());
+                }
+            };
+            final Intent intent = new Intent()
+                    .setClassName(mSetting.packageName, mSetting.className)
+                    .putExtra(SettingInjectorService.MESSENGER_KEY, new Messenger(replyHandler));
+            try {
+                mContext.startServiceAsUser(intent, mSetting.mUserHandle);
+            } catch (SecurityException | IllegalStateException e) {
+                Log.w(TAG, "Failed to start " + mKey, e);
+                return;
+            }
+            mHandler.postDelayed(mTimeout, STATUS_TIMEOUT_MS);
+        }
+
+        void onStatus(int generation, Bundle data) {
+            final long elapsed = SystemClock.elapsedRealtime() - mStartTime;
+            final Status status = getOrCreateStatus();
+            status.mSummary = data.getString(SettingInjectorService.SUMMARY_KEY);
+            status.mEnabled = data.getBoolean(SettingInjectorService.ENABLED_KEY, true);
+            // A late answer is still remembered for the next time the page is shown.
+            if (generation != mGeneration) {
+                return;
+            }
+            mHandler.removeCallbacks(mTimeout);
+            status.mLastLoadMs = elapsed;
+            if (elapsed > SLOW_STATUS_MS) {
+                status.mSlowCount++;
+                Log.w(TAG, mKey + " took " + elapsed + "ms to load its status, slow "
+                        + status.mSlowCount + " times");
+            }
+            apply(status);
+        }
+
+        void onTimeout() {
+            final Status status = getOrCreateStatus();
+            status.mTimeoutCount++;
+            Log.w(TAG, mKey + " didn't load its status in " + STATUS_TIMEOUT_MS
+                    + "ms, timed out " + status.mTimeoutCount + " times");
+        }
+
+        void apply(Status status) {
+            mPreference.setSummary(status.mSummary);
+            if (!(mPreference instanceof RestrictedAppPreference)
+                    || !((RestrictedAppPreference) mPreference).isDisabledByAdmin()) {
+                mPreference.setEnabled(status.mEnabled);
+            }
+        }
+
+        private Status getOrCreateStatus() {
+            Status status = sLastStatus.get(mKey);
+            if (status == null) {
+                status = new Status();
+                sLastStatus.put(mKey, status);
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.location;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.RecentAppOpsAccess;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the recent location accesses shown by {@link RecentLocationAccessPreferenceController}
+ * and {@link RecentLocationAccessSeeAllPreferenceController}, so that going back and forth
+ * between the location pages doesn't query the app ops of every package each time.
+ *
+ * <p>The accesses are loaded and sorted by recency once, in the background, then kept for
+ * {@link #MAX_AGE_MS} or until the location mode changes. The pages only filter the snapshot.
+ *
+ * <p>Must be used on the main thread.
+ */
+class RecentLocationAccessCache {
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = 15 * DateUtils.SECOND_IN_MILLIS;
+
+    private static final int MODE_UNKNOWN = -1;
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static RecentLocationAccessCache sInstance;
+
+    private final RecentAppOpsAccess mRecentLocationApps;
+    // Indexed by whether the accesses of system apps are included.
+    private final Snapshot[] mSnapshots = {new Snapshot(), new Snapshot()};
+    private int mLocationMode = MODE_UNKNOWN;
+
+    /** Returns the cache shared by the location pages. */
+    static RecentLocationAccessCache getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                sInstance = new RecentLocationAccessCache(RecentAppOpsAccess.createForLocation(
+                        context.getApplicationContext()));
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    RecentLocationAccessCache(RecentAppOpsAccess recentLocationApps) {
+        mRecentLocationApps = recentLocationApps;
+    }
+
+    /**
+     * Gives the recent location accesses, most recent first, to {@code callback}. This is done
+     * right away if they were loaded recently, on the main thread once loaded otherwise.
+     */
+    @MainThread
+    void load(boolean showSystem, Consumer<List<RecentAppOpsAccess.Access>> callback) {
+        final Snapshot snapshot = mSnapshots[showSystem ? 1 : 0];
+        if (snapshot.mAccesses != null
+                && SystemClock.elapsedRealtime() - snapshot.mLoadedTime < MAX_AGE_MS) {
+            callback.accept(snapshot.mAccesses);
+            return;
+        }
+        snapshot.mCallbacks.add(callback);
+        if (snapshot.mCallbacks.size() > 1) {
+            // Already loading.
+            return;
+        }
+        final int generation = snapshot.mGeneration;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<RecentAppOpsAccess.Access> accesses = Collections.unmodifiableList(
+                    new ArrayList<>(mRecentLocationApps.getAppListSorted(showSystem)));
+            ThreadUtils.postOnMainThread(() -> onLoaded(snapshot, generation, accesses));
+        });
+    }
+
+    private void onLoaded(Snapshot snapshot, int generation,
+            List<RecentAppOpsAccess.Access> accesses) {
+        // Accesses loaded before an invalidation are still better than nothing for the pages
+        // waiting for them, but aren't kept.
+        if (generation == snapshot.mGeneration) {
+            snapshot.mAccesses = accesses;
+            snapshot.mLoadedTime = SystemClock.elapsedRealtime();
+        }
+        final List<Consumer<List<RecentAppOpsAccess.Access>>> callbacks =
+                new ArrayList<>(snapshot.mCallbacks);
+        snapshot.mCallbacks.clear();
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).accept(accesses);
+        }
+    }
+
+    /** Drops the accesses if the location mode is not the one they were loaded with. */
+    @MainThread
+    void onLocationModeChanged(int mode) {
+        if (mLocationMode != MODE_UNKNOWN && mLocationMode != mode) {
+            invalidate();
+        }
+        mLocationMode = mode;
+    }
+
+    /** Drops the accesses, so that the next load queries them again. */
+    @MainThread
+    void invalidate() {
+        for (Snapshot snapshot : mSnapshots) {
+            snapshot.mAccesses = null;
+            snapshot.mGeneration++;
+        }
+    }
+
+    private static class Snapshot {
+        List<RecentAppOpsAccess.Access> mAccesses;
+        long mLoadedTime;
+        int mGeneration;
+        final List<Consumer<List<RecentAppOpsAccess.Access>>> mCallbacks = new ArrayList<>();
+    }
+}
@@ -45,11 +45,12 @@ import java.util.List;
 public class RecentLocationAccessPreferenceController extends LocationBasePreferenceController {
     public static final int MAX_APPS = 3;
     @VisibleForTesting
-    RecentAppOpsAccess mRecentLocationApps;
+    final RecentLocationAccessCache mAccessCache;
     private PreferenceCategory mCategoryRecentLocationRequests;
     private int mType = ProfileSelectFragment.ProfileType.ALL;
     private boolean mShowSystem = false;
     private boolean mSystemSettingChanged = false;
+    private int mLoadGeneration;
 
     private static class PackageEntryClickedListener implements
             Preference.OnPreferenceClickListener {
@@ -66,6 +67,8 @@ public class RecentLocationAccessPreferenceController extends LocationBasePrefer
 
         @Override
         public boolean onPreferenceClick(Preference preference) {
+            // The permission of the app may be changed there.
+            RecentLocationAccessCache.getInstance(mContext).invalidate();
             final Intent intent = new Intent(Intent.ACTION_MANAGE_APP_PERMISSION);
             intent.putExtra(Intent.EXTRA_PERMISSION_GROUP_NAME, LOCATION);
             intent.putExtra(Intent.EXTRA_PACKAGE_NAME, mPackage);
@@ -76,14 +79,19 @@ public class RecentLocationAccessPreferenceController extends LocationBasePrefer
     }
 
     public RecentLocationAccessPreferenceController(Context context, String key) {
-        this(context, key, RecentAppOpsAccess.createForLocation(context));
+        this(context, key, RecentLocationAccessCache.getInstance(context));
     }
 
     @VisibleForTesting
     public RecentLocationAccessPreferenceController(Context context, String key,
             RecentAppOpsAccess recentLocationApps) {
+        this(context, key, new RecentLocationAccessCache(recentLocationApps));
+    }
+
+    private RecentLocationAccessPreferenceController(Context context, String key,
+            RecentLocationAccessCache accessCache) {
         super(context, key);
-        mRecentLocationApps = recentLocationApps;
+        mAccessCache = accessCache;
         mShowSystem = DeviceConfig.getBoolean(DeviceConfig.NAMESPACE_PRIVACY,
                 SystemUiDeviceConfigFlags.PROPERTY_LOCATION_INDICATORS_SMALL_ENABLED, false)
                 ? Settings.Secure.getInt(mContext.getContentResolver(),
@@ -109,11 +117,21 @@ public class RecentLocationAccessPreferenceController extends LocationBasePrefer
     }
 
     private void loadRecentAccesses() {
+        final int generation = ++mLoadGeneration;
+        mAccessCache.load(mShowSystem, accesses -> {
+            // Drop the accesses of a previous load, e.g. before showing system accesses.
+            if (generation == mLoadGeneration) {
+                showRecentAccesses(accesses);
+            }
+        });
+    }
+
+    private void showRecentAccesses(List<RecentAppOpsAccess.Access> accesses) {
         mCategoryRecentLocationRequests.removeAll();
         final Context prefContext = mCategoryRecentLocationRequests.getContext();
         final List<RecentAppOpsAccess.Access> recentLocationAccesses = new ArrayList<>();
         final UserManager userManager = UserManager.get(mContext);
-        for (RecentAppOpsAccess.Access access : mRecentLocationApps.getAppListSorted(mShowSystem)) {
+        for (RecentAppOpsAccess.Access access : accesses) {
             if (isRequestMatchesProfileType(userManager, access, mType)) {
                 recentLocationAccesses.add(access);
                 if (recentLocationAccesses.size() == MAX_APPS) {
@@ -139,6 +157,7 @@ public class RecentLocationAccessPreferenceController extends LocationBasePrefer
 
     @Override
     public void onLocationModeChanged(int mode, boolean restricted) {
+        mAccessCache.onLocationModeChanged(mode);
         boolean enabled = mLocationEnabler.isEnabled(mode);
         mCategoryRecentLocationRequests.setVisible(enabled);
     }
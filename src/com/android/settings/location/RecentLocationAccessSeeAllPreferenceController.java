@@ -41,12 +41,13 @@ import java.util.List;
 public class RecentLocationAccessSeeAllPreferenceController
         extends LocationBasePreferenceController {
 
-    private final RecentAppOpsAccess mRecentLocationAccesses;
+    private final RecentLocationAccessCache mAccessCache;
 
     private PreferenceScreen mCategoryAllRecentLocationAccess;
     private MetricsFeatureProvider mMetricsFeatureProvider;
     private boolean mShowSystem = false;
     private Preference mPreference;
+    private int mLoadGeneration;
 
     public RecentLocationAccessSeeAllPreferenceController(Context context, String key) {
         super(context, key);
@@ -56,12 +57,13 @@ public class RecentLocationAccessSeeAllPreferenceController
             Settings.Secure.LOCATION_SHOW_SYSTEM_OPS, 0) == 1
             : false;
 
-        mRecentLocationAccesses = RecentAppOpsAccess.createForLocation(context);
+        mAccessCache = RecentLocationAccessCache.getInstance(context);
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
     }
 
     @Override
     public void onLocationModeChanged(int mode, boolean restricted) {
+        mAccessCache.onLocationModeChanged(mode);
         mCategoryAllRecentLocationAccess.setEnabled(mLocationEnabler.isEnabled(mode));
     }
 
@@ -73,14 +75,22 @@ public class RecentLocationAccessSeeAllPreferenceController
 
     @Override
     public void updateState(Preference preference) {
-        mCategoryAllRecentLocationAccess.removeAll();
         mPreference = preference;
+        final int generation = ++mLoadGeneration;
+        mAccessCache.load(mShowSystem, accesses -> {
+            if (generation == mLoadGeneration) {
+                showRecentAccesses(preference, accesses);
+            }
+        });
+    }
 
+    private void showRecentAccesses(Preference preference,
+            List<RecentAppOpsAccess.Access> accesses) {
+        mCategoryAllRecentLocationAccess.removeAll();
         final UserManager userManager = UserManager.get(mContext);
 
         final List<RecentAppOpsAccess.Access> recentLocationAccesses = new ArrayList<>();
-        for (RecentAppOpsAccess.Access access : mRecentLocationAccesses.getAppListSorted(
-                mShowSystem)) {
+        for (RecentAppOpsAccess.Access access : accesses) {
             if (isRequestMatchesProfileType(
                     userManager, access, ProfileSelectFragment.ProfileType.ALL)) {
                 recentLocationAccesses.add(access);
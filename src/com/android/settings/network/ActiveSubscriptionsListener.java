@@ -143,6 +143,7 @@ public abstract class ActiveSubscriptionsListener
     public void onSubscriptionsChanged() {
         // clear value in cache
         clearCache();
+        SubscriptionSnapshotCache.invalidateActiveSnapshot();
         listenerNotify();
     }
 
@@ -27,15 +27,23 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.PersistableBundle;
+import android.os.SystemClock;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
+import android.util.ArraySet;
+import android.util.IndentingPrintWriter;
 import android.util.Log;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
@@ -62,9 +70,32 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static final Map<Integer, PersistableBundle> sCarrierConfigs =
             new ConcurrentHashMap<>();
+    /**
+     * Manages mapping data from the subscription ID and a set of keys to the
+     * {@link PersistableBundle} object holding only those keys of the Carrier-Configuration.
+     */
+    private static final Map<Integer, Map<Set<String>, PersistableBundle>> sCarrierConfigSubsets =
+            new ConcurrentHashMap<>();
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    /**
+     * Per subscription ID locks, so that concurrent callers of the same subscription share a
+     * single load while loads of different subscriptions run in parallel.
+     */
+    private static final Map<Integer, Object> sLoadLocks = new ConcurrentHashMap<>();
+    /**
+     * Incremented on every invalidation, so that a load which raced with an invalidation does
+     * not cache an outdated config.
+     */
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    private static final AtomicLong sHitCount = new AtomicLong();
+    private static final AtomicLong sMissCount = new AtomicLong();
+    private static final AtomicLong sLoadFailureCount = new AtomicLong();
+    private static final AtomicLong sTotalLoadLatencyMs = new AtomicLong();
+    private static final AtomicLong sMaxLoadLatencyMs = new AtomicLong();
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -140,16 +171,58 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
+        return getOrLoad(sCarrierConfigs, subId, subId,
+                () -> sCarrierConfigManager.getConfigForSubId(subId));
+    }
+
+    /**
+     * Gets the given keys of the Carrier-Configuration for a particular subscription, for callers
+     * which only read a few keys. Only those keys are loaded and kept, separately for each set of
+     * keys.
+     *
+     * @param subId the subscription ID, normally obtained from {@link SubscriptionManager}.
+     * @param keys the config keys the caller reads.
+     * @return A {@link PersistableBundle} containing the requested keys of the config for the
+     * given subId, or default values for an invalid subId.
+     */
+    public PersistableBundle getConfigForSubId(int subId, @NonNull String... keys) {
+        if (sCarrierConfigManager == null) return null;
+
+        final Map<Set<String>, PersistableBundle> subsets =
+                sCarrierConfigSubsets.computeIfAbsent(subId, key -> new ConcurrentHashMap<>());
+        return getOrLoad(subsets, new ArraySet<>(Arrays.asList(keys)), subId,
+                () -> sCarrierConfigManager.getConfigForSubId(subId, keys));
+    }
+
+    private static <K> PersistableBundle getOrLoad(Map<K, PersistableBundle> configs, K key,
+            int subId, Supplier<PersistableBundle> loader) {
+        PersistableBundle config = configs.get(key);
+        if (config != null) {
+            sHitCount.incrementAndGet();
+            return config;
+        }
+        synchronized (sLoadLocks.computeIfAbsent(subId, id -> new Object())) {
+            // Another caller may have loaded it while we were waiting.
+            config = configs.get(key);
+            if (config != null) {
+                sHitCount.incrementAndGet();
+                return config;
             }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+            sMissCount.incrementAndGet();
+            final int generation = sGeneration.get();
+            final long startTime = SystemClock.elapsedRealtime();
+            config = loader.get();
+            final long latency = SystemClock.elapsedRealtime() - startTime;
+            sTotalLoadLatencyMs.addAndGet(latency);
+            sMaxLoadLatencyMs.accumulateAndGet(latency, Math::max);
             if (config == null) {
+                sLoadFailureCount.incrementAndGet();
                 Log.e(TAG, "Could not get carrier config, subId:" + subId);
                 return null;
             }
-            sCarrierConfigs.put(subId, config);
+            if (generation == sGeneration.get()) {
+                configs.put(key, config);
+            }
             return config;
         }
     }
@@ -165,18 +238,37 @@ public class CarrierConfigCache {
         return getConfigForSubId(SubscriptionManager.getDefaultSubscriptionId());
     }
 
+    /**
+     * Dumps the cache statistics.
+     */
+    public void dump(IndentingPrintWriter printwriter) {
+        final long missCount = sMissCount.get();
+        printwriter.println(TAG + ": ");
+        printwriter.increaseIndent();
+        printwriter.println("cached subIds: " + sCarrierConfigs.keySet());
+        printwriter.println("subIds with cached key subsets: " + sCarrierConfigSubsets.keySet());
+        printwriter.println("hits: " + sHitCount.get());
+        printwriter.println("misses: " + missCount);
+        printwriter.println("load failures: " + sLoadFailureCount.get());
+        printwriter.println("avg load latency ms: "
+                + (missCount == 0 ? 0 : sTotalLoadLatencyMs.get() / missCount));
+        printwriter.println("max load latency ms: " + sMaxLoadLatencyMs.get());
+        printwriter.decreaseIndent();
+    }
+
     private static class CarrierConfigChangeReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
             final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
-                }
+            sGeneration.incrementAndGet();
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sCarrierConfigs.remove(subId);
+                sCarrierConfigSubsets.remove(subId);
+            } else {
+                sCarrierConfigs.clear();
+                sCarrierConfigSubsets.clear();
             }
         }
     }
@@ -41,6 +41,13 @@ public class MobileNetworkListFragment extends DashboardFragment {
     static final String KEY_PREFERENCE_CATEGORY_SIM = "provider_model_sim_category";
     private static final String KEY_ADD_SIM = "add_sim";
 
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        getSettingsLifecycle().addObserver(
+                SubscriptionSnapshotCache.getInstance(context).createScope());
+    }
+
     @Override
     public void onResume() {
         super.onResume();
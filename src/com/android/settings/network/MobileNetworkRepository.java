@@ -57,7 +57,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
@@ -66,7 +65,8 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private static final String TAG = "MobileNetworkRepository";
     private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
-    private static ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final MobileNetworkUpdateScheduler sScheduler =
+            new MobileNetworkUpdateScheduler(Executors.newSingleThreadExecutor());
     private static Map<Integer, SubscriptionInfoEntity> sCacheSubscriptionInfoEntityMap =
             new ArrayMap<>();
     private static Map<Integer, MobileNetworkInfoEntity> sCacheMobileNetworkInfoEntityMap =
@@ -102,6 +102,9 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private Map<Integer, SubscriptionInfo> mSubscriptionInfoMap = new ArrayMap<>();
     private Map<Integer, TelephonyManager> mTelephonyManagerMap = new HashMap<>();
     private Map<Integer, PhoneCallStateTelephonyCallback> mTelephonyCallbackMap = new HashMap<>();
+    // Database writes of the running refresh, committed in a single transaction at its end.
+    // Only accessed on the scheduler thread.
+    private List<Runnable> mPendingDatabaseWrites;
 
     @NonNull
     public static MobileNetworkRepository getInstance(Context context) {
@@ -188,8 +191,9 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             if (tm == null) {
                 return;
             }
-            sExecutor.execute(() -> {
-                insertMobileNetworkInfo(mContext, mRegSubId, tm);
+            final int subId = mRegSubId;
+            sScheduler.scheduleUpdate(getMobileNetworkInfoUpdateKey(subId), () -> {
+                insertMobileNetworkInfo(mContext, subId, tm);
             });
             boolean isDataRoamingEnabled = tm.isDataRoamingEnabled();
             for (MobileNetworkCallback callback : sCallbacks) {
@@ -231,7 +235,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         MobileDataContentObserver dataContentObserver = new MobileDataContentObserver(
                 new Handler(Looper.getMainLooper()));
         dataContentObserver.setOnMobileDataChangedListener(() -> {
-            sExecutor.execute(() -> {
+            sScheduler.scheduleUpdate(getMobileNetworkInfoUpdateKey(subId), () -> {
                 insertMobileNetworkInfo(mContext, subId,
                         getTelephonyManagerBySubId(mContext, subId));
             });
@@ -240,6 +244,10 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         mDataContentObserverMap.put(subId, dataContentObserver);
     }
 
+    private static String getMobileNetworkInfoUpdateKey(int subId) {
+        return "mobile_network_info:" + subId;
+    }
+
     private void createTelephonyManagerBySubId(int subId) {
         if (subId == SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
             return;
@@ -318,9 +326,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     public void updateEntity() {
         // Check the latest state after back to the UI.
         if (sCacheSubscriptionInfoEntityMap != null || !sCacheSubscriptionInfoEntityMap.isEmpty()) {
-            sExecutor.execute(() -> {
-                onSubscriptionsChanged();
-            });
+            sScheduler.scheduleRefresh(this::refreshAvailableSubInfo);
         }
 
         boolean isAirplaneModeOn = isAirplaneModeOn();
@@ -479,7 +485,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                     Log.d(TAG, "Convert subId " + subId + " to SubscriptionInfoEntity: "
                             + subInfoEntity);
                 }
-                mMobileNetworkDatabase.insertSubsInfo(subInfoEntity);
+                writeToDatabase(() -> mMobileNetworkDatabase.insertSubsInfo(subInfoEntity));
                 mMetricsFeatureProvider.action(mContext,
                         SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_SUB_INFO, subId);
                 insertUiccInfo(subId, telephonyManager);
@@ -494,9 +500,11 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (DEBUG) {
             Log.d(TAG, "deleteAllInfoBySubId, subId = " + subId);
         }
-        mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        writeToDatabase(() -> {
+            mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        });
         mAvailableSubInfoEntityList.removeIf(info -> info.subId.equals(subId));
         mActiveSubInfoEntityList.removeIf(info -> info.subId.equals(subId));
         mUiccInfoEntityList.removeIf(info -> info.subId.equals(subId));
@@ -565,7 +573,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (!sCacheUiccInfoEntityMap.containsKey(subId)
                 || !sCacheUiccInfoEntityMap.get(subId).equals(uiccInfoEntity)) {
             sCacheUiccInfoEntityMap.put(subId, uiccInfoEntity);
-            mMobileNetworkDatabase.insertUiccInfo(uiccInfoEntity);
+            writeToDatabase(() -> mMobileNetworkDatabase.insertUiccInfo(uiccInfoEntity));
             mMetricsFeatureProvider.action(mContext,
                     SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_UICC_INFO, subId);
         }
@@ -588,7 +596,8 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (!sCacheMobileNetworkInfoEntityMap.containsKey(subId)
                 || !sCacheMobileNetworkInfoEntityMap.get(subId).equals(mobileNetworkInfoEntity)) {
             sCacheMobileNetworkInfoEntityMap.put(subId, mobileNetworkInfoEntity);
-            mMobileNetworkDatabase.insertMobileNetworkInfo(mobileNetworkInfoEntity);
+            writeToDatabase(
+                    () -> mMobileNetworkDatabase.insertMobileNetworkInfo(mobileNetworkInfoEntity));
             mMetricsFeatureProvider.action(mContext,
                     SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_MOBILE_NETWORK_INFO, subId);
         }
@@ -649,71 +658,97 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     @Override
     public void onSubscriptionsChanged() {
-        insertAvailableSubInfoToEntity(
-                SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        // The refresh may run before the snapshot cache hears about the change.
+        SubscriptionSnapshotCache.invalidateActiveSnapshot();
+        sScheduler.scheduleRefresh(this::refreshAvailableSubInfo);
+    }
+
+    /**
+     * Rescans the available subscriptions, runs on the scheduler thread. The database is updated
+     * in a single transaction, so observers are notified once per refresh.
+     */
+    private void refreshAvailableSubInfo() {
+        mPendingDatabaseWrites = new ArrayList<>();
+        try {
+            insertAvailableSubInfoToEntity(
+                    SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        } finally {
+            final List<Runnable> writes = mPendingDatabaseWrites;
+            mPendingDatabaseWrites = null;
+            if (!writes.isEmpty()) {
+                mMobileNetworkDatabase.runInTransaction(() -> writes.forEach(Runnable::run));
+            }
+        }
+    }
+
+    /** Writes now, or at the end of the running refresh if there is one. */
+    private void writeToDatabase(Runnable write) {
+        if (mPendingDatabaseWrites != null) {
+            mPendingDatabaseWrites.add(write);
+        } else {
+            write.run();
+        }
     }
 
     private void insertAvailableSubInfoToEntity(List<SubscriptionInfo> inputAvailableInfoList) {
-        sExecutor.execute(() -> {
-            SubscriptionInfoEntity[] availableInfoArray = mAvailableSubInfoEntityList.toArray(
-                    new SubscriptionInfoEntity[0]);
-            if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
-                    && mAvailableSubInfoEntityList.size() != 0) {
-                if (DEBUG) {
-                    Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
-                }
+        SubscriptionInfoEntity[] availableInfoArray = mAvailableSubInfoEntityList.toArray(
+                new SubscriptionInfoEntity[0]);
+        if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
+                && mAvailableSubInfoEntityList.size() != 0) {
+            if (DEBUG) {
+                Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
+            }
 
-                for (SubscriptionInfoEntity info : availableInfoArray) {
-                    deleteAllInfoBySubId(info.subId);
-                }
+            for (SubscriptionInfoEntity info : availableInfoArray) {
+                deleteAllInfoBySubId(info.subId);
+            }
 
-            } else if (inputAvailableInfoList != null) {
-                SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
-                        new SubscriptionInfo[0]);
-                // Remove the redundant subInfo
-                if (inputAvailableInfoList.size() <= mAvailableSubInfoEntityList.size()) {
-                    for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
-                        int subId = subInfo.getSubscriptionId();
-                        if (mSubscriptionInfoMap.containsKey(subId)) {
-                            mSubscriptionInfoMap.remove(subId);
-                        }
+        } else if (inputAvailableInfoList != null) {
+            SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
+                    new SubscriptionInfo[0]);
+            // Remove the redundant subInfo
+            if (inputAvailableInfoList.size() <= mAvailableSubInfoEntityList.size()) {
+                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                    int subId = subInfo.getSubscriptionId();
+                    if (mSubscriptionInfoMap.containsKey(subId)) {
+                        mSubscriptionInfoMap.remove(subId);
                     }
+                }
 
-                    if (!mSubscriptionInfoMap.isEmpty()) {
-                        for (Integer key : mSubscriptionInfoMap.keySet()) {
-                            if (key != null) {
-                                deleteAllInfoBySubId(String.valueOf(key));
-                            }
+                if (!mSubscriptionInfoMap.isEmpty()) {
+                    for (Integer key : mSubscriptionInfoMap.keySet()) {
+                        if (key != null) {
+                            deleteAllInfoBySubId(String.valueOf(key));
                         }
-                    } else if (inputAvailableInfoList.size() < mAvailableSubInfoEntityList.size()) {
-                        // Check the subInfo between the new list from framework and old list in
-                        // the database, if the subInfo is not existed in the new list, delete it
-                        // from the database.
-                        for (SubscriptionInfoEntity info : availableInfoArray) {
-                            if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
-                                deleteAllInfoBySubId(info.subId);
-                            }
+                    }
+                } else if (inputAvailableInfoList.size() < mAvailableSubInfoEntityList.size()) {
+                    // Check the subInfo between the new list from framework and old list in
+                    // the database, if the subInfo is not existed in the new list, delete it
+                    // from the database.
+                    for (SubscriptionInfoEntity info : availableInfoArray) {
+                        if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
+                            deleteAllInfoBySubId(info.subId);
                         }
                     }
                 }
+            }
 
-                // Insert all new available subInfo to database.
-                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+            // Insert all new available subInfo to database.
+            for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                if (DEBUG) {
+                    Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+                }
+                if (subInfo.isEmbedded()
+                        && subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING) {
                     if (DEBUG) {
-                        Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+                        Log.d(TAG, "Do not insert the provision eSIM");
                     }
-                    if (subInfo.isEmbedded()
-                            && subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING) {
-                        if (DEBUG) {
-                            Log.d(TAG, "Do not insert the provision eSIM");
-                        }
-                        continue;
-                    }
-                    mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
-                    insertSubInfo(mContext, subInfo);
+                    continue;
                 }
+                mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
+                insertSubInfo(mContext, subInfo);
             }
-        });
+        }
     }
 
     public boolean isAirplaneModeOn() {
@@ -774,5 +809,6 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         printwriter.println(" SubscriptionInfoMap= " + mSubscriptionInfoMap);
         printwriter.flush();
         printwriter.decreaseIndent();
+        sScheduler.dump(printwriter);
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.annotation.NonNull;
+import android.util.IndentingPrintWriter;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the database updates of {@link MobileNetworkRepository} one at a time, in priority order.
+ *
+ * <p>Two kinds of work are scheduled:
+ * <ul>
+ *     <li>Updates, which refresh what a screen shows for one subscription. Updates are keyed, an
+ *     update replaces the pending update with the same key.</li>
+ *     <li>Full refreshes, which rescan all subscriptions. At most one refresh is pending, a burst
+ *     of refresh requests results in a single refresh once the running work is done.</li>
+ * </ul>
+ * Pending updates always run before a pending refresh.
+ */
+public class MobileNetworkUpdateScheduler {
+    private static final String TAG = "MobileNetworkScheduler";
+
+    private final Executor mExecutor;
+
+    // Pending updates keyed by the caller, in request order.
+    @GuardedBy("this")
+    private final Map<Object, Runnable> mPendingUpdates = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private Runnable mPendingRefresh;
+    @GuardedBy("this")
+    private boolean mRunning;
+
+    @GuardedBy("this")
+    private int mUpdateCount;
+    @GuardedBy("this")
+    private int mRefreshCount;
+    @GuardedBy("this")
+    private int mCoalescedUpdateCount;
+    @GuardedBy("this")
+    private int mCoalescedRefreshCount;
+    @GuardedBy("this")
+    private int mMaxQueueDepth;
+
+    @VisibleForTesting
+    MobileNetworkUpdateScheduler(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Schedules an update for {@code key}, replacing the pending update of the same key if any.
+     * Updates run before any pending refresh.
+     */
+    public void scheduleUpdate(@NonNull Object key, @NonNull Runnable update) {
+        synchronized (this) {
+            if (mPendingUpdates.put(key, update) != null) {
+                mCoalescedUpdateCount++;
+            }
+            if (!startLocked()) {
+                return;
+            }
+        }
+        mExecutor.execute(this::runPending);
+    }
+
+    /**
+     * Schedules a full refresh, replacing the pending refresh if any. The refresh should read the
+     * state it needs when it runs, as earlier requests are dropped.
+     */
+    public void scheduleRefresh(@NonNull Runnable refresh) {
+        synchronized (this) {
+            if (mPendingRefresh != null) {
+                mCoalescedRefreshCount++;
+            }
+            mPendingRefresh = refresh;
+            if (!startLocked()) {
+                return;
+            }
+        }
+        mExecutor.execute(this::runPending);
+    }
+
+    /** Returns the number of pending updates and refreshes. */
+    public synchronized int getQueueDepth() {
+        return getQueueDepthLocked();
+    }
+
+    @GuardedBy("this")
+    private boolean startLocked() {
+        mMaxQueueDepth = Math.max(mMaxQueueDepth, getQueueDepthLocked());
+        if (mRunning) {
+            return false;
+        }
+        mRunning = true;
+        return true;
+    }
+
+    @GuardedBy("this")
+    private int getQueueDepthLocked() {
+        return mPendingUpdates.size() + (mPendingRefresh != null ? 1 : 0);
+    }
+
+    private void runPending() {
+        while (true) {
+            final Runnable work;
+            synchronized (this) {
+                work = pollLocked();
+                if (work == null) {
+                    mRunning = false;
+                    return;
+                }
+            }
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Mobile network update failed", e);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private Runnable pollLocked() {
+        final Iterator<Runnable> iterator = mPendingUpdates.values().iterator();
+        if (iterator.hasNext()) {
+            final Runnable update = iterator.next();
+            iterator.remove();
+            mUpdateCount++;
+            return update;
+        }
+        final Runnable refresh = mPendingRefresh;
+        if (refresh != null) {
+            mPendingRefresh = null;
+            mRefreshCount++;
+        }
+        return refresh;
+    }
+
+    /** Dumps the queue metrics. */
+    public synchronized void dump(IndentingPrintWriter printwriter) {
+        printwriter.println(TAG + ": ");
+        printwriter.increaseIndent();
+        printwriter.println(" queueDepth=" + getQueueDepthLocked()
+                + " maxQueueDepth=" + mMaxQueueDepth + " running=" + mRunning);
+        printwriter.println(" updates=" + mUpdateCount + " coalescedUpdates="
+                + mCoalescedUpdateCount);
+        printwriter.println(" refreshes=" + mRefreshCount + " coalescedRefreshes="
+                + mCoalescedRefreshCount);
+        printwriter.decreaseIndent();
+    }
+
+    @VisibleForTesting
+    synchronized int getRefreshCount() {
+        return mRefreshCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getCoalescedRefreshCount() {
+        return mCoalescedRefreshCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getMaxQueueDepth() {
+        return mMaxQueueDepth;
+    }
+}
@@ -73,6 +73,8 @@ public class NetworkDashboardFragment extends DashboardFragment implements
 
         use(AirplaneModePreferenceController.class).setFragment(this);
         getSettingsLifecycle().addObserver(use(AllInOneTetherPreferenceController.class));
+        getSettingsLifecycle().addObserver(
+                SubscriptionSnapshotCache.getInstance(context).createScope());
     }
 
     @Override
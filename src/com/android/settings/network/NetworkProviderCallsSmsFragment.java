@@ -49,6 +49,13 @@ public class NetworkProviderCallsSmsFragment extends DashboardFragment {
     private NetworkProviderWifiCallingPreferenceController
             mNetworkProviderWifiCallingPreferenceController;
 
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        getSettingsLifecycle().addObserver(
+                SubscriptionSnapshotCache.getInstance(context).createScope());
+    }
+
     @Override
     protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
         final List<AbstractPreferenceController> controllers = new ArrayList<>();
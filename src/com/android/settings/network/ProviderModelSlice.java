@@ -29,8 +29,6 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.telephony.SubscriptionManager;
@@ -53,6 +51,7 @@ import com.android.settings.slices.CustomSliceable;
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settings.slices.SliceBroadcastReceiver;
 import com.android.settings.slices.SliceBuilderUtils;
+import com.android.settings.slices.SliceIconCache;
 import com.android.settings.wifi.WifiUtils;
 import com.android.settings.wifi.slice.WifiSlice;
 import com.android.settings.wifi.slice.WifiSliceItem;
@@ -375,13 +374,9 @@ public class ProviderModelSlice extends WifiSlice {
     }
 
     protected IconCompat getSeeAllIcon() {
-        final Drawable drawable = mContext.getDrawable(R.drawable.ic_arrow_forward);
-        if (drawable != null) {
-            drawable.setTint(
-                    Utils.getColorAttrDefaultColor(mContext, android.R.attr.colorControlNormal));
-            return Utils.createIconWithDrawable(drawable);
-        }
-        return Utils.createIconWithDrawable(new ColorDrawable(Color.TRANSPARENT));
+        final IconCompat icon = SliceIconCache.getIcon(mContext, R.drawable.ic_arrow_forward,
+                Utils.getColorAttrDefaultColor(mContext, android.R.attr.colorControlNormal));
+        return icon != null ? icon : SliceIconCache.getEmptyIcon();
     }
 
     protected SliceAction getPrimaryAction(IconCompat icon, CharSequence title) {
@@ -396,11 +391,8 @@ public class ProviderModelSlice extends WifiSlice {
                 && getInternetType() != InternetUpdater.INTERNET_WIFI) {
             final @ColorInt int tint = Utils.getColorAttrDefaultColor(mContext,
                     android.R.attr.colorControlNormal);
-            final Drawable drawable = mContext.getDrawable(
-                    WifiUtils.getInternetIconResource(
-                            wifiSliceItem.getLevel(), wifiSliceItem.shouldShowXLevelIcon()));
-            drawable.setTint(tint);
-            return Utils.createIconWithDrawable(drawable);
+            return SliceIconCache.getIcon(mContext, WifiUtils.getInternetIconResource(
+                    wifiSliceItem.getLevel(), wifiSliceItem.shouldShowXLevelIcon()), tint);
         }
         return super.getWifiSliceItemLevelIcon(wifiSliceItem);
     }
@@ -20,8 +20,6 @@ import static com.android.settings.network.telephony.MobileNetworkUtils.NO_CELL_
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.telephony.AccessNetworkConstants;
@@ -45,6 +43,7 @@ import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.network.telephony.MobileNetworkUtils;
 import com.android.settings.slices.CustomSliceable;
+import com.android.settings.slices.SliceIconCache;
 import com.android.settings.wifi.slice.WifiSliceItem;
 import com.android.settingslib.WirelessUtils;
 import com.android.settingslib.net.SignalStrengthUtil;
@@ -202,7 +201,7 @@ public class ProviderModelSliceHelper {
     protected SliceAction getPrimarySliceAction(String intentAction) {
         return SliceAction.createDeeplink(
                 getPrimaryAction(intentAction),
-                Utils.createIconWithDrawable(new ColorDrawable(Color.TRANSPARENT)),
+                SliceIconCache.getEmptyIcon(),
                 ListBuilder.ICON_IMAGE, mContext.getText(R.string.summary_placeholder));
     }
 
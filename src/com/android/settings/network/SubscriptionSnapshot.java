@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.annotation.Nullable;
+import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.telephony.UiccSlotInfo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Immutable view of the subscriptions and UICC slots at one point in time, shared by everything
+ * reading them through {@link SubscriptionUtil} while a {@link SubscriptionSnapshotCache} is
+ * active.
+ *
+ * <p>Snapshots are safe to share across threads. The lists they return can't be modified, callers
+ * handing them out to code which may modify them have to copy them first.
+ */
+public final class SubscriptionSnapshot {
+
+    private final long mVersion;
+    @NonNull
+    private final List<SubscriptionInfo> mActiveSubscriptions;
+    @Nullable
+    private final List<SubscriptionInfo> mSelectableSubscriptions;
+    @Nullable
+    private final UiccSlotInfo[] mUiccSlotsInfo;
+
+    // Derived from the fields above, computed at most once per snapshot by the first reader.
+    private volatile Map<Integer, CharSequence> mUniqueDisplayNames;
+
+    @VisibleForTesting
+    SubscriptionSnapshot(long version, @Nullable List<SubscriptionInfo> activeSubscriptions,
+            @Nullable List<SubscriptionInfo> selectableSubscriptions,
+            @Nullable UiccSlotInfo[] uiccSlotsInfo) {
+        mVersion = version;
+        mActiveSubscriptions = activeSubscriptions == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(activeSubscriptions));
+        mSelectableSubscriptions = selectableSubscriptions == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(selectableSubscriptions));
+        mUiccSlotsInfo = uiccSlotsInfo == null ? null : uiccSlotsInfo.clone();
+    }
+
+    /** Queries the subscriptions and slots, this makes the binder calls the snapshot saves. */
+    static SubscriptionSnapshot load(Context context, long version) {
+        final SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
+        final TelephonyManager telMgr = context.getSystemService(TelephonyManager.class);
+        final List<SubscriptionInfo> activeSubscriptions =
+                subManager == null ? null : subManager.getActiveSubscriptionInfoList();
+        final List<SubscriptionInfo> selectableSubscriptions = subManager == null ? null
+                : SubscriptionUtil.getSelectableSubscriptionInfoList(context, subManager,
+                        subManager.getAvailableSubscriptionInfoList());
+        final UiccSlotInfo[] uiccSlotsInfo = telMgr == null ? null : telMgr.getUiccSlotsInfo();
+        return new SubscriptionSnapshot(version, activeSubscriptions, selectableSubscriptions,
+                uiccSlotsInfo);
+    }
+
+    /** Version of the subscription state this snapshot was taken at. */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /** Same as {@link SubscriptionManager#getActiveSubscriptionInfoList}, but never null. */
+    @NonNull
+    public List<SubscriptionInfo> getActiveSubscriptions() {
+        return mActiveSubscriptions;
+    }
+
+    /**
+     * Same as {@link SubscriptionUtil#getSelectableSubscriptionInfoList}, null if the available
+     * subscriptions couldn't be queried.
+     */
+    @Nullable
+    public List<SubscriptionInfo> getSelectableSubscriptions() {
+        return mSelectableSubscriptions;
+    }
+
+    /** Same as {@link TelephonyManager#getUiccSlotsInfo}. */
+    @Nullable
+    public UiccSlotInfo[] getUiccSlotsInfo() {
+        return mUiccSlotsInfo == null ? null : mUiccSlotsInfo.clone();
+    }
+
+    /**
+     * Returns the unique display names of the subscriptions, computing them with
+     * {@code computer} on first use.
+     */
+    @NonNull
+    Map<Integer, CharSequence> getUniqueDisplayNames(
+            @NonNull Supplier<Map<Integer, CharSequence>> computer) {
+        Map<Integer, CharSequence> displayNames = mUniqueDisplayNames;
+        if (displayNames == null) {
+            displayNames = Collections.unmodifiableMap(computer.get());
+            mUniqueDisplayNames = displayNames;
+        }
+        return displayNames;
+    }
+}
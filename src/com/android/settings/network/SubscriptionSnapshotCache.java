@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.annotation.Nullable;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.LifecycleObserver;
+
+import com.android.settingslib.core.lifecycle.events.OnCreate;
+import com.android.settingslib.core.lifecycle.events.OnDestroy;
+
+/**
+ * This is a singleton class keeping a versioned {@link SubscriptionSnapshot}, so that the
+ * controllers of a screen reading subscriptions through {@link SubscriptionUtil} share the same
+ * binder calls.
+ *
+ * <p>The cache is only used while a screen holds it, see {@link #createScope}. While it is held,
+ * subscription and SIM slot changes bump the version and drop the snapshot, and the next reader
+ * takes a new one. Otherwise {@link SubscriptionUtil} queries the system directly.
+ */
+public class SubscriptionSnapshotCache {
+    private static final String TAG = "SubSnapshotCache";
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static SubscriptionSnapshotCache sInstance;
+
+    private final Context mContext;
+    private final SubscriptionManager.OnSubscriptionsChangedListener mSubscriptionsListener =
+            new SubscriptionManager.OnSubscriptionsChangedListener() {
+                @Override
+                public void onSubscriptionsChanged() {
+                    invalidate();
+                }
+            };
+    private final BroadcastReceiver mSlotChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    @GuardedBy("this")
+    private int mHolders;
+    @GuardedBy("this")
+    private long mVersion;
+    @GuardedBy("this")
+    private SubscriptionSnapshot mSnapshot;
+
+    /** Returns the singleton instance of {@link SubscriptionSnapshotCache}. */
+    public static SubscriptionSnapshotCache getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                sInstance = new SubscriptionSnapshotCache(context.getApplicationContext());
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Returns the current snapshot if the cache is held by a screen, otherwise null. Can be
+     * called on any thread, it makes binder calls if a new snapshot has to be taken.
+     */
+    @Nullable
+    public static SubscriptionSnapshot getActiveSnapshot() {
+        final SubscriptionSnapshotCache cache;
+        synchronized (sInstanceLock) {
+            cache = sInstance;
+        }
+        return cache == null ? null : cache.getSnapshot();
+    }
+
+    /**
+     * Drops the current snapshot, if any. Listeners which learn about subscription changes on
+     * their own call this before reading, as the cache may not have been notified yet.
+     */
+    public static void invalidateActiveSnapshot() {
+        final SubscriptionSnapshotCache cache;
+        synchronized (sInstanceLock) {
+            cache = sInstance;
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    @VisibleForTesting
+    SubscriptionSnapshotCache(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Creates an observer which holds the cache between the create and destroy events of the
+     * screen lifecycle it is added to.
+     */
+    public LifecycleObserver createScope() {
+        return new Scope();
+    }
+
+    /** Starts using the cache, until the matching {@link #release()}. */
+    public void acquire() {
+        synchronized (this) {
+            if (mHolders++ > 0) {
+                return;
+            }
+            mVersion++;
+            mSnapshot = null;
+        }
+        Log.d(TAG, "Start listening for subscription changes");
+        final IntentFilter filter =
+                new IntentFilter(TelephonyManager.ACTION_SIM_SLOT_STATUS_CHANGED);
+        filter.addAction(TelephonyManager.ACTION_MULTI_SIM_CONFIG_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        mContext.registerReceiver(mSlotChangeReceiver, filter,
+                Context.RECEIVER_EXPORTED_UNAUDITED);
+        final SubscriptionManager subManager = mContext.getSystemService(SubscriptionManager.class);
+        if (subManager != null) {
+            subManager.addOnSubscriptionsChangedListener(mContext.getMainExecutor(),
+                    mSubscriptionsListener);
+        }
+    }
+
+    /** Stops using the cache once every {@link #acquire()} was released. */
+    public void release() {
+        synchronized (this) {
+            if (mHolders == 0 || --mHolders > 0) {
+                return;
+            }
+            mVersion++;
+            mSnapshot = null;
+        }
+        Log.d(TAG, "Stop listening for subscription changes");
+        mContext.unregisterReceiver(mSlotChangeReceiver);
+        final SubscriptionManager subManager = mContext.getSystemService(SubscriptionManager.class);
+        if (subManager != null) {
+            subManager.removeOnSubscriptionsChangedListener(mSubscriptionsListener);
+        }
+    }
+
+    /** Drops the current snapshot, the next reader takes a new one. */
+    public void invalidate() {
+        synchronized (this) {
+            mVersion++;
+            mSnapshot = null;
+        }
+    }
+
+    /** Returns the current snapshot, or null if the cache isn't held. */
+    @Nullable
+    public SubscriptionSnapshot getSnapshot() {
+        final long version;
+        synchronized (this) {
+            if (mHolders == 0) {
+                return null;
+            }
+            if (mSnapshot != null) {
+                return mSnapshot;
+            }
+            version = mVersion;
+        }
+        // Query outside of the lock, so that invalidations are not blocked on binder calls.
+        final SubscriptionSnapshot snapshot = loadSnapshot(version);
+        synchronized (this) {
+            // Don't keep a snapshot which was invalidated while it was taken.
+            if (mVersion == version && mHolders > 0) {
+                if (mSnapshot == null) {
+                    mSnapshot = snapshot;
+                }
+                return mSnapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    @VisibleForTesting
+    SubscriptionSnapshot loadSnapshot(long version) {
+        return SubscriptionSnapshot.load(mContext, version);
+    }
+
+    private class Scope implements LifecycleObserver, OnCreate, OnDestroy {
+        private boolean mHolding;
+
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            if (!mHolding) {
+                mHolding = true;
+                acquire();
+            }
+        }
+
+        @Override
+        public void onDestroy() {
+            if (mHolding) {
+                mHolding = false;
+                release();
+            }
+        }
+    }
+}
@@ -90,6 +90,10 @@ public class SubscriptionUtil {
         if (manager == null) {
             return Collections.emptyList();
         }
+        final SubscriptionSnapshot snapshot = SubscriptionSnapshotCache.getActiveSnapshot();
+        if (snapshot != null) {
+            return new ArrayList<>(snapshot.getActiveSubscriptions());
+        }
         final List<SubscriptionInfo> subscriptions = manager.getActiveSubscriptionInfoList();
         if (subscriptions == null) {
             return new ArrayList<>();
@@ -159,6 +163,10 @@ public class SubscriptionUtil {
     }
 
     private static UiccSlotInfo [] getUiccSlotsInfo(Context context) {
+        final SubscriptionSnapshot snapshot = SubscriptionSnapshotCache.getActiveSnapshot();
+        if (snapshot != null) {
+            return snapshot.getUiccSlotsInfo();
+        }
         final TelephonyManager telMgr = context.getSystemService(TelephonyManager.class);
         return telMgr.getUiccSlotsInfo();
     }
@@ -265,6 +273,16 @@ public class SubscriptionUtil {
      */
     @VisibleForTesting
     public static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        final SubscriptionSnapshot snapshot = SubscriptionSnapshotCache.getActiveSnapshot();
+        if (snapshot != null) {
+            return new HashMap<>(snapshot.getUniqueDisplayNames(
+                    () -> computeUniqueSubscriptionDisplayNames(context)));
+        }
+        return computeUniqueSubscriptionDisplayNames(context);
+    }
+
+    private static Map<Integer, CharSequence> computeUniqueSubscriptionDisplayNames(
+            Context context) {
         class DisplayInfo {
             public SubscriptionInfo subscriptionInfo;
             public CharSequence originalName;
@@ -469,8 +487,19 @@ public class SubscriptionUtil {
      * @return list of user selectable subscriptions.
      */
     public static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context) {
+        final SubscriptionSnapshot snapshot = SubscriptionSnapshotCache.getActiveSnapshot();
+        if (snapshot != null) {
+            final List<SubscriptionInfo> selectableList = snapshot.getSelectableSubscriptions();
+            return selectableList == null ? null : new ArrayList<>(selectableList);
+        }
         SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
-        List<SubscriptionInfo> availableList = subManager.getAvailableSubscriptionInfoList();
+        return getSelectableSubscriptionInfoList(context, subManager,
+                subManager.getAvailableSubscriptionInfoList());
+    }
+
+    /** Picks the user selectable subscriptions out of the available ones. */
+    static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context,
+            SubscriptionManager subManager, List<SubscriptionInfo> availableList) {
         if (availableList == null) {
             return null;
         } else {
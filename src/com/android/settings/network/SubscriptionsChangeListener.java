@@ -100,6 +100,7 @@ public class SubscriptionsChangeListener extends ContentObserver {
     }
 
     private void subscriptionsChangedCallback() {
+        SubscriptionSnapshotCache.invalidateActiveSnapshot();
         mClient.onSubscriptionsChanged();
     }
 
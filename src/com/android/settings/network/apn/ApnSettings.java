@@ -26,7 +26,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.database.Cursor;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -45,6 +45,7 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.telephony.data.ApnSetting;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -59,6 +60,7 @@ import com.android.settings.R;
 import com.android.settings.RestrictedSettingsFragment;
 import com.android.settings.network.SubscriptionUtil;
 import com.android.settingslib.RestrictedLockUtils.EnforcedAdmin;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 
@@ -78,16 +80,6 @@ public class ApnSettings extends RestrictedSettingsFragment
     public static final String MVNO_TYPE = "mvno_type";
     public static final String MVNO_MATCH_DATA = "mvno_match_data";
 
-    private static final String[] CARRIERS_PROJECTION = new String[] {
-            Telephony.Carriers._ID,
-            Telephony.Carriers.NAME,
-            Telephony.Carriers.APN,
-            Telephony.Carriers.TYPE,
-            Telephony.Carriers.MVNO_TYPE,
-            Telephony.Carriers.MVNO_MATCH_DATA,
-            Telephony.Carriers.EDITED_STATUS,
-    };
-
     /** Copied from {@code com.android.internal.telephony.TelephonyIntents} */
     private static final String ACTION_SIM_STATE_CHANGED =
             "android.intent.action.SIM_STATE_CHANGED";
@@ -95,14 +87,6 @@ public class ApnSettings extends RestrictedSettingsFragment
     public static final String INTENT_KEY_ICC_STATE = "ss";
     public static final String INTENT_VALUE_ICC_ABSENT = "ABSENT";
 
-    private static final int ID_INDEX = 0;
-    private static final int NAME_INDEX = 1;
-    private static final int APN_INDEX = 2;
-    private static final int TYPES_INDEX = 3;
-    private static final int MVNO_TYPE_INDEX = 4;
-    private static final int MVNO_MATCH_DATA_INDEX = 5;
-    private static final int EDITED_INDEX = 6;
-
     private static final int MENU_NEW = Menu.FIRST;
     private static final int MENU_RESTORE = Menu.FIRST + 1;
 
@@ -128,6 +112,10 @@ public class ApnSettings extends RestrictedSettingsFragment
     private String mMvnoMatchData;
 
     private String mSelectedKey;
+    // Snapshot the list currently shows.
+    private ApnSnapshot mSnapshot;
+    // Incremented for every load, so that only the latest one is shown.
+    private int mLoadGeneration;
 
     private IntentFilter mIntentFilter;
 
@@ -154,6 +142,16 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
     };
 
+    private final ContentObserver mApnObserver =
+            new ContentObserver(new Handler(Looper.getMainLooper())) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    if (!mRestoreDefaultApnMode) {
+                        fillList();
+                    }
+                }
+            };
+
     private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -260,6 +258,8 @@ public class ApnSettings extends RestrictedSettingsFragment
                 Context.RECEIVER_EXPORTED_UNAUDITED);
 
         restartPhoneStateListener(mSubId);
+        getContentResolver().registerContentObserver(Telephony.Carriers.CONTENT_URI,
+                true /* notifyForDescendants */, mApnObserver);
 
         if (!mRestoreDefaultApnMode) {
             fillList();
@@ -275,6 +275,7 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
 
         getActivity().unregisterReceiver(mReceiver);
+        getContentResolver().unregisterContentObserver(mApnObserver);
 
         mTelephonyManager.listen(mPhoneStateListener,
                 PhoneStateListener.LISTEN_NONE);
@@ -307,74 +308,117 @@ public class ApnSettings extends RestrictedSettingsFragment
     private void fillList() {
         final int subId = mSubscriptionInfo != null ? mSubscriptionInfo.getSubscriptionId()
                 : SubscriptionManager.INVALID_SUBSCRIPTION_ID;
-        final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
-                String.valueOf(subId));
-        final StringBuilder where =
-                new StringBuilder("NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND "
-                + "user_visible!=0");
-        // Remove Emergency type, users should not mess with that
-        where.append(" AND NOT (type='emergency')");
-
-        if (mHideImsApn) {
-            where.append(" AND NOT (type='ims')");
+        if (mSnapshot == null || mSnapshot.getSubId() != subId) {
+            // Show the APNs of the last visit right away, they are refreshed below.
+            final ApnSnapshot cached = ApnSnapshot.getCached(subId, mHideImsApn);
+            if (cached != null) {
+                updateApnList(cached);
+            }
         }
 
-        final Cursor cursor = getContentResolver().query(simApnUri,
-                CARRIERS_PROJECTION, where.toString(), null,
-                Telephony.Carriers.DEFAULT_SORT_ORDER);
+        final int generation = ++mLoadGeneration;
+        final ContentResolver resolver = getContentResolver();
+        final boolean hideImsApn = mHideImsApn;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final ApnSnapshot snapshot = ApnSnapshot.query(resolver, subId, hideImsApn);
+            if (snapshot == null) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation == mLoadGeneration && isAdded()) {
+                    updateApnList(snapshot);
+                }
+            });
+        });
+    }
 
-        if (cursor != null) {
-            final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
-            apnPrefList.removeAll();
+    /**
+     * Shows the APNs of {@code snapshot}, reusing the preferences of the rows which didn't change
+     * since the previous snapshot.
+     */
+    private void updateApnList(ApnSnapshot snapshot) {
+        final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
+        if (apnPrefList == null) {
+            return;
+        }
+        final ApnSnapshot previous = mSnapshot;
+        mSnapshot = snapshot;
+        mSelectedKey = snapshot.getSelectedKey();
+        if (snapshot.size() > 0) {
+            mMvnoType = snapshot.getMvnoType(snapshot.size() - 1);
+            mMvnoMatchData = snapshot.getMvnoMatchData(snapshot.size() - 1);
+        }
+        if (snapshot.isSameAs(previous)) {
+            return;
+        }
 
-            final ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
-            final ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
+        final ArrayMap<String, ApnPreference> reusablePrefs = new ArrayMap<>();
+        if (previous != null && previous.getSubId() == snapshot.getSubId()) {
+            final ArrayMap<String, Integer> previousRows = new ArrayMap<>(previous.size());
+            for (int row = 0; row < previous.size(); row++) {
+                previousRows.put(previous.getKey(row), row);
+            }
+            final ArrayMap<String, ApnPreference> shownPrefs = new ArrayMap<>();
+            for (int i = 0; i < apnPrefList.getPreferenceCount(); i++) {
+                final Preference preference = apnPrefList.getPreference(i);
+                if (preference instanceof ApnPreference) {
+                    shownPrefs.put(preference.getKey(), (ApnPreference) preference);
+                }
+            }
+            for (int row = 0; row < snapshot.size(); row++) {
+                final String key = snapshot.getKey(row);
+                final Integer previousRow = previousRows.get(key);
+                final ApnPreference pref = shownPrefs.get(key);
+                if (pref != null && previousRow != null
+                        && snapshot.isSameRow(row, previous, previousRow)) {
+                    reusablePrefs.put(key, pref);
+                }
+            }
+        }
+        apnPrefList.removeAll();
 
-            mSelectedKey = getSelectedApnKey();
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                final String name = cursor.getString(NAME_INDEX);
-                final String apn = cursor.getString(APN_INDEX);
-                final String key = cursor.getString(ID_INDEX);
-                final String type = cursor.getString(TYPES_INDEX);
-                final int edited = cursor.getInt(EDITED_INDEX);
-                mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
-                mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
+        final ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
+        final ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
 
-                final ApnPreference pref = new ApnPreference(getPrefContext());
+        for (int row = 0; row < snapshot.size(); row++) {
+            final String key = snapshot.getKey(row);
+            final String type = snapshot.getType(row);
+
+            ApnPreference pref = reusablePrefs.get(key);
+            if (pref == null) {
+                pref = new ApnPreference(getPrefContext());
 
                 pref.setKey(key);
-                pref.setTitle(name);
+                pref.setTitle(snapshot.getName(row));
                 pref.setPersistent(false);
                 pref.setOnPreferenceChangeListener(this);
-                pref.setSubId(subId);
-                if (mHidePresetApnDetails && edited == Telephony.Carriers.UNEDITED) {
+                pref.setSubId(snapshot.getSubId());
+                if (mHidePresetApnDetails
+                        && snapshot.getEditedStatus(row) == Telephony.Carriers.UNEDITED) {
                     pref.setHideDetails();
                 } else {
-                    pref.setSummary(apn);
+                    pref.setSummary(snapshot.getApn(row));
                 }
+            }
 
-                final boolean selectable =
-                        ((type == null) || type.contains(ApnSetting.TYPE_DEFAULT_STRING));
-                pref.setSelectable(selectable);
-                if (selectable) {
-                    if ((mSelectedKey != null) && mSelectedKey.equals(key)) {
-                        pref.setChecked();
-                    }
-                    apnList.add(pref);
-                } else {
-                    mmsApnList.add(pref);
+            final boolean selectable =
+                    ((type == null) || type.contains(ApnSetting.TYPE_DEFAULT_STRING));
+            pref.setSelectable(selectable);
+            if (selectable) {
+                if ((mSelectedKey != null) && mSelectedKey.equals(key)) {
+                    pref.setChecked();
                 }
-                cursor.moveToNext();
+                apnList.add(pref);
+            } else {
+                mmsApnList.add(pref);
             }
-            cursor.close();
+        }
 
-            for (Preference preference : apnList) {
-                apnPrefList.addPreference(preference);
-            }
-            for (Preference preference : mmsApnList) {
-                apnPrefList.addPreference(preference);
-            }
+        for (Preference preference : apnList) {
+            apnPrefList.addPreference(preference);
+        }
+        for (Preference preference : mmsApnList) {
+            apnPrefList.addPreference(preference);
         }
     }
 
@@ -440,19 +484,6 @@ public class ApnSettings extends RestrictedSettingsFragment
         resolver.update(getUriForCurrSubId(PREFERAPN_URI), values, null, null);
     }
 
-    private String getSelectedApnKey() {
-        String key = null;
-
-        final Cursor cursor = getContentResolver().query(getUriForCurrSubId(PREFERAPN_URI),
-                new String[] {"_id"}, null, null, Telephony.Carriers.DEFAULT_SORT_ORDER);
-        if (cursor.getCount() > 0) {
-            cursor.moveToFirst();
-            key = cursor.getString(ID_INDEX);
-        }
-        cursor.close();
-        return key;
-    }
-
     private boolean restoreDefaultApn() {
         // Callback of data connection change could be some noise during the stage of restore.
         mTelephonyManager.listen(mPhoneStateListener, PhoneStateListener.LISTEN_NONE);
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.Telephony;
+import android.telephony.SubscriptionManager;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+/**
+ * An immutable snapshot of the APNs {@link ApnSettings} lists for a subscription, with the
+ * preferred APN. The rows are stored by column, so that a snapshot of a carrier with many APNs is
+ * a handful of arrays rather than an object per row.
+ *
+ * <p>The last snapshot of each subscription is kept, so that the list can be shown right away
+ * when the page is opened again, while a new snapshot is loaded.
+ */
+final class ApnSnapshot {
+
+    @VisibleForTesting
+    static final String[] CARRIERS_PROJECTION = new String[] {
+            Telephony.Carriers._ID,
+            Telephony.Carriers.NAME,
+            Telephony.Carriers.APN,
+            Telephony.Carriers.TYPE,
+            Telephony.Carriers.MVNO_TYPE,
+            Telephony.Carriers.MVNO_MATCH_DATA,
+            Telephony.Carriers.EDITED_STATUS,
+    };
+
+    private static final int ID_INDEX = 0;
+    private static final int NAME_INDEX = 1;
+    private static final int APN_INDEX = 2;
+    private static final int TYPES_INDEX = 3;
+    private static final int MVNO_TYPE_INDEX = 4;
+    private static final int MVNO_MATCH_DATA_INDEX = 5;
+    private static final int EDITED_INDEX = 6;
+
+    private static final Uri PREFERAPN_URI = Uri.parse(ApnSettings.PREFERRED_APN_URI);
+
+    private static final Object sCacheLock = new Object();
+    @GuardedBy("sCacheLock")
+    private static final SparseArray<ApnSnapshot> sCache = new SparseArray<>();
+
+    private final int mSubId;
+    private final boolean mHideImsApn;
+    @Nullable
+    private final String mSelectedKey;
+
+    private final String[] mKeys;
+    private final String[] mNames;
+    private final String[] mApns;
+    private final String[] mTypes;
+    private final String[] mMvnoTypes;
+    private final String[] mMvnoMatchData;
+    private final int[] mEditedStatus;
+
+    private ApnSnapshot(int subId, boolean hideImsApn, @Nullable String selectedKey, int size) {
+        mSubId = subId;
+        mHideImsApn = hideImsApn;
+        mSelectedKey = selectedKey;
+        mKeys = new String[size];
+        mNames = new String[size];
+        mApns = new String[size];
+        mTypes = new String[size];
+        mMvnoTypes = new String[size];
+        mMvnoMatchData = new String[size];
+        mEditedStatus = new int[size];
+    }
+
+    /**
+     * Queries the APNs of {@code subId} and keeps the result as the last snapshot of the
+     * subscription. Returns null if the APNs can't be queried.
+     */
+    @WorkerThread
+    @Nullable
+    static ApnSnapshot query(ContentResolver resolver, int subId, boolean hideImsApn) {
+        final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
+                String.valueOf(subId));
+        final StringBuilder where =
+                new StringBuilder("NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND "
+                + "user_visible!=0");
+        // Remove Emergency type, users should not mess with that
+        where.append(" AND NOT (type='emergency')");
+
+        if (hideImsApn) {
+            where.append(" AND NOT (type='ims')");
+        }
+
+        final ApnSnapshot snapshot;
+        try (Cursor cursor = resolver.query(simApnUri, CARRIERS_PROJECTION, where.toString(),
+                null, Telephony.Carriers.DEFAULT_SORT_ORDER)) {
+            if (cursor == null) {
+                return null;
+            }
+            snapshot = fromCursor(subId, hideImsApn, cursor, querySelectedKey(resolver, subId));
+        }
+        synchronized (sCacheLock) {
+            sCache.put(subId, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Nullable
+    private static String querySelectedKey(ContentResolver resolver, int subId) {
+        final Uri uri = SubscriptionManager.isValidSubscriptionId(subId)
+                ? Uri.withAppendedPath(PREFERAPN_URI, "subId/" + subId) : PREFERAPN_URI;
+        try (Cursor cursor = resolver.query(uri, new String[] {"_id"}, null, null,
+                Telephony.Carriers.DEFAULT_SORT_ORDER)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getString(ID_INDEX);
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    static ApnSnapshot fromCursor(int subId, boolean hideImsApn, Cursor cursor,
+            @Nullable String selectedKey) {
+        final ApnSnapshot snapshot =
+                new ApnSnapshot(subId, hideImsApn, selectedKey, cursor.getCount());
+        int row = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext() && row < snapshot.mKeys.length) {
+            snapshot.mKeys[row] = cursor.getString(ID_INDEX);
+            snapshot.mNames[row] = cursor.getString(NAME_INDEX);
+            snapshot.mApns[row] = cursor.getString(APN_INDEX);
+            snapshot.mTypes[row] = cursor.getString(TYPES_INDEX);
+            snapshot.mMvnoTypes[row] = cursor.getString(MVNO_TYPE_INDEX);
+            snapshot.mMvnoMatchData[row] = cursor.getString(MVNO_MATCH_DATA_INDEX);
+            snapshot.mEditedStatus[row] = cursor.getInt(EDITED_INDEX);
+            row++;
+        }
+        return snapshot;
+    }
+
+    /** Returns the last snapshot of {@code subId} queried with the same filter, if any. */
+    @Nullable
+    static ApnSnapshot getCached(int subId, boolean hideImsApn) {
+        synchronized (sCacheLock) {
+            final ApnSnapshot snapshot = sCache.get(subId);
+            return snapshot != null && snapshot.mHideImsApn == hideImsApn ? snapshot : null;
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (sCacheLock) {
+            sCache.clear();
+        }
+    }
+
+    int getSubId() {
+        return mSubId;
+    }
+
+    /** Returns the key of the preferred APN, or null if there is none. */
+    @Nullable
+    String getSelectedKey() {
+        return mSelectedKey;
+    }
+
+    int size() {
+        return mKeys.length;
+    }
+
+    String getKey(int row) {
+        return mKeys[row];
+    }
+
+    String getName(int row) {
+        return mNames[row];
+    }
+
+    String getApn(int row) {
+        return mApns[row];
+    }
+
+    String getType(int row) {
+        return mTypes[row];
+    }
+
+    String getMvnoType(int row) {
+        return mMvnoTypes[row];
+    }
+
+    String getMvnoMatchData(int row) {
+        return mMvnoMatchData[row];
+    }
+
+    int getEditedStatus(int row) {
+        return mEditedStatus[row];
+    }
+
+    /** Returns whether {@code row} has the same data as {@code otherRow} of {@code other}. */
+    boolean isSameRow(int row, ApnSnapshot other, int otherRow) {
+        return TextUtils.equals(mKeys[row], other.mKeys[otherRow])
+                && TextUtils.equals(mNames[row], other.mNames[otherRow])
+                && TextUtils.equals(mApns[row], other.mApns[otherRow])
+                && TextUtils.equals(mTypes[row], other.mTypes[otherRow])
+                && TextUtils.equals(mMvnoTypes[row], other.mMvnoTypes[otherRow])
+                && TextUtils.equals(mMvnoMatchData[row], other.mMvnoMatchData[otherRow])
+                && mEditedStatus[row] == other.mEditedStatus[otherRow];
+    }
+
+    /** Returns whether {@code other} has the same rows, in the same order, and preferred APN. */
+    boolean isSameAs(@Nullable ApnSnapshot other) {
+        if (other == null || other.mSubId != mSubId || other.size() != size()
+                || !TextUtils.equals(other.mSelectedKey, mSelectedKey)) {
+            return false;
+        }
+        for (int row = 0; row < size(); row++) {
+            if (!isSameRow(row, other, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
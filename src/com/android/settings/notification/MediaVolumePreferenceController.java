@@ -19,7 +19,6 @@ package com.android.settings.notification;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
 import android.net.Uri;
 import android.text.TextUtils;
@@ -36,6 +35,7 @@ import com.android.settings.bluetooth.BluetoothBroadcastDialog;
 import com.android.settings.media.MediaOutputIndicatorWorker;
 import com.android.settings.slices.CustomSliceRegistry;
 import com.android.settings.slices.SliceBackgroundWorker;
+import com.android.settings.slices.SliceIconCache;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.media.BluetoothMediaDevice;
 import com.android.settingslib.media.MediaDevice;
@@ -164,13 +164,9 @@ public class MediaVolumePreferenceController extends VolumeSeekBarPreferenceCont
     }
 
     private IconCompat getBroadcastIcon(Context context) {
-        final Drawable drawable = context.getDrawable(
-                com.android.settingslib.R.drawable.settings_input_antenna);
-        if (drawable != null) {
-            drawable.setTint(Utils.getColorAccentDefaultColor(context));
-            return Utils.createIconWithDrawable(drawable);
-        }
-        return null;
+        return SliceIconCache.getIcon(context,
+                com.android.settingslib.R.drawable.settings_input_antenna,
+                Utils.getColorAccentDefaultColor(context));
     }
 
     private MediaOutputIndicatorWorker getWorker() {
@@ -32,6 +32,7 @@ import com.android.settings.biometrics.face.FaceFeatureProvider;
 import com.android.settings.biometrics2.factory.BiometricsRepositoryProvider;
 import com.android.settings.bluetooth.BluetoothFeatureProvider;
 import com.android.settings.connecteddevice.stylus.StylusFeatureProvider;
+import com.android.settings.core.instrumentation.StartupTracer;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.dashboard.suggestions.SuggestionFeatureProvider;
 import com.android.settings.deviceinfo.hardwareinfo.HardwareInfoFeatureProvider;
@@ -85,7 +86,8 @@ public abstract class FeatureFactory {
         if (TextUtils.isEmpty(clsName)) {
             throw new UnsupportedOperationException("No feature factory configured");
         }
-        try {
+        try (StartupTracer.Span span =
+                     StartupTracer.getInstance().begin("FeatureFactory#getFactory")) {
             sFactory = (FeatureFactory) context.getClassLoader().loadClass(clsName).newInstance();
         } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
             throw new FactoryNotFoundException(e);
@@ -25,7 +25,9 @@ import android.app.settings.SettingsEnums;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -85,6 +87,11 @@ public class PanelFragment extends Fragment {
      */
     private static final int DURATION_SLICE_BINDING_TIMEOUT_MS = 250;
 
+    /**
+     * Deadline for a Slice to bind any data at all, in milliseconds.
+     */
+    private static final int DURATION_SLICE_LOADING_DEADLINE_MS = 1000;
+
     @VisibleForTesting
     View mLayoutView;
     private TextView mTitleView;
@@ -105,6 +112,8 @@ public class PanelFragment extends Fragment {
     private ProgressBar mProgressBar;
 
     private final Map<Uri, LiveData<Slice>> mSliceLiveData = new LinkedHashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private List<Uri> mSliceUris = new ArrayList<>();
 
     @VisibleForTesting
     PanelSlicesLoaderCountdownLatch mPanelSlicesLoaderCountdownLatch;
@@ -327,15 +336,19 @@ public class PanelFragment extends Fragment {
     }
 
     private void loadAllSlices() {
+        mHandler.removeCallbacksAndMessages(null);
         mSliceLiveData.clear();
-        final List<Uri> sliceUris = mPanel.getSlices();
-        mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size());
+        mSliceUris = new ArrayList<>(mPanel.getSlices());
+        final PanelSlicesLoaderCountdownLatch latch =
+                new PanelSlicesLoaderCountdownLatch(mSliceUris);
+        mPanelSlicesLoaderCountdownLatch = latch;
 
-        for (Uri uri : sliceUris) {
+        for (Uri uri : mSliceUris) {
             final LiveData<Slice> sliceLiveData = SliceLiveData.fromUri(getActivity(), uri,
                     (int type, Throwable source)-> {
                             removeSliceLiveData(uri);
                             mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                            loadPanelWhenReady();
                     });
 
             // Add slice first to make it in order.  Will remove it later if there's an error.
@@ -345,9 +358,19 @@ public class PanelFragment extends Fragment {
 
                 // If the Slice has already loaded, refresh list with slice data.
                 if (mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri)) {
+                    if (mPanelSlicesLoaderCountdownLatch.getMissedDeadlineSlices().contains(uri)
+                            && (slice == null
+                            || SliceMetadata.from(getActivity(), slice).isErrorSlice())) {
+                        // A late Slice turned out to be unusable, drop its row.
+                        removeSliceLiveData(uri);
+                        loadPanelWhenReady();
+                        return;
+                    }
                     if (mAdapter != null) {
                         int itemIndex = (new ArrayList<>(mSliceLiveData.keySet())).indexOf(uri);
-                        mAdapter.notifyItemChanged(itemIndex);
+                        if (itemIndex >= 0 && itemIndex < mAdapter.getItemCount()) {
+                            mAdapter.notifyItemChanged(itemIndex);
+                        }
                     }
                     return;
                 }
@@ -374,8 +397,7 @@ public class PanelFragment extends Fragment {
                 } else if (metadata.getLoadingState() == SliceMetadata.LOADED_ALL) {
                     mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                 } else {
-                    Handler handler = new Handler();
-                    handler.postDelayed(() -> {
+                    mHandler.postDelayed(() -> {
                         mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                         loadPanelWhenReady();
                     }, DURATION_SLICE_BINDING_TIMEOUT_MS);
@@ -383,6 +405,15 @@ public class PanelFragment extends Fragment {
 
                 loadPanelWhenReady();
             });
+
+            // A Slice which does not bind in time must not hold back the rows after it.
+            mHandler.postDelayed(() -> {
+                if (latch.markSliceMissedDeadline(uri)) {
+                    Log.w(TAG, "Slice missed its " + DURATION_SLICE_LOADING_DEADLINE_MS
+                            + "ms loading deadline: " + uri);
+                    loadPanelWhenReady();
+                }
+            }, DURATION_SLICE_LOADING_DEADLINE_MS);
         }
     }
 
@@ -396,16 +427,19 @@ public class PanelFragment extends Fragment {
     }
 
     /**
-     * When all of the Slices have loaded for the first time, then we can setup the
-     * {@link RecyclerView}.
+     * Reveals the Slices progressively, in Panel order.
+     * <p>
+     * As soon as the leading Slice has loaded, we can setup the {@link RecyclerView} with it.
+     * Every following Slice is appended once all of the Slices before it have loaded, so rows
+     * which are already shown never move.
      * <p>
      * When the Recyclerview has been laid out, we can begin the animation with the
      * {@link mOnGlobalLayoutListener}, which calls {@link #animateIn()}.
      */
     private void loadPanelWhenReady() {
-        if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToLoad()) {
+        if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToReveal()) {
             mAdapter = new PanelSlicesAdapter(
-                    this, mSliceLiveData, mPanel.getMetricsCategory());
+                    this, getRevealedSliceLiveData(), mPanel.getMetricsCategory());
             mPanelSlices.setAdapter(mAdapter);
             mPanelSlices.getViewTreeObserver()
                     .addOnGlobalLayoutListener(mOnGlobalLayoutListener);
@@ -421,7 +455,31 @@ public class PanelFragment extends Fragment {
             if (mPanelSlices.getItemDecorationCount() == 0) {
                 mPanelSlices.addItemDecoration(itemDecoration);
             }
+        } else if (mAdapter != null) {
+            mAdapter.setSliceLiveData(getRevealedSliceLiveData());
+        }
+
+        if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToLoad()) {
+            for (Uri uri : mSliceUris) {
+                Log.d(TAG, "Slice " + uri + " loaded in "
+                        + mPanelSlicesLoaderCountdownLatch.getLoadLatencyMs(uri) + "ms");
+            }
+        }
+    }
+
+    /**
+     * @return the Slices whose preceding Slices, in Panel order, have all loaded.
+     */
+    private Map<Uri, LiveData<Slice>> getRevealedSliceLiveData() {
+        final Map<Uri, LiveData<Slice>> revealed = new LinkedHashMap<>();
+        final int loadedCount = mPanelSlicesLoaderCountdownLatch.getLoadedPrefixCount();
+        for (int i = 0; i < loadedCount; i++) {
+            final LiveData<Slice> sliceLiveData = mSliceLiveData.get(mSliceUris.get(i));
+            if (sliceLiveData != null) {
+                revealed.put(mSliceUris.get(i), sliceLiveData);
+            }
         }
+        return revealed;
     }
 
     /**
@@ -467,6 +525,7 @@ public class PanelFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        mHandler.removeCallbacksAndMessages(null);
 
         if (TextUtils.isEmpty(mPanelClosedKey)) {
             mPanelClosedKey = PanelClosedKeys.KEY_OTHERS;
@@ -69,6 +69,28 @@ public class PanelSlicesAdapter
         mMetricsCategory = metricsCategory;
     }
 
+    /**
+     * Replaces the Slices shown by the adapter. Slices appended after the current ones are
+     * inserted without rebinding the existing rows.
+     */
+    void setSliceLiveData(Map<Uri, LiveData<Slice>> sliceLiveData) {
+        final List<LiveData<Slice>> newData = new ArrayList<>(sliceLiveData.values());
+        final int oldSize = mSliceLiveData.size();
+        final int oldCount = getItemCount();
+        final boolean isAppendOnly = newData.size() >= oldSize
+                && newData.subList(0, oldSize).equals(mSliceLiveData);
+        if (isAppendOnly && newData.size() == oldSize) {
+            return;
+        }
+        mSliceLiveData.clear();
+        mSliceLiveData.addAll(newData);
+        if (isAppendOnly) {
+            notifyItemRangeInserted(oldCount, getItemCount() - oldCount);
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
     @NonNull
     @Override
     public SliceRowViewHolder onCreateViewHolder(@NonNull ViewGroup viewGroup, int viewType) {
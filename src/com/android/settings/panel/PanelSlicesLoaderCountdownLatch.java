@@ -17,10 +17,17 @@
 package com.android.settings.panel;
 
 import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 
 import androidx.slice.Slice;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
@@ -36,15 +43,34 @@ import java.util.concurrent.CountDownLatch;
  *     {@link Uri}. Then check if all of the Slices have loaded with
  *     {@link #isPanelReadyToLoad()}, which will return {@code true} the first time after all
  *     Slices have loaded.
+ * <p>
+ *     When constructed with the ordered list of Slice {@link Uri Uris}, the Panel can also be
+ *     revealed progressively: {@link #getLoadedPrefixCount()} returns how many leading Slices,
+ *     in Panel order, have settled, and {@link #isPanelReadyToReveal()} returns {@code true} the
+ *     first time the leading Slice has settled.
  */
 public class PanelSlicesLoaderCountdownLatch {
     private final Set<Uri> mLoadedSlices;
     private final CountDownLatch mCountDownLatch;
+    private final List<Uri> mSliceOrder;
+    private final Map<Uri, Long> mLoadLatencies = new ArrayMap<>();
+    private final Set<Uri> mMissedDeadlineSlices = new ArraySet<>();
+    private final long mStartTime;
     private boolean slicesReadyToLoad = false;
+    private boolean mPanelRevealed = false;
 
     public PanelSlicesLoaderCountdownLatch(int countdownSize) {
         mLoadedSlices = new HashSet<>();
         mCountDownLatch = new CountDownLatch(countdownSize);
+        mSliceOrder = Collections.emptyList();
+        mStartTime = SystemClock.elapsedRealtime();
+    }
+
+    public PanelSlicesLoaderCountdownLatch(List<Uri> sliceUris) {
+        mLoadedSlices = new HashSet<>();
+        mCountDownLatch = new CountDownLatch(sliceUris.size());
+        mSliceOrder = new ArrayList<>(sliceUris);
+        mStartTime = SystemClock.elapsedRealtime();
     }
 
     /**
@@ -56,9 +82,25 @@ public class PanelSlicesLoaderCountdownLatch {
             return;
         }
         mLoadedSlices.add(sliceUri);
+        mLoadLatencies.put(sliceUri, SystemClock.elapsedRealtime() - mStartTime);
         mCountDownLatch.countDown();
     }
 
+    /**
+     * Marks the {@param sliceUri} as loaded because it missed its loading deadline, so that it
+     * no longer holds back the Slices after it. It is still shown once its data arrives.
+     *
+     * @return {@code true} if the Slice had not been loaded yet.
+     */
+    public boolean markSliceMissedDeadline(Uri sliceUri) {
+        if (mLoadedSlices.contains(sliceUri)) {
+            return false;
+        }
+        mMissedDeadlineSlices.add(sliceUri);
+        markSliceLoaded(sliceUri);
+        return true;
+    }
+
     /**
      * @return {@code true} if the Slice has already been loaded.
      */
@@ -66,6 +108,47 @@ public class PanelSlicesLoaderCountdownLatch {
         return mLoadedSlices.contains(uri);
     }
 
+    /**
+     * @return the Slices which missed their loading deadline.
+     */
+    public Set<Uri> getMissedDeadlineSlices() {
+        return Collections.unmodifiableSet(mMissedDeadlineSlices);
+    }
+
+    /**
+     * @return the time in milliseconds it took the Slice to load, or -1 if it has not loaded.
+     */
+    public long getLoadLatencyMs(Uri uri) {
+        final Long latency = mLoadLatencies.get(uri);
+        return latency == null ? -1 : latency;
+    }
+
+    /**
+     * @return the number of leading Slices, in Panel order, which have been loaded.
+     */
+    public int getLoadedPrefixCount() {
+        int count = 0;
+        for (Uri uri : mSliceOrder) {
+            if (!mLoadedSlices.contains(uri)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true} when the first Slice in Panel order has loaded, and the Panel has not
+     * yet been revealed.
+     */
+    public boolean isPanelReadyToReveal() {
+        if (!mPanelRevealed && (getLoadedPrefixCount() > 0 || mCountDownLatch.getCount() == 0)) {
+            mPanelRevealed = true;
+            return true;
+        }
+        return false;
+    }
+
     /**
      * @return {@code true} when all Slices have loaded, and the Panel has not yet been loaded.
      */
@@ -80,4 +163,4 @@ public class PanelSlicesLoaderCountdownLatch {
         }
         return false;
     }
-}
\ No newline at end of file
+}
@@ -241,6 +241,11 @@ public class ChooseLockPassword extends SettingsActivity {
         // Minimum password metrics enforced by admins.
         private PasswordMetrics mMinMetrics;
         private List<PasswordValidationError> mValidationErrors;
+        // Metrics of the typed password, updated on each edit.
+        private final IncrementalPasswordMetrics mTypedPasswordMetrics =
+                new IncrementalPasswordMetrics();
+        // Errors the shown requirements were built from.
+        private List<PasswordValidationError> mShownValidationErrors;
 
         @PasswordComplexity private int mMinComplexity = PASSWORD_COMPLEXITY_NONE;
         protected int mUserId;
@@ -613,6 +618,7 @@ public class ChooseLockPassword extends SettingsActivity {
             if (mCurrentCredential != null) {
                 mCurrentCredential.zeroize();
             }
+            mTypedPasswordMetrics.clear();
             // Force a garbage collection immediately to remove remnant of user password shards
             // from memory.
             System.gc();
@@ -743,6 +749,30 @@ public class ChooseLockPassword extends SettingsActivity {
             final byte[] password = credential.getCredential();
             mValidationErrors = PasswordMetrics.validatePassword(
                     mMinMetrics, mMinComplexity, !mIsAlphaMode, password);
+            return checkPasswordHistoryIfCompliant(password);
+        }
+
+        /**
+         * Same as {@link #validatePassword} for the password in the entry, using the metrics kept
+         * up to date as the user types instead of analyzing the whole password again.
+         */
+        @VisibleForTesting
+        boolean validateTypedPassword(LockscreenCredential credential) {
+            if (mTypedPasswordMetrics.length() != credential.size()) {
+                // The text changed without the watcher being told, start over.
+                mTypedPasswordMetrics.reset(mPasswordEntry.getText());
+            }
+            if (mTypedPasswordMetrics.hasInvalidCharacters()) {
+                mValidationErrors = Collections.singletonList(
+                        new PasswordValidationError(CONTAINS_INVALID_CHARACTERS));
+            } else {
+                mValidationErrors = PasswordMetrics.validatePasswordMetrics(mMinMetrics,
+                        mMinComplexity, mTypedPasswordMetrics.getMetrics(!mIsAlphaMode));
+            }
+            return checkPasswordHistoryIfCompliant(credential.getCredential());
+        }
+
+        private boolean checkPasswordHistoryIfCompliant(byte[] password) {
             if (mValidationErrors.isEmpty() &&  mLockPatternUtils.checkPasswordHistory(
                         password, getPasswordHistoryHashFactor(), mUserId)) {
                 mValidationErrors =
@@ -751,6 +781,20 @@ public class ChooseLockPassword extends SettingsActivity {
             return mValidationErrors.isEmpty();
         }
 
+        private static boolean sameErrors(List<PasswordValidationError> errors,
+                List<PasswordValidationError> otherErrors) {
+            if (errors == null || otherErrors == null || errors.size() != otherErrors.size()) {
+                return false;
+            }
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i).errorCode != otherErrors.get(i).errorCode
+                        || errors.get(i).requirement != otherErrors.get(i).requirement) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         /**
          * Lazily compute and return the history hash factor of the current user (mUserId), used for
          * password history check.
@@ -926,10 +970,12 @@ public class ChooseLockPassword extends SettingsActivity {
             final int length = password.size();
             if (mUiStage == Stage.Introduction) {
                 mPasswordRestrictionView.setVisibility(View.VISIBLE);
-                final boolean passwordCompliant = validatePassword(password);
-                String[] messages = convertErrorCodeToMessages();
-                // Update the fulfillment of requirements.
-                mPasswordRequirementAdapter.setRequirements(messages);
+                final boolean passwordCompliant = validateTypedPassword(password);
+                // Update the fulfillment of requirements, if it changed.
+                if (!sameErrors(mValidationErrors, mShownValidationErrors)) {
+                    mPasswordRequirementAdapter.setRequirements(convertErrorCodeToMessages());
+                    mShownValidationErrors = mValidationErrors;
+                }
                 // set the visibility of pin_auto_confirm option accordingly
                 setAutoPinConfirmOption(passwordCompliant, length);
                 // Enable/Disable the next button accordingly.
@@ -1021,7 +1067,7 @@ public class ChooseLockPassword extends SettingsActivity {
         }
 
         public void onTextChanged(CharSequence s, int start, int before, int count) {
-
+            mTypedPasswordMetrics.onTextChanged(s, start);
         }
 
         private void startSaveAndFinish() {
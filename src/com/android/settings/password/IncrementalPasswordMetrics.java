@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.password;
+
+import static com.android.internal.widget.LockPatternUtils.CREDENTIAL_TYPE_PASSWORD;
+import static com.android.internal.widget.LockPatternUtils.CREDENTIAL_TYPE_PIN;
+
+import android.app.admin.PasswordMetrics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@link PasswordMetrics} of the password being typed in {@link ChooseLockPassword} up
+ * to date edit by edit.
+ *
+ * <p>The metrics are computed like {@link PasswordMetrics#computeForPasswordOrPin}, but the state
+ * of the computation is kept for every prefix of the password. An edit only re-scans the
+ * characters from the edit position onwards, so typing or deleting at the end of the password
+ * takes constant time whatever its length.
+ *
+ * <p>The kept state is derived from the password, call {@link #clear()} once it is not needed.
+ */
+class IncrementalPasswordMetrics {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Character categories, as in PasswordMetrics.
+    private static final int CHAR_LOWER_CASE = 0;
+    private static final int CHAR_UPPER_CASE = 1;
+    private static final int CHAR_DIGIT = 2;
+    private static final int CHAR_SYMBOL = 3;
+
+    // Fields of the state after each prefix, stored with a stride of STATE_SIZE.
+    private static final int LOWER_CASE = 0;
+    private static final int UPPER_CASE = 1;
+    private static final int DIGITS = 2;
+    private static final int SYMBOLS = 3;
+    private static final int INVALID = 4;
+    // State of the longest sequence scan, see PasswordMetrics#maxLengthSequence.
+    private static final int SEQ_CATEGORY = 5;
+    private static final int SEQ_DIFF = 6;
+    private static final int SEQ_HAS_DIFF = 7;
+    private static final int SEQ_START = 8;
+    private static final int SEQ_MAX_LENGTH = 9;
+    private static final int STATE_SIZE = 10;
+
+    private int[] mStates = new int[(INITIAL_CAPACITY + 1) * STATE_SIZE];
+    private int mLength;
+
+    /**
+     * Updates the metrics after the text changed from position {@code start} onwards, as
+     * reported by {@link android.text.TextWatcher#onTextChanged}.
+     */
+    void onTextChanged(CharSequence text, int start) {
+        final int oldLength = mLength;
+        final int newLength = text.length();
+        ensureCapacity(newLength);
+        for (int i = Math.min(start, oldLength); i < newLength; i++) {
+            step(text, i);
+        }
+        mLength = newLength;
+        if (newLength < oldLength) {
+            Arrays.fill(mStates, (newLength + 1) * STATE_SIZE, (oldLength + 1) * STATE_SIZE, 0);
+        }
+    }
+
+    /** Recomputes the metrics of {@code text} from scratch. */
+    void reset(CharSequence text) {
+        onTextChanged(text, 0);
+    }
+
+    /** Forgets the password. */
+    void clear() {
+        Arrays.fill(mStates, 0);
+        mLength = 0;
+    }
+
+    int length() {
+        return mLength;
+    }
+
+    /** Whether the password has characters which are not allowed in a credential. */
+    boolean hasInvalidCharacters() {
+        return mStates[mLength * STATE_SIZE + INVALID] > 0;
+    }
+
+    /** Returns the metrics of the password, equal to those computed by the platform. */
+    PasswordMetrics getMetrics(boolean isPin) {
+        final int base = mLength * STATE_SIZE;
+        final int lowerCase = mStates[base + LOWER_CASE];
+        final int upperCase = mStates[base + UPPER_CASE];
+        final int digits = mStates[base + DIGITS];
+        final int symbols = mStates[base + SYMBOLS];
+        final int seqLength = mLength == 0 ? 0
+                : Math.max(mStates[base + SEQ_MAX_LENGTH], mLength - mStates[base + SEQ_START]);
+        return new PasswordMetrics(isPin ? CREDENTIAL_TYPE_PIN : CREDENTIAL_TYPE_PASSWORD,
+                mLength, lowerCase + upperCase, upperCase, lowerCase, digits, symbols,
+                digits + symbols /* nonLetter */, lowerCase + upperCase + symbols /* nonNumeric */,
+                seqLength);
+    }
+
+    /** Computes the state after {@code i + 1} characters from the state after {@code i}. */
+    private void step(CharSequence text, int i) {
+        final int base = i * STATE_SIZE;
+        final int next = base + STATE_SIZE;
+        System.arraycopy(mStates, base, mStates, next, STATE_SIZE);
+
+        final char c = toCredentialChar(text.charAt(i));
+        final int category = categoryChar(c);
+        switch (category) {
+            case CHAR_LOWER_CASE:
+                mStates[next + LOWER_CASE]++;
+                break;
+            case CHAR_UPPER_CASE:
+                mStates[next + UPPER_CASE]++;
+                break;
+            case CHAR_DIGIT:
+                mStates[next + DIGITS]++;
+                break;
+            default:
+                mStates[next + SYMBOLS]++;
+        }
+        // Allow non-control Latin-1 characters only.
+        if (c < 32 || c > 127) {
+            mStates[next + INVALID]++;
+        }
+
+        if (i == 0) {
+            mStates[next + SEQ_CATEGORY] = category;
+            mStates[next + SEQ_DIFF] = 0;
+            mStates[next + SEQ_HAS_DIFF] = 0;
+            mStates[next + SEQ_START] = 0;
+            mStates[next + SEQ_MAX_LENGTH] = 0;
+            return;
+        }
+        final int diff = (int) c - (int) toCredentialChar(text.charAt(i - 1));
+        final int seqCategory = mStates[next + SEQ_CATEGORY];
+        if (category != seqCategory || Math.abs(diff) > maxDiffCategory(seqCategory)) {
+            mStates[next + SEQ_MAX_LENGTH] = Math.max(mStates[next + SEQ_MAX_LENGTH],
+                    i - mStates[next + SEQ_START]);
+            mStates[next + SEQ_START] = i;
+            mStates[next + SEQ_HAS_DIFF] = 0;
+            mStates[next + SEQ_CATEGORY] = category;
+        } else {
+            if (mStates[next + SEQ_HAS_DIFF] != 0 && diff != mStates[next + SEQ_DIFF]) {
+                mStates[next + SEQ_MAX_LENGTH] = Math.max(mStates[next + SEQ_MAX_LENGTH],
+                        i - mStates[next + SEQ_START]);
+                mStates[next + SEQ_START] = i - 1;
+            }
+            mStates[next + SEQ_DIFF] = diff;
+            mStates[next + SEQ_HAS_DIFF] = 1;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        final int size = (length + 1) * STATE_SIZE;
+        if (size <= mStates.length) {
+            return;
+        }
+        final int[] states = Arrays.copyOf(mStates, Math.max(size, mStates.length * 2));
+        Arrays.fill(mStates, 0);
+        mStates = states;
+    }
+
+    /** Converts the character the same way as {@code LockscreenCredential} stores it. */
+    private static char toCredentialChar(char c) {
+        return (char) (byte) c;
+    }
+
+    private static int categoryChar(char c) {
+        if ('a' <= c && c <= 'z') return CHAR_LOWER_CASE;
+        if ('A' <= c && c <= 'Z') return CHAR_UPPER_CASE;
+        if ('0' <= c && c <= '9') return CHAR_DIGIT;
+        return CHAR_SYMBOL;
+    }
+
+    private static int maxDiffCategory(int category) {
+        switch (category) {
+            case CHAR_LOWER_CASE:
+            case CHAR_UPPER_CASE:
+                return 1;
+            case CHAR_DIGIT:
+                return 10;
+            default:
+                return 0;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
@@ -54,9 +55,35 @@ public class PasswordRequirementAdapter extends
         return  mRequirements.length;
     }
 
+    /** Sets the requirements to show, only re-rendering the rows which changed. */
     public void setRequirements(String[] requirements) {
+        final String[] oldRequirements = mRequirements;
         mRequirements = requirements;
-        notifyDataSetChanged();
+        if (oldRequirements == null) {
+            notifyDataSetChanged();
+            return;
+        }
+        DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRequirements.length;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return requirements.length;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldRequirements[oldItemPosition].equals(requirements[newItemPosition]);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return true;
+            }
+        }, false /* detectMoves */).dispatchUpdatesTo(this);
     }
 
     @Override
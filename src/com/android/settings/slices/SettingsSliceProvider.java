@@ -37,6 +37,7 @@ import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.KeyValueListParser;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
@@ -130,6 +131,9 @@ public class SettingsSliceProvider extends SliceProvider {
                     CustomSliceRegistry.ZEN_MODE_SLICE_URI
             );
 
+    @VisibleForTesting
+    static final int MAX_SLICE_DESCRIPTORS = 32;
+
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
     @VisibleForTesting
@@ -138,6 +142,13 @@ public class SettingsSliceProvider extends SliceProvider {
     @VisibleForTesting
     Map<Uri, SliceData> mSliceWeakDataCache;
 
+    // Compiled from the entries of mSliceWeakDataCache, a descriptor is only used for the very
+    // SliceData it was compiled from, and dropped once that SliceData is gone from the cache.
+    // Bounded, as the descriptors hold their SliceData, controller and pending intents.
+    @VisibleForTesting
+    final LruCache<Uri, SliceDescriptor> mSliceDescriptors =
+            new LruCache<>(MAX_SLICE_DESCRIPTORS);
+
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
 
@@ -198,6 +209,7 @@ public class SettingsSliceProvider extends SliceProvider {
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
         mSliceWeakDataCache.remove(sliceUri);
+        mSliceDescriptors.remove(sliceUri);
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -274,10 +286,12 @@ public class SettingsSliceProvider extends SliceProvider {
 
             final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
             if (cachedSliceData == null) {
+                mSliceDescriptors.remove(sliceUri);
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
-            return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            return SliceBuilderUtils.buildSlice(getContext(),
+                    getSliceDescriptor(sliceUri, cachedSliceData));
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
             if (!mFirstSliceBound) {
@@ -432,6 +446,7 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
+        mSliceDescriptors.put(uri, new SliceDescriptor(getContext(), sliceData, controller));
         mSliceWeakDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
@@ -439,6 +454,20 @@ public class SettingsSliceProvider extends SliceProvider {
                 (System.currentTimeMillis() - startBuildTime));
     }
 
+    /**
+     * Returns the descriptor of {@code sliceData}, compiling it if the slice was loaded without
+     * one or with another {@link SliceData}.
+     */
+    @VisibleForTesting
+    SliceDescriptor getSliceDescriptor(Uri uri, SliceData sliceData) {
+        SliceDescriptor descriptor = mSliceDescriptors.get(uri);
+        if (descriptor == null || descriptor.getSliceData() != sliceData) {
+            descriptor = new SliceDescriptor(getContext(), sliceData);
+            mSliceDescriptors.put(uri, descriptor);
+        }
+        return descriptor;
+    }
+
     @VisibleForTesting
     void loadSliceInBackground(Uri uri) {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
@@ -34,7 +34,6 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.Pair;
 
-import androidx.annotation.VisibleForTesting;
 import androidx.core.graphics.drawable.IconCompat;
 import androidx.slice.Slice;
 import androidx.slice.builders.ListBuilder;
@@ -47,6 +46,7 @@ import com.android.settings.SettingsActivity;
 import com.android.settings.SubSettings;
 import com.android.settings.Utils;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.PreferenceControllerRegistry;
 import com.android.settings.core.SliderPreferenceController;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.core.TogglePreferenceController;
@@ -75,7 +75,16 @@ public class SliceBuilderUtils {
      */
     public static Slice buildSlice(Context context, SliceData sliceData) {
         Log.d(TAG, "Creating slice for: " + sliceData.getPreferenceController());
-        final BasePreferenceController controller = getPreferenceController(context, sliceData);
+        return buildSlice(context, new SliceDescriptor(context, sliceData));
+    }
+
+    /**
+     * Build a Slice from a {@link SliceDescriptor} compiled earlier, only reading the live state
+     * of its controller.
+     */
+    static Slice buildSlice(Context context, SliceDescriptor descriptor) {
+        final SliceData sliceData = descriptor.getSliceData();
+        final BasePreferenceController controller = descriptor.getController();
 
         if (!controller.isAvailable()) {
             // Cannot guarantee setting page is accessible, let the presenter handle error case.
@@ -83,16 +92,16 @@ public class SliceBuilderUtils {
         }
 
         if (controller.getAvailabilityStatus() == DISABLED_DEPENDENT_SETTING) {
-            return buildUnavailableSlice(context, sliceData);
+            return buildUnavailableSlice(context, descriptor);
         }
 
         switch (sliceData.getSliceType()) {
             case SliceData.SliceType.INTENT:
-                return buildIntentSlice(context, sliceData, controller);
+                return buildIntentSlice(context, descriptor);
             case SliceData.SliceType.SWITCH:
-                return buildToggleSlice(context, sliceData, controller);
+                return buildToggleSlice(context, descriptor);
             case SliceData.SliceType.SLIDER:
-                return buildSliderSlice(context, sliceData, controller);
+                return buildSliderSlice(context, descriptor);
             default:
                 throw new IllegalArgumentException(
                         "Slice type passed was invalid: " + sliceData.getSliceType());
@@ -241,17 +250,18 @@ public class SliceBuilderUtils {
         return intent;
     }
 
-    private static Slice buildToggleSlice(Context context, SliceData sliceData,
-            BasePreferenceController controller) {
-        final PendingIntent contentIntent = getContentPendingIntent(context, sliceData);
-        final IconCompat icon = getSafeIcon(context, sliceData);
+    private static Slice buildToggleSlice(Context context, SliceDescriptor descriptor) {
+        final SliceData sliceData = descriptor.getSliceData();
+        final BasePreferenceController controller = descriptor.getController();
+        final PendingIntent contentIntent = descriptor.getContentIntent();
+        final IconCompat icon = descriptor.getIcon();
         final CharSequence subtitleText = getSubtitleText(context, controller, sliceData);
         @ColorInt final int color = Utils.getColorAccentDefaultColor(context);
         final TogglePreferenceController toggleController =
                 (TogglePreferenceController) controller;
-        final SliceAction sliceAction = getToggleAction(context, sliceData,
-                toggleController.isChecked());
-        final Set<String> keywords = buildSliceKeywords(sliceData);
+        final SliceAction sliceAction = SliceAction.createToggle(descriptor.getActionIntent(),
+                null, toggleController.isChecked());
+        final Set<String> keywords = descriptor.getKeywords();
         final RowBuilder rowBuilder = new RowBuilder()
                 .setTitle(sliceData.getTitle())
                 .setPrimaryAction(
@@ -269,13 +279,14 @@ public class SliceBuilderUtils {
                 .build();
     }
 
-    private static Slice buildIntentSlice(Context context, SliceData sliceData,
-            BasePreferenceController controller) {
-        final PendingIntent contentIntent = getContentPendingIntent(context, sliceData);
-        final IconCompat icon = getSafeIcon(context, sliceData);
-        final CharSequence subtitleText = getSubtitleText(context, controller, sliceData);
+    private static Slice buildIntentSlice(Context context, SliceDescriptor descriptor) {
+        final SliceData sliceData = descriptor.getSliceData();
+        final PendingIntent contentIntent = descriptor.getContentIntent();
+        final IconCompat icon = descriptor.getIcon();
+        final CharSequence subtitleText =
+                getSubtitleText(context, descriptor.getController(), sliceData);
         @ColorInt final int color = Utils.getColorAccentDefaultColor(context);
-        final Set<String> keywords = buildSliceKeywords(sliceData);
+        final Set<String> keywords = descriptor.getKeywords();
         final RowBuilder rowBuilder = new RowBuilder()
                 .setTitle(sliceData.getTitle())
                 .setPrimaryAction(
@@ -293,21 +304,22 @@ public class SliceBuilderUtils {
                 .build();
     }
 
-    private static Slice buildSliderSlice(Context context, SliceData sliceData,
-            BasePreferenceController controller) {
+    private static Slice buildSliderSlice(Context context, SliceDescriptor descriptor) {
+        final SliceData sliceData = descriptor.getSliceData();
+        final BasePreferenceController controller = descriptor.getController();
         final SliderPreferenceController sliderController = (SliderPreferenceController) controller;
         if (sliderController.getMax() <= sliderController.getMin()) {
             Log.e(TAG, "Invalid sliderController: " + sliderController.getPreferenceKey());
             return null;
         }
-        final PendingIntent actionIntent = getSliderAction(context, sliceData);
-        final PendingIntent contentIntent = getContentPendingIntent(context, sliceData);
-        final IconCompat icon = getSafeIcon(context, sliceData);
+        final PendingIntent actionIntent = descriptor.getActionIntent();
+        final PendingIntent contentIntent = descriptor.getContentIntent();
+        final IconCompat icon = descriptor.getIcon();
         @ColorInt int color = Utils.getColorAccentDefaultColor(context);
         final CharSequence subtitleText = getSubtitleText(context, controller, sliceData);
         final SliceAction primaryAction = SliceAction.createDeeplink(contentIntent, icon,
                 ListBuilder.ICON_IMAGE, sliceData.getTitle());
-        final Set<String> keywords = buildSliceKeywords(sliceData);
+        final Set<String> keywords = descriptor.getKeywords();
 
         int cur = sliderController.getSliderPosition();
         if (cur < sliderController.getMin()) {
@@ -345,26 +357,17 @@ public class SliceBuilderUtils {
 
     static BasePreferenceController getPreferenceController(Context context,
             String controllerClassName, String controllerKey) {
-        try {
-            return BasePreferenceController.createInstance(context, controllerClassName);
-        } catch (IllegalStateException e) {
-            // Do nothing
+        if (PreferenceControllerRegistry.getContextFactory(controllerClassName) != null) {
+            try {
+                return BasePreferenceController.createInstance(context, controllerClassName);
+            } catch (IllegalStateException e) {
+                // Do nothing
+            }
         }
 
         return BasePreferenceController.createInstance(context, controllerClassName, controllerKey);
     }
 
-    private static SliceAction getToggleAction(Context context, SliceData sliceData,
-            boolean isChecked) {
-        PendingIntent actionIntent = getActionIntent(context,
-                SettingsSliceProvider.ACTION_TOGGLE_CHANGED, sliceData);
-        return SliceAction.createToggle(actionIntent, null, isChecked);
-    }
-
-    private static PendingIntent getSliderAction(Context context, SliceData sliceData) {
-        return getActionIntent(context, SettingsSliceProvider.ACTION_SLIDER_CHANGED, sliceData);
-    }
-
     private static boolean isValidSummary(Context context, CharSequence summary) {
         if (summary == null || TextUtils.isEmpty(summary.toString().trim())) {
             return false;
@@ -378,7 +381,7 @@ public class SliceBuilderUtils {
                 || TextUtils.equals(summary, doublePlaceHolder));
     }
 
-    private static Set<String> buildSliceKeywords(SliceData data) {
+    static Set<String> buildSliceKeywords(SliceData data) {
         final Set<String> keywords = new ArraySet<>();
 
         keywords.add(data.getTitle());
@@ -400,18 +403,18 @@ public class SliceBuilderUtils {
         return keywords;
     }
 
-    private static Slice buildUnavailableSlice(Context context, SliceData data) {
+    private static Slice buildUnavailableSlice(Context context, SliceDescriptor descriptor) {
+        final SliceData data = descriptor.getSliceData();
         final String title = data.getTitle();
-        final Set<String> keywords = buildSliceKeywords(data);
+        final Set<String> keywords = descriptor.getKeywords();
         @ColorInt final int color = Utils.getColorAccentDefaultColor(context);
 
         final String customSubtitle = data.getUnavailableSliceSubtitle();
         final CharSequence subtitle = !TextUtils.isEmpty(customSubtitle) ? customSubtitle
                 : context.getText(R.string.disabled_dependent_setting_summary);
-        final IconCompat icon = getSafeIcon(context, data);
+        final IconCompat icon = descriptor.getIcon();
         final SliceAction primaryAction = SliceAction.createDeeplink(
-                getContentPendingIntent(context, data),
-                icon, ListBuilder.ICON_IMAGE, title);
+                descriptor.getContentIntent(), icon, ListBuilder.ICON_IMAGE, title);
         final RowBuilder rowBuilder = new RowBuilder()
                 .setTitle(title)
                 .setTitleItem(icon, ListBuilder.ICON_IMAGE)
@@ -427,7 +430,6 @@ public class SliceBuilderUtils {
                 .build();
     }
 
-    @VisibleForTesting
     static IconCompat getSafeIcon(Context context, SliceData data) {
         int iconResource = data.getIconResource();
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.app.PendingIntent;
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.core.graphics.drawable.IconCompat;
+
+import com.android.settings.core.BasePreferenceController;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The parts of a {@link SliceData} based slice which don't change between binds: the controller,
+ * the pending intents, the icon and the keywords.
+ *
+ * <p>Compiled once per slice {@link android.net.Uri} by {@link SettingsSliceProvider}, so that a
+ * rebind only reads the live state of the controller, see
+ * {@link SliceBuilderUtils#buildSlice(Context, SliceDescriptor)}.
+ */
+class SliceDescriptor {
+
+    private final SliceData mSliceData;
+    private final BasePreferenceController mController;
+    private final PendingIntent mContentIntent;
+    private final IconCompat mIcon;
+    private final Set<String> mKeywords;
+    // Toggle or slider action, null for intent slices.
+    @Nullable
+    private final PendingIntent mActionIntent;
+
+    SliceDescriptor(Context context, SliceData sliceData) {
+        this(context, sliceData, SliceBuilderUtils.getPreferenceController(context, sliceData));
+    }
+
+    SliceDescriptor(Context context, SliceData sliceData, BasePreferenceController controller) {
+        mSliceData = sliceData;
+        mController = controller;
+        mContentIntent = SliceBuilderUtils.getContentPendingIntent(context, sliceData);
+        mIcon = SliceBuilderUtils.getSafeIcon(context, sliceData);
+        mKeywords = Collections.unmodifiableSet(SliceBuilderUtils.buildSliceKeywords(sliceData));
+        switch (sliceData.getSliceType()) {
+            case SliceData.SliceType.SWITCH:
+                mActionIntent = SliceBuilderUtils.getActionIntent(context,
+                        SettingsSliceProvider.ACTION_TOGGLE_CHANGED, sliceData);
+                break;
+            case SliceData.SliceType.SLIDER:
+                mActionIntent = SliceBuilderUtils.getActionIntent(context,
+                        SettingsSliceProvider.ACTION_SLIDER_CHANGED, sliceData);
+                break;
+            default:
+                mActionIntent = null;
+        }
+    }
+
+    SliceData getSliceData() {
+        return mSliceData;
+    }
+
+    BasePreferenceController getController() {
+        return mController;
+    }
+
+    PendingIntent getContentIntent() {
+        return mContentIntent;
+    }
+
+    IconCompat getIcon() {
+        return mIcon;
+    }
+
+    Set<String> getKeywords() {
+        return mKeywords;
+    }
+
+    @Nullable
+    PendingIntent getActionIntent() {
+        return mActionIntent;
+    }
+}
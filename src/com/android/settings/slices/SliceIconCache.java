@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.graphics.drawable.IconCompat;
+
+import com.android.settings.Utils;
+
+/**
+ * Caches the rasterized icons of slice rows, so that rebinding a slice doesn't allocate and draw
+ * a new bitmap for every row.
+ */
+public class SliceIconCache {
+
+    // Enough for the rows of the Wi-Fi and internet slices in all their tints.
+    private static final int MAX_SIZE_BYTES = 1024 * 1024;
+
+    private static final LruCache<Key, IconCompat> sIcons =
+            new LruCache<Key, IconCompat>(MAX_SIZE_BYTES) {
+                @Override
+                protected int sizeOf(Key key, IconCompat icon) {
+                    return icon.getBitmap().getAllocationByteCount();
+                }
+            };
+
+    private static final IconCompat EMPTY_ICON =
+            Utils.createIconWithDrawable(new ColorDrawable(Color.TRANSPARENT));
+
+    private SliceIconCache() {
+    }
+
+    /**
+     * Returns the icon of the drawable {@code resId} tinted with {@code tint}, or null if there is
+     * no such drawable.
+     */
+    @Nullable
+    public static IconCompat getIcon(Context context, @DrawableRes int resId, @ColorInt int tint) {
+        final Drawable drawable = context.getDrawable(resId);
+        if (drawable == null) {
+            return null;
+        }
+        final Key key = new Key(resId, tint, drawable.getIntrinsicWidth(),
+                drawable.getIntrinsicHeight(), context.getResources().getConfiguration().uiMode);
+        IconCompat icon = sIcons.get(key);
+        if (icon == null) {
+            drawable.setTint(tint);
+            icon = Utils.createIconWithDrawable(drawable);
+            sIcons.put(key, icon);
+        }
+        return icon;
+    }
+
+    /** Returns a transparent icon, for aligning rows without an icon to the other rows. */
+    public static IconCompat getEmptyIcon() {
+        return EMPTY_ICON;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        sIcons.evictAll();
+    }
+
+    private static class Key {
+        private final int mResId;
+        private final int mTint;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mUiMode;
+
+        Key(int resId, int tint, int width, int height, int uiMode) {
+            mResId = resId;
+            mTint = tint;
+            mWidth = width;
+            mHeight = height;
+            mUiMode = uiMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mResId == other.mResId && mTint == other.mTint && mWidth == other.mWidth
+                    && mHeight == other.mHeight && mUiMode == other.mUiMode;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mResId;
+            result = 31 * result + mTint;
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + mUiMode;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the slice change notifications of the {@link SliceBackgroundWorker}s.
+ *
+ * <p>Each slice {@link Uri} is notified at most once per {@link #THROTTLE_INTERVAL_MS}, and its
+ * first notification after being pinned is postponed by the same interval. Notifications of
+ * different slices which are due within {@link #BATCH_WINDOW_MS} of each other are sent together,
+ * so that workers updating at the same time, like during a scan, wake the thread once.
+ */
+public class SliceNotifyDispatcher extends Handler {
+
+    @VisibleForTesting
+    static final long THROTTLE_INTERVAL_MS = 300L;
+    // About a frame.
+    @VisibleForTesting
+    static final long BATCH_WINDOW_MS = 16L;
+
+    private static final int MSG_DISPATCH = 1000;
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static SliceNotifyDispatcher sInstance;
+
+    @GuardedBy("this")
+    private final ArrayMap<Uri, UriState> mStates = new ArrayMap<>();
+    // Time the pending dispatch message is scheduled at, 0 if there is none.
+    @GuardedBy("this")
+    private long mScheduledTime;
+    @GuardedBy("this")
+    private int mDispatchCount;
+
+    static SliceNotifyDispatcher getInstance() {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
+                        Process.THREAD_PRIORITY_BACKGROUND);
+                workerThread.start();
+                sInstance = new SliceNotifyDispatcher(workerThread.getLooper());
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    SliceNotifyDispatcher(Looper looper) {
+        super(looper);
+    }
+
+    /** Requests a notification of {@code uri}, unless one is already pending. */
+    void requestNotify(ContentResolver resolver, Uri uri) {
+        final long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            final UriState state = getStateLocked(uri, now);
+            state.mResolver = resolver;
+            if (state.mDueTime != 0) {
+                state.mCoalescedCount++;
+                return;
+            }
+            state.mDueTime = state.mLastNotifyTime == 0
+                    // Postpone the first update triggering by onSlicePinned() to avoid being too
+                    // close to the first Slice bind.
+                    ? now + THROTTLE_INTERVAL_MS
+                    : Math.max(now, state.mLastNotifyTime + THROTTLE_INTERVAL_MS);
+            scheduleLocked(state.mDueTime);
+        }
+    }
+
+    /** Cancels the pending notification of {@code uri}, the next one is postponed again. */
+    void cancelNotify(Uri uri) {
+        synchronized (this) {
+            final UriState state = mStates.get(uri);
+            if (state != null) {
+                state.mDueTime = 0;
+                state.mLastNotifyTime = 0;
+                state.mResolver = null;
+            }
+        }
+    }
+
+    /** Records that a worker of {@code uri} got results identical to the previous ones. */
+    void recordUnchangedResults(Uri uri) {
+        final long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            getStateLocked(uri, now).mUnchangedCount++;
+        }
+    }
+
+    @GuardedBy("this")
+    private UriState getStateLocked(Uri uri, long now) {
+        UriState state = mStates.get(uri);
+        if (state == null) {
+            state = new UriState(now);
+            mStates.put(uri, state);
+        }
+        return state;
+    }
+
+    @GuardedBy("this")
+    private void scheduleLocked(long time) {
+        if (mScheduledTime != 0 && mScheduledTime <= time) {
+            return;
+        }
+        removeMessages(MSG_DISPATCH);
+        mScheduledTime = time;
+        sendMessageAtTime(obtainMessage(MSG_DISPATCH), time);
+    }
+
+    @Override
+    public void handleMessage(Message msg) {
+        if (msg.what != MSG_DISPATCH) {
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        final List<Uri> uris = new ArrayList<>();
+        final List<ContentResolver> resolvers = new ArrayList<>();
+        synchronized (this) {
+            mScheduledTime = 0;
+            long nextDueTime = 0;
+            for (int i = 0; i < mStates.size(); i++) {
+                final UriState state = mStates.valueAt(i);
+                if (state.mDueTime == 0) {
+                    continue;
+                }
+                if (state.mDueTime > now + BATCH_WINDOW_MS) {
+                    nextDueTime = nextDueTime == 0
+                            ? state.mDueTime : Math.min(nextDueTime, state.mDueTime);
+                    continue;
+                }
+                state.mDueTime = 0;
+                state.mLastNotifyTime = now;
+                state.mNotifyCount++;
+                uris.add(mStates.keyAt(i));
+                resolvers.add(state.mResolver);
+            }
+            if (!uris.isEmpty()) {
+                mDispatchCount++;
+            }
+            if (nextDueTime != 0) {
+                scheduleLocked(nextDueTime);
+            }
+        }
+        for (int i = 0; i < uris.size(); i++) {
+            resolvers.get(i).notifyChange(uris.get(i), null);
+        }
+    }
+
+    /** Returns the notify rates and suppressed updates of each slice, for dumpsys. */
+    public static JSONObject dumpJson() throws JSONException {
+        final SliceNotifyDispatcher dispatcher;
+        synchronized (sInstanceLock) {
+            dispatcher = sInstance;
+        }
+        return dispatcher != null ? dispatcher.dumpStatsJson() : new JSONObject();
+    }
+
+    @VisibleForTesting
+    synchronized JSONObject dumpStatsJson() throws JSONException {
+        final long now = SystemClock.uptimeMillis();
+        final JSONObject obj = new JSONObject();
+        obj.put("dispatches", mDispatchCount);
+        final JSONObject uris = new JSONObject();
+        for (int i = 0; i < mStates.size(); i++) {
+            final UriState state = mStates.valueAt(i);
+            final long minutes = Math.max(1, (now - state.mFirstRequestTime) / 60000);
+            final JSONObject uri = new JSONObject();
+            uri.put("notifies", state.mNotifyCount);
+            uri.put("notifiesPerMinute", state.mNotifyCount / minutes);
+            uri.put("coalesced", state.mCoalescedCount);
+            uri.put("unchanged", state.mUnchangedCount);
+            uri.put("pending", state.mDueTime != 0);
+            uris.put(mStates.keyAt(i).toString(), uri);
+        }
+        obj.put("uris", uris);
+        return obj;
+    }
+
+    @VisibleForTesting
+    synchronized int getNotifyCount(Uri uri) {
+        final UriState state = mStates.get(uri);
+        return state != null ? state.mNotifyCount : 0;
+    }
+
+    @VisibleForTesting
+    synchronized int getDispatchCount() {
+        return mDispatchCount;
+    }
+
+    private static class UriState {
+        final long mFirstRequestTime;
+        ContentResolver mResolver;
+        // Time the pending notification is due, 0 if there is none.
+        long mDueTime;
+        // Time of the last notification since the slice was pinned, 0 if there is none.
+        long mLastNotifyTime;
+        int mNotifyCount;
+        // Requests dropped as a notification was already pending.
+        int mCoalescedCount;
+        int mUnchangedCount;
+
+        UriState(long firstRequestTime) {
+            mFirstRequestTime = firstRequestTime;
+        }
+    }
+}
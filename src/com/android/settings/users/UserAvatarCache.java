@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.annotation.WorkerThread;
+import android.content.pm.UserInfo;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.UserManager;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.util.UserIcons;
+import com.android.settingslib.drawable.CircleFramedDrawable;
+
+import java.io.File;
+
+/**
+ * Process-wide cache of user avatars, shared by the screens which show them.
+ *
+ * <p>Avatars are kept encircled and scaled down to the size they are shown at, so the full size
+ * photos are only decoded once per photo version. The photo version of a user is the modification
+ * time of the photo file, which is checked whenever an avatar is loaded in the background.
+ * Cached avatars are also dropped when {@link #invalidateUser} is called for the user.
+ */
+public class UserAvatarCache {
+
+    // Photo version of avatars whose photo file was not checked.
+    private static final long PHOTO_VERSION_UNKNOWN = -1;
+    @VisibleForTesting
+    static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final String ACCOUNT_AVATAR_KEY = "account";
+
+    private static UserAvatarCache sInstance;
+
+    private final LruCache<String, Entry> mAvatars = new LruCache<String, Entry>(MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.mBitmap.getByteCount();
+        }
+    };
+    // Bumped on invalidation, entries of an older generation are not returned.
+    @GuardedBy("this")
+    private final SparseIntArray mGenerations = new SparseIntArray();
+
+    public static synchronized UserAvatarCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new UserAvatarCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void resetInstance() {
+        sInstance = null;
+    }
+
+    /**
+     * Returns the cached avatar of the user at the given size, or {@code null} if it has to be
+     * loaded. Doesn't touch the disk, so it can be used on the main thread, but doesn't check the
+     * photo version either: callers should check it with {@link #loadUserAvatar} afterwards.
+     */
+    @Nullable
+    public Bitmap getCachedUserAvatar(int userId, int sizePx) {
+        final Entry entry = mAvatars.get(getUserKey(userId, sizePx));
+        return entry != null && entry.mGeneration == getGeneration(userId) ? entry.mBitmap : null;
+    }
+
+    /**
+     * Returns the avatar of the user at the given size, decoding the user photo only if the
+     * cached avatar is missing or older than the photo. Users without a photo get the default
+     * avatar.
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap loadUserAvatar(Resources resources, UserManager userManager, int userId,
+            int sizePx) {
+        final int generation = getGeneration(userId);
+        final long photoVersion = getPhotoVersion(userManager.getUserInfo(userId));
+        final String key = getUserKey(userId, sizePx);
+        final Entry entry = mAvatars.get(key);
+        if (entry != null && entry.mGeneration == generation
+                && entry.mPhotoVersion == photoVersion) {
+            return entry.mBitmap;
+        }
+        Bitmap photo = userManager.getUserIcon(userId);
+        if (photo == null) {
+            photo = UserIcons.convertToBitmapAtUserIconSize(resources,
+                    UserIcons.getDefaultUserIcon(resources, userId, false /* light */));
+        }
+        final Bitmap avatar = encircle(photo, sizePx);
+        mAvatars.put(key, new Entry(avatar, generation, photoVersion));
+        return avatar;
+    }
+
+    /** Caches the avatar of the user made from a photo the caller already decoded. */
+    @NonNull
+    public Bitmap putUserAvatar(int userId, @NonNull Bitmap photo, int sizePx) {
+        final Bitmap avatar = encircle(photo, sizePx);
+        mAvatars.put(getUserKey(userId, sizePx),
+                new Entry(avatar, getGeneration(userId), PHOTO_VERSION_UNKNOWN));
+        return avatar;
+    }
+
+    /** Drops the cached avatars of the user, e.g. when the user photo changed. */
+    public void invalidateUser(int userId) {
+        synchronized (this) {
+            mGenerations.put(userId, mGenerations.get(userId) + 1);
+        }
+    }
+
+    /** Returns the last account avatar cached at the given size, or {@code null}. */
+    @Nullable
+    public Bitmap getCachedAccountAvatar(int sizePx) {
+        final Entry entry = mAvatars.get(ACCOUNT_AVATAR_KEY + ":" + sizePx);
+        return entry != null ? entry.mBitmap : null;
+    }
+
+    /**
+     * Caches the account avatar scaled down to the given size. Account avatars are provided
+     * already shaped, so they are not encircled.
+     */
+    @NonNull
+    public Bitmap putAccountAvatar(@NonNull Bitmap avatar, int sizePx) {
+        final Bitmap scaled = avatar.getWidth() > sizePx || avatar.getHeight() > sizePx
+                ? Bitmap.createScaledBitmap(avatar, sizePx, sizePx, true /* filter */)
+                : avatar;
+        mAvatars.put(ACCOUNT_AVATAR_KEY + ":" + sizePx,
+                new Entry(scaled, 0 /* generation */, PHOTO_VERSION_UNKNOWN));
+        return scaled;
+    }
+
+    private synchronized int getGeneration(int userId) {
+        return mGenerations.get(userId);
+    }
+
+    private static String getUserKey(int userId, int sizePx) {
+        return userId + ":" + sizePx;
+    }
+
+    private static long getPhotoVersion(@Nullable UserInfo userInfo) {
+        if (userInfo == null || userInfo.iconPath == null) {
+            return 0;
+        }
+        return new File(userInfo.iconPath).lastModified();
+    }
+
+    private static Bitmap encircle(Bitmap photo, int sizePx) {
+        final CircleFramedDrawable drawable = new CircleFramedDrawable(photo, sizePx);
+        final Bitmap avatar = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, sizePx, sizePx);
+        drawable.draw(new Canvas(avatar));
+        return avatar;
+    }
+
+    private static class Entry {
+        private final Bitmap mBitmap;
+        private final int mGeneration;
+        private final long mPhotoVersion;
+
+        private Entry(Bitmap bitmap, int generation, long photoVersion) {
+            mBitmap = bitmap;
+            mGeneration = generation;
+            mPhotoVersion = photoVersion;
+        }
+    }
+}
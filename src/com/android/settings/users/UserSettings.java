@@ -33,6 +33,7 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BlendMode;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.net.Uri;
@@ -201,6 +202,7 @@ public class UserSettings extends SettingsPreferenceFragment
     RestrictedPreference mAddUser;
     @VisibleForTesting
     RestrictedPreference mAddSupervisedUser;
+    // Encircled avatars shown in the list, from the shared UserAvatarCache.
     @VisibleForTesting
     SparseArray<Bitmap> mUserIcons = new SparseArray<>();
     private int mRemovingUserId = -1;
@@ -266,6 +268,7 @@ public class UserSettings extends SettingsPreferenceFragment
                 int userHandle = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, -1);
                 if (userHandle != -1) {
                     mUserIcons.remove(userHandle);
+                    UserAvatarCache.getInstance().invalidateUser(userHandle);
                 }
             }
             mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
@@ -543,8 +546,10 @@ public class UserSettings extends SettingsPreferenceFragment
         int myUserId = UserHandle.myUserId();
         Bitmap b = mUserManager.getUserIcon(myUserId);
         if (b != null) {
-            mMePreference.setIcon(encircleUserIcon(b));
-            mUserIcons.put(myUserId, b);
+            Bitmap avatar = UserAvatarCache.getInstance().putUserAvatar(myUserId, b,
+                    getUserIconSize());
+            mMePreference.setIcon(new BitmapDrawable(getResources(), avatar));
+            mUserIcons.put(myUserId, avatar);
         }
     }
 
@@ -887,10 +892,12 @@ public class UserSettings extends SettingsPreferenceFragment
                 user.name,
                 (newUserName, newUserIcon) -> {
                     if (newUserIcon != userIcon) {
-                        ThreadUtils.postOnBackgroundThread(() ->
-                                mUserManager.setUserIcon(user.id,
-                                        UserIcons.convertToBitmapAtUserIconSize(
-                                                activity.getResources(), newUserIcon)));
+                        ThreadUtils.postOnBackgroundThread(() -> {
+                            mUserManager.setUserIcon(user.id,
+                                    UserIcons.convertToBitmapAtUserIconSize(
+                                            activity.getResources(), newUserIcon));
+                            UserAvatarCache.getInstance().invalidateUser(user.id);
+                        });
                         mMePreference.setIcon(newUserIcon);
                     }
 
@@ -1199,6 +1206,7 @@ public class UserSettings extends SettingsPreferenceFragment
         }
 
         final ArrayList<Integer> missingIcons = new ArrayList<>();
+        final ArrayList<Integer> cachedIcons = new ArrayList<>();
         final ArrayList<UserPreference> userPreferences = new ArrayList<>();
 
         // mMePreference shows a icon for current user. However when current user is a guest, we
@@ -1250,6 +1258,16 @@ public class UserSettings extends SettingsPreferenceFragment
                 pref.setSummary(R.string.user_summary_restricted_profile);
             }
             if (user.iconPath != null) {
+                if (mUserIcons.get(user.id) == null) {
+                    // Another screen may have loaded the avatar already
+                    Bitmap avatar = UserAvatarCache.getInstance().getCachedUserAvatar(user.id,
+                            getUserIconSize());
+                    if (avatar != null) {
+                        mUserIcons.put(user.id, avatar);
+                        // The photo may have been changed since, e.g. by the user itself.
+                        cachedIcons.add(user.id);
+                    }
+                }
                 if (mUserIcons.get(user.id) == null) {
                     // Icon not loaded yet, print a placeholder
                     missingIcons.add(user.id);
@@ -1279,8 +1297,8 @@ public class UserSettings extends SettingsPreferenceFragment
         getActivity().invalidateOptionsMenu();
 
         // Load the icons
-        if (missingIcons.size() > 0) {
-            loadIconsAsync(missingIcons);
+        if (missingIcons.size() > 0 || cachedIcons.size() > 0) {
+            loadIconsAsync(missingIcons, cachedIcons);
         }
 
         // If restricted profiles are supported, mUserListCategory will have a special title
@@ -1529,25 +1547,43 @@ public class UserSettings extends SettingsPreferenceFragment
                 .count();
     }
 
-    private void loadIconsAsync(List<Integer> missingIcons) {
-        new AsyncTask<List<Integer>, Void, Void>() {
+    /**
+     * Loads the avatars of {@code missingIcons}, and checks that the avatars of
+     * {@code cachedIcons} taken from {@link UserAvatarCache} are still those of the user photos.
+     * The list is only updated if an avatar was loaded or changed.
+     */
+    private void loadIconsAsync(List<Integer> missingIcons, List<Integer> cachedIcons) {
+        new AsyncTask<Void, Void, Boolean>() {
             @Override
-            protected void onPostExecute(Void result) {
-                updateUserList();
+            protected void onPostExecute(Boolean changed) {
+                if (changed) {
+                    updateUserList();
+                }
             }
 
             @Override
-            protected Void doInBackground(List<Integer>... values) {
-                for (int userId : values[0]) {
-                    Bitmap bitmap = mUserManager.getUserIcon(userId);
-                    if (bitmap == null) {
-                        bitmap = getDefaultUserIconAsBitmap(getContext().getResources(), userId);
+            protected Boolean doInBackground(Void... values) {
+                Resources resources = getContext().getResources();
+                int iconSize = resources.getDimensionPixelSize(
+                        R.dimen.multiple_users_user_icon_size);
+                final UserAvatarCache avatarCache = UserAvatarCache.getInstance();
+                for (int userId : missingIcons) {
+                    mUserIcons.append(userId, avatarCache.loadUserAvatar(
+                            resources, mUserManager, userId, iconSize));
+                }
+                boolean changed = !missingIcons.isEmpty();
+                for (int userId : cachedIcons) {
+                    // Returns the cached avatar itself if the photo didn't change.
+                    final Bitmap avatar = avatarCache.loadUserAvatar(
+                            resources, mUserManager, userId, iconSize);
+                    if (avatar != mUserIcons.get(userId)) {
+                        mUserIcons.append(userId, avatar);
+                        changed = true;
                     }
-                    mUserIcons.append(userId, bitmap);
                 }
-                return null;
+                return changed;
             }
-        }.execute(missingIcons);
+        }.execute();
     }
 
     private Drawable getEncircledDefaultIcon() {
@@ -1561,10 +1597,15 @@ public class UserSettings extends SettingsPreferenceFragment
     private void setPhotoId(Preference pref, UserInfo user) {
         Bitmap bitmap = mUserIcons.get(user.id);
         if (bitmap != null) {
-            pref.setIcon(encircleUserIcon(bitmap));
+            pref.setIcon(new BitmapDrawable(getActivity().getResources(), bitmap));
         }
     }
 
+    private int getUserIconSize() {
+        return getActivity().getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+    }
+
     @Override
     public boolean onPreferenceClick(Preference pref) {
         mMetricsFeatureProvider.logSettingsTileClick(pref.getKey(), getMetricsCategory());
@@ -1616,10 +1657,7 @@ public class UserSettings extends SettingsPreferenceFragment
     }
 
     private Drawable encircleUserIcon(Bitmap icon) {
-        return new CircleFramedDrawable(
-                icon,
-                getActivity().getResources().getDimensionPixelSize(
-                        R.dimen.multiple_users_user_icon_size));
+        return new CircleFramedDrawable(icon, getUserIconSize());
     }
 
     @Override
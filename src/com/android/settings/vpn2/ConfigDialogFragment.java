@@ -155,6 +155,7 @@ public class ConfigDialogFragment extends InstrumentedDialogFragment implements
             LegacyVpnProfileStore.remove(Credentials.VPN + profile.key);
 
             updateLockdownVpn(false, profile);
+            notifyProfilesChanged();
         }
         dismiss();
     }
@@ -194,6 +195,7 @@ public class ConfigDialogFragment extends InstrumentedDialogFragment implements
 
         // Notify lockdown VPN that the profile has changed.
         updateLockdownVpn(lockdown, profile);
+        notifyProfilesChanged();
     }
 
     private void connect(VpnProfile profile, boolean lockdown) {
@@ -209,6 +211,16 @@ public class ConfigDialogFragment extends InstrumentedDialogFragment implements
                 Toast.makeText(mContext, R.string.vpn_no_network, Toast.LENGTH_LONG).show();
             }
         }
+        notifyProfilesChanged();
+    }
+
+    /**
+     * The profile store has no change notifications, so let the VPN list know directly.
+     */
+    private void notifyProfilesChanged() {
+        if (getTargetFragment() instanceof VpnSettings) {
+            ((VpnSettings) getTargetFragment()).requestRescan();
+        }
     }
 
     /**
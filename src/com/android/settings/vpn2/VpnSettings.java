@@ -24,8 +24,10 @@ import android.annotation.WorkerThread;
 import android.app.Activity;
 import android.app.AppOpsManager;
 import android.app.settings.SettingsEnums;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
@@ -70,10 +72,12 @@ import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.google.android.collect.Lists;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -86,7 +90,13 @@ public class VpnSettings extends RestrictedDashboardFragment implements
     private static final boolean DEBUG = Log.isLoggable(LOG_TAG, Log.DEBUG);
 
     private static final int RESCAN_MESSAGE = 0;
-    private static final int RESCAN_INTERVAL_MS = 1000;
+    // Interval used while a legacy VPN is connecting, as its state changes are not broadcast.
+    @VisibleForTesting
+    static final int RESCAN_INTERVAL_MS = 1000;
+    // Safety net for changes which are not covered by any callback, e.g. keystore edits made
+    // outside of this screen.
+    @VisibleForTesting
+    static final int SAFETY_NET_RESCAN_INTERVAL_MS = 30 * 1000;
     private static final String ADVANCED_VPN_GROUP_KEY = "advanced_vpn_group";
     private static final String VPN_GROUP_KEY = "vpn_group";
 
@@ -107,6 +117,11 @@ public class VpnSettings extends RestrictedDashboardFragment implements
     private Handler mUpdater;
     private HandlerThread mUpdaterThread;
     private LegacyVpnInfo mConnectedLegacyVpn;
+    private AppOpsManager mAppOpsManager;
+    private boolean mPackageReceiverRegistered;
+    // Last list state posted to the UI thread, only accessed from the updater thread once the
+    // thread is started.
+    private VpnListState mLastListState;
 
     private boolean mUnavailable;
     private AdvancedVpnFeatureProvider mFeatureProvider;
@@ -129,6 +144,7 @@ public class VpnSettings extends RestrictedDashboardFragment implements
         mUserManager = (UserManager) getSystemService(Context.USER_SERVICE);
         mConnectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
         mVpnManager = (VpnManager) getSystemService(Context.VPN_MANAGEMENT_SERVICE);
+        mAppOpsManager = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
         mFeatureProvider = FeatureFactory.getFactory(getContext()).getAdvancedVpnFeatureProvider();
         mIsAdvancedVpnSupported = mFeatureProvider.isAdvancedVpnSupported(getContext());
 
@@ -200,14 +216,43 @@ public class VpnSettings extends RestrictedDashboardFragment implements
             getEmptyTextView().setText(R.string.vpn_no_vpns_added);
         }
 
-        // Start monitoring
-        mConnectivityManager.registerNetworkCallback(VPN_REQUEST, mNetworkCallback);
-
         // Trigger a refresh
+        mLastListState = null;
         mUpdaterThread = new HandlerThread("Refresh VPN list in background");
         mUpdaterThread.start();
-        mUpdater = new Handler(mUpdaterThread.getLooper(), this);
-        mUpdater.sendEmptyMessage(RESCAN_MESSAGE);
+        synchronized (this) {
+            mUpdater = new Handler(mUpdaterThread.getLooper(), this);
+        }
+        requestRescan();
+
+        // Start monitoring
+        mConnectivityManager.registerNetworkCallback(VPN_REQUEST, mNetworkCallback);
+        final IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        getContext().registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, packageFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+        mPackageReceiverRegistered = true;
+        mAppOpsManager.startWatchingMode(OP_ACTIVATE_VPN, null /* packageName */,
+                mAppOpsListener);
+        mAppOpsManager.startWatchingMode(OP_ACTIVATE_PLATFORM_VPN, null /* packageName */,
+                mAppOpsListener);
+    }
+
+    /**
+     * Requests a refresh of the VPN list. Requests made before the pending refresh has started
+     * are coalesced into it.
+     */
+    public void requestRescan() {
+        synchronized (this) {
+            if (mUpdater != null) {
+                mUpdater.removeMessages(RESCAN_MESSAGE);
+                mUpdater.sendEmptyMessage(RESCAN_MESSAGE);
+            }
+        }
     }
 
     @Override
@@ -229,6 +274,11 @@ public class VpnSettings extends RestrictedDashboardFragment implements
 
         // Stop monitoring
         mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+        if (mPackageReceiverRegistered) {
+            getContext().unregisterReceiver(mPackageReceiver);
+            mPackageReceiverRegistered = false;
+        }
+        mAppOpsManager.stopWatchingMode(mAppOpsListener);
 
         synchronized (this) {
             mUpdater.removeCallbacksAndMessages(null);
@@ -260,20 +310,105 @@ public class VpnSettings extends RestrictedDashboardFragment implements
         final Set<AppVpnInfo> alwaysOnAppVpnInfos = getAlwaysOnAppVpnInfos();
         final String lockdownVpnKey = VpnUtils.getLockdownVpn();
 
-        // Refresh list of VPNs
-        activity.runOnUiThread(new UpdatePreferences(this)
-                .legacyVpns(vpnProfiles, connectedLegacyVpns, lockdownVpnKey)
-                .appVpns(vpnApps, connectedAppVpns, alwaysOnAppVpnInfos));
+        // Refresh list of VPNs, unless nothing changed since the last refresh
+        final VpnListState listState = new VpnListState(vpnProfiles, vpnApps,
+                connectedLegacyVpns, connectedAppVpns, alwaysOnAppVpnInfos, lockdownVpnKey);
+        if (!listState.equals(mLastListState)) {
+            mLastListState = listState;
+            activity.runOnUiThread(new UpdatePreferences(this)
+                    .legacyVpns(vpnProfiles, connectedLegacyVpns, lockdownVpnKey)
+                    .appVpns(vpnApps, connectedAppVpns, alwaysOnAppVpnInfos));
+        } else if (DEBUG) {
+            Log.d(LOG_TAG, "VPN list unchanged, skipping preference update");
+        }
 
         synchronized (this) {
             if (mUpdater != null) {
                 mUpdater.removeMessages(RESCAN_MESSAGE);
-                mUpdater.sendEmptyMessageDelayed(RESCAN_MESSAGE, RESCAN_INTERVAL_MS);
+                mUpdater.sendEmptyMessageDelayed(RESCAN_MESSAGE,
+                        getRescanDelayMs(connectedLegacyVpns));
             }
         }
         return true;
     }
 
+    /**
+     * Returns the delay before the next periodic refresh. Legacy VPNs do not report progress
+     * while connecting, so they are polled quickly until they settle. Everything else is event
+     * driven, with a slow poll as a safety net.
+     */
+    @VisibleForTesting
+    static int getRescanDelayMs(Map<String, LegacyVpnInfo> connectedLegacyVpns) {
+        for (LegacyVpnInfo info : connectedLegacyVpns.values()) {
+            if (info.state == LegacyVpnInfo.STATE_INITIALIZING
+                    || info.state == LegacyVpnInfo.STATE_CONNECTING) {
+                return RESCAN_INTERVAL_MS;
+            }
+        }
+        return SAFETY_NET_RESCAN_INTERVAL_MS;
+    }
+
+    /**
+     * Snapshot of everything shown in the VPN list, used to skip refreshes which would not change
+     * any preference.
+     */
+    @VisibleForTesting
+    static class VpnListState {
+        private final List<String> mProfileKeys = new ArrayList<>();
+        private final List<byte[]> mEncodedProfiles = new ArrayList<>();
+        private final List<AppVpnInfo> mVpnApps;
+        private final Map<String, Integer> mLegacyVpnStates = new ArrayMap<>();
+        private final Set<AppVpnInfo> mConnectedAppVpns;
+        private final Set<AppVpnInfo> mAlwaysOnAppVpns;
+        private final String mLockdownVpnKey;
+
+        VpnListState(List<VpnProfile> vpnProfiles, List<AppVpnInfo> vpnApps,
+                Map<String, LegacyVpnInfo> connectedLegacyVpns, Set<AppVpnInfo> connectedAppVpns,
+                Set<AppVpnInfo> alwaysOnAppVpns, String lockdownVpnKey) {
+            for (VpnProfile profile : vpnProfiles) {
+                mProfileKeys.add(profile.key);
+                mEncodedProfiles.add(profile.encode());
+            }
+            mVpnApps = vpnApps;
+            for (LegacyVpnInfo info : connectedLegacyVpns.values()) {
+                mLegacyVpnStates.put(info.key, info.state);
+            }
+            mConnectedAppVpns = connectedAppVpns;
+            mAlwaysOnAppVpns = alwaysOnAppVpns;
+            mLockdownVpnKey = lockdownVpnKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof VpnListState)) {
+                return false;
+            }
+            final VpnListState that = (VpnListState) other;
+            if (!mProfileKeys.equals(that.mProfileKeys)) {
+                return false;
+            }
+            for (int i = 0; i < mEncodedProfiles.size(); i++) {
+                if (!Arrays.equals(mEncodedProfiles.get(i), that.mEncodedProfiles.get(i))) {
+                    return false;
+                }
+            }
+            return mVpnApps.equals(that.mVpnApps)
+                    && mLegacyVpnStates.equals(that.mLegacyVpnStates)
+                    && mConnectedAppVpns.equals(that.mConnectedAppVpns)
+                    && mAlwaysOnAppVpns.equals(that.mAlwaysOnAppVpns)
+                    && TextUtils.equals(mLockdownVpnKey, that.mLockdownVpnKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mProfileKeys, mVpnApps, mLegacyVpnStates, mConnectedAppVpns,
+                    mAlwaysOnAppVpns, mLockdownVpnKey);
+        }
+    }
+
     @VisibleForTesting
     static class UpdatePreferences implements Runnable {
         private List<VpnProfile> vpnProfiles = Collections.<VpnProfile>emptyList();
@@ -506,19 +641,26 @@ public class VpnSettings extends RestrictedDashboardFragment implements
     private NetworkCallback mNetworkCallback = new NetworkCallback() {
         @Override
         public void onAvailable(Network network) {
-            if (mUpdater != null) {
-                mUpdater.sendEmptyMessage(RESCAN_MESSAGE);
-            }
+            requestRescan();
         }
 
         @Override
         public void onLost(Network network) {
-            if (mUpdater != null) {
-                mUpdater.sendEmptyMessage(RESCAN_MESSAGE);
-            }
+            requestRescan();
+        }
+    };
+
+    // VPN apps and their consent may change with package installs, updates and removals.
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            requestRescan();
         }
     };
 
+    private final AppOpsManager.OnOpChangedListener mAppOpsListener =
+            (op, packageName) -> requestRescan();
+
     @VisibleForTesting @UiThread
     public LegacyVpnPreference findOrCreatePreference(VpnProfile profile, boolean update) {
         LegacyVpnPreference pref = mLegacyVpnPreferences.get(profile.key);
@@ -17,7 +17,6 @@
 package com.android.settings.wifi.slice;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.net.ConnectivityManager;
 import android.net.NetworkCapabilities;
 import android.net.Uri;
@@ -35,6 +34,7 @@ import com.android.settings.Utils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.CustomSliceRegistry;
 import com.android.settings.slices.CustomSliceable;
+import com.android.settings.slices.SliceIconCache;
 import com.android.wifitrackerlib.WifiEntry;
 
 /**
@@ -97,15 +97,15 @@ public class ContextualWifiSlice extends WifiSlice {
     }
 
     private IconCompat getHeaderIcon(boolean isWifiEnabled, WifiSliceItem wifiSliceItem) {
-        final Drawable drawable;
+        final int resId;
         final int tint;
         if (!isWifiEnabled) {
-            drawable = mContext.getDrawable(R.drawable.ic_wifi_off);
+            resId = R.drawable.ic_wifi_off;
             tint = Utils.getDisabled(mContext, Utils.getColorAttrDefaultColor(mContext,
                     android.R.attr.colorControlNormal));
         } else {
             // get icon of medium signal strength
-            drawable = mContext.getDrawable(com.android.settingslib.Utils.getWifiIconResource(2));
+            resId = com.android.settingslib.Utils.getWifiIconResource(2);
             if (wifiSliceItem != null
                     && wifiSliceItem.getConnectedState() == WifiEntry.CONNECTED_STATE_CONNECTED) {
                 tint = Utils.getColorAccentDefaultColor(mContext);
@@ -113,8 +113,7 @@ public class ContextualWifiSlice extends WifiSlice {
                 tint = Utils.getColorAttrDefaultColor(mContext, android.R.attr.colorControlNormal);
             }
         }
-        drawable.setTint(tint);
-        return Utils.createIconWithDrawable(drawable);
+        return SliceIconCache.getIcon(mContext, resId, tint);
     }
 
     private CharSequence getHeaderSubtitle(WifiSliceItem wifiSliceItem) {
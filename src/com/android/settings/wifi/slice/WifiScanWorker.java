@@ -51,6 +51,10 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
     protected WifiPickerTracker mWifiPickerTracker;
     protected WifiPickerTrackerHelper mWifiPickerTrackerHelper;
 
+    private final WifiSliceItemStore mItemStore = new WifiSliceItemStore();
+    // Reused to collect the entries of each update.
+    private final List<WifiEntry> mEntries = new ArrayList<>();
+
     public WifiScanWorker(Context context, Uri uri) {
         super(context, uri);
 
@@ -147,26 +151,47 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
     void updateResults() {
         if (mWifiPickerTracker.getWifiState() != WifiManager.WIFI_STATE_ENABLED
                 || mLifecycleRegistry.getCurrentState() != Lifecycle.State.RESUMED) {
+            mItemStore.clear();
             super.updateResults(null);
             return;
         }
 
-        final List<WifiSliceItem> resultList = new ArrayList<>();
         final WifiEntry connectedWifiEntry = mWifiPickerTracker.getConnectedWifiEntry();
         if (connectedWifiEntry != null) {
             connectedWifiEntry.setListener(this);
-            resultList.add(new WifiSliceItem(getContext(), connectedWifiEntry));
+            mEntries.add(connectedWifiEntry);
         }
-        for (WifiEntry wifiEntry : mWifiPickerTracker.getWifiEntries()) {
-            if (resultList.size() >= getApRowCount()) {
+        final List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        for (int i = 0; i < wifiEntries.size(); i++) {
+            if (mEntries.size() >= getApRowCount()) {
                 break;
             }
+            final WifiEntry wifiEntry = wifiEntries.get(i);
             if (wifiEntry.getLevel() != WifiEntry.WIFI_LEVEL_UNREACHABLE) {
                 wifiEntry.setListener(this);
-                resultList.add(new WifiSliceItem(getContext(), wifiEntry));
+                mEntries.add(wifiEntry);
+            }
+        }
+        // Only rebind the slice if an item changed, an update without changes allocates nothing.
+        final boolean changed = mItemStore.update(getContext(), mEntries);
+        mEntries.clear();
+        if (changed) {
+            super.updateResults(mItemStore.getItems());
+        }
+    }
+
+    @Override
+    protected boolean areListsTheSame(List<WifiSliceItem> a, List<WifiSliceItem> b) {
+        // The item store replaces an item whenever any of its fields changes.
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
             }
         }
-        super.updateResults(resultList);
+        return true;
     }
 
     /** Enables/disables the carrier network if the carrier network provision disabled */
@@ -28,9 +28,6 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
-import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.net.wifi.WifiManager;
 import android.os.Binder;
@@ -56,6 +53,7 @@ import com.android.settings.network.WifiSwitchPreferenceController;
 import com.android.settings.slices.CustomSliceable;
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settings.slices.SliceBuilderUtils;
+import com.android.settings.slices.SliceIconCache;
 import com.android.settings.wifi.AppStateChangeWifiStateBridge;
 import com.android.settings.wifi.WifiDialogActivity;
 import com.android.settings.wifi.WifiUtils;
@@ -265,9 +263,7 @@ public class WifiSlice implements CustomSliceable {
                     android.R.attr.colorControlNormal));
         }
 
-        Drawable drawable = mContext.getDrawable(getWifiIconResId(wifiSliceItem));
-        drawable.setTint(tint);
-        return Utils.createIconWithDrawable(drawable);
+        return SliceIconCache.getIcon(mContext, getWifiIconResId(wifiSliceItem), tint);
     }
 
     @VisibleForTesting
@@ -337,8 +333,7 @@ public class WifiSlice implements CustomSliceable {
         final CharSequence title = mContext.getText(R.string.wifi_empty_list_wifi_on);
 
         // for aligning to the Wi-Fi AP's name
-        final IconCompat emptyIcon = Utils.createIconWithDrawable(
-                new ColorDrawable(Color.TRANSPARENT));
+        final IconCompat emptyIcon = SliceIconCache.getEmptyIcon();
 
         return new ListBuilder.RowBuilder()
                 .setTitleItem(emptyIcon, ListBuilder.ICON_IMAGE)
@@ -23,6 +23,8 @@ import com.android.settingslib.R;
 import com.android.wifitrackerlib.HotspotNetworkEntry;
 import com.android.wifitrackerlib.WifiEntry;
 
+import java.util.Objects;
+
 /**
  * The data set which is needed by a Wi-Fi Slice, it collects necessary data from {@link WifiEntry}
  * and provides similar getter methods for corresponding data.
@@ -100,6 +102,35 @@ public class WifiSliceItem {
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(mKey, mConnectedState, mLevel, mShouldShowXLevelIcon, mSummary,
+                mIsInstantHotspotNetwork, mInstantHotspotDeviceType);
+    }
+
+    /**
+     * Returns whether this item still has the data of {@code wifiEntry}, comparing every field
+     * rather than only the ones {@link #equals} compares.
+     */
+    boolean matches(WifiEntry wifiEntry) {
+        if (mIsInstantHotspotNetwork != (wifiEntry instanceof HotspotNetworkEntry)) {
+            return false;
+        }
+        if (mIsInstantHotspotNetwork && mInstantHotspotDeviceType
+                != ((HotspotNetworkEntry) wifiEntry).getDeviceType()) {
+            return false;
+        }
+        return TextUtils.equals(mKey, wifiEntry.getKey())
+                && mConnectedState == wifiEntry.getConnectedState()
+                && mLevel == wifiEntry.getLevel()
+                && mSecurity == wifiEntry.getSecurity()
+                && mShouldShowXLevelIcon == wifiEntry.shouldShowXLevelIcon()
+                && mShouldEditBeforeConnect == wifiEntry.shouldEditBeforeConnect()
+                && mHasInternetAccess == wifiEntry.hasInternetAccess()
+                && TextUtils.equals(mTitle, wifiEntry.getTitle())
+                && TextUtils.equals(mSummary, wifiEntry.getSummary(false /* concise */));
+    }
+
     public String getKey() {
         return mKey;
     }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.slice;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the {@link WifiSliceItem}s of a {@link WifiScanWorker} across updates, keyed by
+ * {@link WifiEntry#getKey()}.
+ *
+ * <p>An item is only replaced when a field of its entry changed, and the item list is only rebuilt
+ * when an item or the order of the entries changed, so an update without changes allocates
+ * nothing. Items are replaced rather than mutated because the slices read them on other threads.
+ */
+class WifiSliceItemStore {
+
+    private ArrayMap<String, WifiSliceItem> mItems = new ArrayMap<>();
+    private List<WifiSliceItem> mItemList = Collections.emptyList();
+    // Whether mItemList is what the worker last reported.
+    private boolean mValid;
+    private int mVersion;
+
+    private int mAddedCount;
+    private int mChangedCount;
+    private int mRemovedCount;
+
+    /**
+     * Updates the items with {@code entries}, in order. Returns whether anything changed, in which
+     * case {@link #getItems()} returns a new list.
+     */
+    boolean update(Context context, List<WifiEntry> entries) {
+        if (mValid && !hasChanges(entries)) {
+            return false;
+        }
+        final ArrayMap<String, WifiSliceItem> items = new ArrayMap<>(entries.size());
+        final List<WifiSliceItem> itemList = new ArrayList<>(entries.size());
+        mAddedCount = 0;
+        mChangedCount = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            final WifiEntry entry = entries.get(i);
+            WifiSliceItem item = mItems.get(entry.getKey());
+            if (item == null) {
+                item = new WifiSliceItem(context, entry);
+                mAddedCount++;
+            } else if (!item.matches(entry)) {
+                item = new WifiSliceItem(context, entry);
+                mChangedCount++;
+            }
+            items.put(item.getKey(), item);
+            itemList.add(item);
+        }
+        mRemovedCount = 0;
+        for (int i = 0; i < mItems.size(); i++) {
+            if (!items.containsKey(mItems.keyAt(i))) {
+                mRemovedCount++;
+            }
+        }
+        mItems = items;
+        mItemList = Collections.unmodifiableList(itemList);
+        mValid = true;
+        mVersion++;
+        return true;
+    }
+
+    private boolean hasChanges(List<WifiEntry> entries) {
+        if (entries.size() != mItemList.size()) {
+            return true;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            final WifiEntry entry = entries.get(i);
+            final WifiSliceItem item = mItemList.get(i);
+            if (!TextUtils.equals(item.getKey(), entry.getKey()) || !item.matches(entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the items of the last update, in the order of the entries. */
+    List<WifiSliceItem> getItems() {
+        return mItemList;
+    }
+
+    /** Drops the items, the next update reports a change. */
+    void clear() {
+        mItems.clear();
+        mItemList = Collections.emptyList();
+        mValid = false;
+    }
+
+    /** Returns the number of updates which changed the items. */
+    @VisibleForTesting
+    int getVersion() {
+        return mVersion;
+    }
+
+    @VisibleForTesting
+    int getAddedCount() {
+        return mAddedCount;
+    }
+
+    @VisibleForTesting
+    int getChangedCount() {
+        return mChangedCount;
+    }
+
+    @VisibleForTesting
+    int getRemovedCount() {
+        return mRemovedCount;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static android.text.format.DateUtils.FORMAT_ABBREV_MONTH;
+import static android.text.format.DateUtils.FORMAT_SHOW_DATE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class DateRangeFormatterTest {
+
+    // 2023-03-01 and 2023-03-31, UTC.
+    private static final long START = 1677628800000L;
+    private static final long END = 1680220800000L;
+
+    private Context mContext;
+    private Locale mDefaultLocale;
+    private DateRangeFormatter mFormatter;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDefaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+        mFormatter = new DateRangeFormatter();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void format_shouldMatchDateUtils() {
+        assertThat(mFormatter.format(mContext, START, END)).isEqualTo(
+                DateUtils.formatDateRange(mContext, START, END,
+                        FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH));
+    }
+
+    @Test
+    public void format_sameRange_shouldReturnCachedRange() {
+        final String range = mFormatter.format(mContext, START, END);
+
+        assertThat(mFormatter.format(mContext, START, END)).isSameInstanceAs(range);
+    }
+
+    @Test
+    public void format_moreRangesThanCache_shouldFormatEachRange() {
+        final long day = DateUtils.DAY_IN_MILLIS;
+        for (int i = 0; i < DateRangeFormatter.CACHE_SIZE * 2; i++) {
+            assertThat(mFormatter.format(mContext, START + i * day, END + i * day)).isEqualTo(
+                    DateUtils.formatDateRange(mContext, START + i * day, END + i * day,
+                            FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH));
+        }
+    }
+
+    @Test
+    public void format_localeChanged_shouldFormatWithNewLocale() {
+        final String range = mFormatter.format(mContext, START, END);
+
+        Locale.setDefault(Locale.FRANCE);
+        final String frenchRange = mFormatter.format(mContext, START, END);
+
+        assertThat(frenchRange).isNotEqualTo(range);
+        assertThat(frenchRange).isEqualTo(DateUtils.formatDateRange(mContext, START, END,
+                FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH));
+    }
+
+    @Test
+    public void get_otherThread_shouldReturnOtherFormatter() throws InterruptedException {
+        final AtomicReference<DateRangeFormatter> otherFormatter = new AtomicReference<>();
+        final Thread thread = new Thread(() -> otherFormatter.set(DateRangeFormatter.get()));
+        thread.start();
+        thread.join();
+
+        assertThat(DateRangeFormatter.get()).isSameInstanceAs(DateRangeFormatter.get());
+        assertThat(otherFormatter.get()).isNotSameInstanceAs(DateRangeFormatter.get());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.settings.TrustedCredentialsDisplayCache.CertSubject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrustedCredentialsDisplayCacheTest {
+
+    private static final String ALIAS = "system:1234abcd.0";
+    private static final byte[] CERT = {1, 2, 3, 4};
+    private static final byte[] OTHER_CERT = {5, 6, 7, 8};
+
+    private File mFile;
+    private TrustedCredentialsDisplayCache mCache;
+
+    @Before
+    public void setUp() {
+        mFile = new File(RuntimeEnvironment.application.getCacheDir(), "test_display_cache");
+        mFile.delete();
+        mCache = new TrustedCredentialsDisplayCache(mFile);
+    }
+
+    @Test
+    public void get_notCached_returnsNull() {
+        assertThat(mCache.get(ALIAS, TrustedCredentialsDisplayCache.hash(CERT))).isNull();
+    }
+
+    @Test
+    public void get_sameHash_returnsSubject() {
+        final byte[] hash = TrustedCredentialsDisplayCache.hash(CERT);
+        mCache.put(ALIAS, hash, new CertSubject("Org", "Common name"));
+
+        final CertSubject subject = mCache.get(ALIAS, hash);
+
+        assertThat(subject.primary).isEqualTo("Org");
+        assertThat(subject.secondary).isEqualTo("Common name");
+    }
+
+    @Test
+    public void get_certificateChanged_returnsNull() {
+        mCache.put(ALIAS, TrustedCredentialsDisplayCache.hash(CERT),
+                new CertSubject("Org", "Common name"));
+
+        assertThat(mCache.get(ALIAS, TrustedCredentialsDisplayCache.hash(OTHER_CERT))).isNull();
+    }
+
+    @Test
+    public void saveIfDirty_newInstance_readsSubjectFromDisk() {
+        final byte[] hash = TrustedCredentialsDisplayCache.hash(CERT);
+        mCache.put(ALIAS, hash, new CertSubject("Org", ""));
+        mCache.saveIfDirty();
+
+        final CertSubject subject = new TrustedCredentialsDisplayCache(mFile).get(ALIAS, hash);
+
+        assertThat(subject.primary).isEqualTo("Org");
+        assertThat(subject.secondary).isEmpty();
+    }
+
+    @Test
+    public void put_overMaxEntries_evictsLeastRecentlyUsed() {
+        final byte[] hash = TrustedCredentialsDisplayCache.hash(CERT);
+        for (int i = 0; i <= TrustedCredentialsDisplayCache.MAX_ENTRIES; i++) {
+            mCache.put("alias" + i, hash, new CertSubject("Org", ""));
+        }
+
+        assertThat(mCache.get("alias0", hash)).isNull();
+        assertThat(mCache.get("alias1", hash)).isNotNull();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.os.UserHandle;
+
+import com.android.settings.accounts.AccountSnapshotLoader.AccountEntry;
+import com.android.settings.accounts.AccountSnapshotLoader.AccountTypeInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AccountSnapshotLoaderTest {
+
+    private static final String PACKAGE = "com.android.settings";
+    private static final AccountTypeInfo TYPE_1 = new AccountTypeInfo("com.acct1", PACKAGE, 1, 2);
+    private static final AccountTypeInfo TYPE_2 = new AccountTypeInfo("com.acct2", PACKAGE, 3, 4);
+
+    @Mock
+    private AccountManager mAccountManager;
+
+    private Context mContext;
+    private AccountSnapshotLoader mLoader;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        ShadowApplication.getInstance().setSystemService(Context.ACCOUNT_SERVICE,
+                mAccountManager);
+        when(mAccountManager.getAccountsByTypeAsUser(eq(TYPE_1.mType), any(UserHandle.class)))
+                .thenReturn(new Account[] {
+                        new Account("b", TYPE_1.mType),
+                        new Account("a", TYPE_1.mType)});
+        when(mAccountManager.getAccountsByTypeAsUser(eq(TYPE_2.mType), any(UserHandle.class)))
+                .thenReturn(new Account[] {new Account("c", TYPE_2.mType)});
+        mLoader = spy(new AccountSnapshotLoader(mContext));
+        doReturn("Z label").when(mLoader).loadLabel(eq(TYPE_1), any(UserHandle.class));
+        doReturn("A label").when(mLoader).loadLabel(eq(TYPE_2), any(UserHandle.class));
+        doReturn(new ColorDrawable()).when(mLoader)
+                .loadIcon(any(AccountTypeInfo.class), any(UserHandle.class));
+    }
+
+    @Test
+    public void load_shouldSortByLabelThenName() {
+        final List<AccountEntry> entries =
+                mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1, TYPE_2));
+
+        assertThat(entries).hasSize(3);
+        assertThat(entries.get(0).mAccount.name).isEqualTo("c");
+        assertThat(entries.get(1).mAccount.name).isEqualTo("a");
+        assertThat(entries.get(2).mAccount.name).isEqualTo("b");
+        assertThat(entries.get(1).mIcon).isSameInstanceAs(entries.get(2).mIcon);
+    }
+
+    @Test
+    public void load_typeWithoutLabel_shouldSkipType() {
+        doReturn(null).when(mLoader).loadLabel(eq(TYPE_1), any(UserHandle.class));
+
+        final List<AccountEntry> entries =
+                mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1, TYPE_2));
+
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).mAccount.type).isEqualTo(TYPE_2.mType);
+    }
+
+    @Test
+    public void load_twice_shouldResolveLabelAndIconOnce() {
+        mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1));
+        mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1));
+
+        verify(mLoader, times(1)).loadLabel(eq(TYPE_1), any(UserHandle.class));
+        verify(mLoader, times(1)).loadIcon(eq(TYPE_1), any(UserHandle.class));
+    }
+
+    @Test
+    public void load_otherProfile_shouldShareLabelAndLoadIcon() {
+        mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1));
+        mLoader.load(UserHandle.of(10), Arrays.asList(TYPE_1));
+
+        verify(mLoader, times(1)).loadLabel(eq(TYPE_1), any(UserHandle.class));
+        assertThat(mLoader.getCachedIconCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void load_typeWithOtherResources_shouldReloadLabelAndIcon() {
+        final AccountTypeInfo updatedType =
+                new AccountTypeInfo(TYPE_1.mType, "com.other", TYPE_1.mLabelId, 5);
+        doReturn("Y label").when(mLoader).loadLabel(eq(updatedType), any(UserHandle.class));
+        final ColorDrawable updatedIcon = new ColorDrawable();
+        doReturn(updatedIcon).when(mLoader).loadIcon(eq(updatedType), any(UserHandle.class));
+
+        mLoader.load(UserHandle.of(0), Arrays.asList(TYPE_1));
+        final List<AccountEntry> entries =
+                mLoader.load(UserHandle.of(0), Arrays.asList(updatedType));
+
+        assertThat(entries.get(0).mLabel.toString()).isEqualTo("Y label");
+        assertThat(entries.get(0).mIcon).isSameInstanceAs(updatedIcon);
+        assertThat(mLoader.getCachedIconCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.ParcelFileDescriptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("procstats", null);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void openStatsStream_file_availableIsWholeContent() throws IOException {
+        final byte[] content = new byte[40000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(content);
+        }
+
+        final InputStream in = ProcStatsData.openStatsStream(
+                ParcelFileDescriptor.open(mFile, ParcelFileDescriptor.MODE_READ_ONLY));
+
+        assertThat(in.available()).isEqualTo(content.length);
+        final byte[] read = new byte[content.length + 1];
+        assertThat(in.read(read, 0, read.length)).isEqualTo(content.length);
+        assertThat(in.read()).isEqualTo(-1);
+        for (int i = 0; i < content.length; i++) {
+            assertThat(read[i]).isEqualTo(content[i]);
+        }
+    }
+
+    @Test
+    public void openStatsStream_emptyFile_isEmpty() throws IOException {
+        final InputStream in = ProcStatsData.openStatsStream(
+                ParcelFileDescriptor.open(mFile, ParcelFileDescriptor.MODE_READ_ONLY));
+
+        assertThat(in.available()).isEqualTo(0);
+        assertThat(in.read(new byte[16], 0, 16)).isEqualTo(-1);
+    }
+}
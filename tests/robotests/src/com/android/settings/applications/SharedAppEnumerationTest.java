@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class SharedAppEnumerationTest {
+
+    private static final int MAIN_USER_ID = 0;
+
+    @Mock
+    private UserManager mUserManager;
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private PackageManager mOtherPackageManager;
+
+    private SharedAppEnumeration mEnumeration;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        final Context context = spy(RuntimeEnvironment.application);
+        when(context.getPackageManager()).thenReturn(mPackageManager);
+        mEnumeration = new SharedAppEnumeration(context);
+        when(mUserManager.getProfiles(UserHandle.myUserId())).thenReturn(
+                Collections.singletonList(new UserInfo(MAIN_USER_ID, "main", UserInfo.FLAG_ADMIN)));
+        when(mPackageManager.getInstalledApplicationsAsUser(anyInt(), eq(MAIN_USER_ID)))
+                .thenReturn(Arrays.asList(
+                        buildInfo(0, "app1", ApplicationInfo.FLAG_SYSTEM, 0),
+                        buildInfo(0, "app2", 0, 0),
+                        buildInfo(0, "app3", 0, 0)));
+    }
+
+    @Test
+    public void awaitCount_enqueuedTogether_enumeratesOnce() {
+        final SharedAppEnumeration.Request all =
+                mEnumeration.enqueue(mUserManager, mPackageManager, info -> true);
+        final SharedAppEnumeration.Request system = mEnumeration.enqueue(mUserManager,
+                mPackageManager, info -> (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0);
+
+        assertThat(mEnumeration.awaitCount(all)).isEqualTo(3);
+        assertThat(mEnumeration.awaitCount(system)).isEqualTo(1);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+    }
+
+    @Test
+    public void awaitCount_laterSweep_usesCachedApps() {
+        mEnumeration.awaitCount(mEnumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        final int count = mEnumeration.awaitCount(
+                mEnumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        assertThat(count).isEqualTo(3);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+    }
+
+    @Test
+    public void awaitCount_afterInvalidate_enumeratesAgain() {
+        mEnumeration.awaitCount(mEnumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        mEnumeration.invalidate();
+        mEnumeration.awaitCount(mEnumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+    }
+
+    @Test
+    public void awaitCount_otherPackageManager_usesCachedApps() {
+        mEnumeration.awaitCount(mEnumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        final int count = mEnumeration.awaitCount(
+                mEnumeration.enqueue(mUserManager, mOtherPackageManager, info -> true));
+
+        assertThat(count).isEqualTo(3);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+        verify(mOtherPackageManager, never()).getInstalledApplicationsAsUser(anyInt(), anyInt());
+    }
+
+    @Test
+    public void awaitCount_notCached_usesGivenPackageManager() {
+        final SharedAppEnumeration enumeration = new SharedAppEnumeration(null);
+
+        enumeration.awaitCount(enumeration.enqueue(mUserManager, mPackageManager, info -> true));
+        enumeration.awaitCount(enumeration.enqueue(mUserManager, mPackageManager, info -> true));
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+    }
+}
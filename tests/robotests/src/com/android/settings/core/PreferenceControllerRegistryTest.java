@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerRegistryTest {
+
+    private static final String KEY = "key";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void getFactories_contextOnlyController_onlyHasContextFactory() {
+        final String className = ContextOnlyController.class.getName();
+
+        assertThat(PreferenceControllerRegistry.getContextFactory(className)).isNotNull();
+        assertThat(PreferenceControllerRegistry.getKeyFactory(className)).isNull();
+        assertThat(PreferenceControllerRegistry.getContextFactory(className).create(mContext))
+                .isInstanceOf(ContextOnlyController.class);
+    }
+
+    @Test
+    public void getFactories_keyController_onlyHasKeyFactory() {
+        final String className = KeyController.class.getName();
+
+        assertThat(PreferenceControllerRegistry.getContextFactory(className)).isNull();
+        assertThat(PreferenceControllerRegistry.getKeyFactory(className).create(mContext, KEY)
+                .getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void getFactories_unknownClass_returnsNull() {
+        final String className = "com.android.settings.core.NoSuchController";
+
+        assertThat(PreferenceControllerRegistry.getContextFactory(className)).isNull();
+        assertThat(PreferenceControllerRegistry.getKeyFactory(className)).isNull();
+    }
+
+    @Test
+    public void getFactories_registeredFactory_isUsed() {
+        final KeyController controller = new KeyController(mContext, KEY);
+        final String className = "com.android.settings.core.RegisteredController";
+        PreferenceControllerRegistry.register(className, null, (context, key) -> controller);
+
+        assertThat(PreferenceControllerRegistry.getContextFactory(className)).isNull();
+        assertThat(BasePreferenceController.createInstance(mContext, className, KEY))
+                .isSameInstanceAs(controller);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_constructorThrows_throwsIllegalStateException() {
+        BasePreferenceController.createInstance(mContext, BadPreferenceController.class.getName(),
+                KEY);
+    }
+
+    public static class ContextOnlyController extends BasePreferenceController {
+        public ContextOnlyController(Context context) {
+            super(context, KEY);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+    }
+
+    public static class KeyController extends BasePreferenceController {
+        public KeyController(Context context, String key) {
+            super(context, key);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+    }
+}
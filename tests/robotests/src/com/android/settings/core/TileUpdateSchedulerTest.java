@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileUpdateSchedulerTest {
+
+    private final Object mOwner = new Object();
+    private final Object mOtherOwner = new Object();
+    private final List<Runnable> mQueuedTasks = new ArrayList<>();
+    private TileUpdateScheduler mScheduler;
+    private int mPassCount;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TileUpdateScheduler(mQueuedTasks::add);
+    }
+
+    @Test
+    public void schedule_whileRunning_shouldCoalesceRequestsOfSameOwner() {
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOwner, this::runPass);
+
+        runQueuedTasks();
+
+        assertThat(mPassCount).isEqualTo(2);
+        assertThat(mScheduler.getRunCount()).isEqualTo(2);
+        assertThat(mScheduler.getCoalescedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void schedule_whileRunning_shouldKeepOnePendingPassPerOwner() {
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOtherOwner, this::runPass);
+
+        runQueuedTasks();
+
+        assertThat(mPassCount).isEqualTo(3);
+        assertThat(mScheduler.getCoalescedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_pendingPass_shouldNotRun() {
+        mScheduler.schedule(mOwner, this::runPass);
+        mScheduler.schedule(mOtherOwner, this::runPass);
+        mScheduler.cancel(mOtherOwner);
+
+        runQueuedTasks();
+
+        assertThat(mPassCount).isEqualTo(1);
+    }
+
+    @Test
+    public void schedule_afterIdle_shouldStartNewPass() {
+        mScheduler.schedule(mOwner, this::runPass);
+        runQueuedTasks();
+
+        mScheduler.schedule(mOwner, this::runPass);
+        runQueuedTasks();
+
+        assertThat(mPassCount).isEqualTo(2);
+    }
+
+    private void runPass() {
+        mPassCount++;
+    }
+
+    private void runQueuedTasks() {
+        final List<Runnable> tasks = new ArrayList<>(mQueuedTasks);
+        mQueuedTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
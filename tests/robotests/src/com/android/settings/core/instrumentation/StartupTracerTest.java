@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class StartupTracerTest {
+
+    private StartupTracer mTracer;
+
+    @Before
+    public void setUp() {
+        mTracer = new StartupTracer();
+    }
+
+    @Test
+    public void begin_nestedSpans_shouldRecordParentAndDepth() {
+        try (StartupTracer.Span outer = mTracer.begin("outer")) {
+            try (StartupTracer.Span inner = mTracer.begin("inner")) {
+                // Do nothing.
+            }
+        }
+
+        final List<StartupTracer.SpanRecord> spans = mTracer.getSpans();
+        assertThat(spans).hasSize(2);
+        assertThat(spans.get(0).name).isEqualTo("inner");
+        assertThat(spans.get(0).parentName).isEqualTo("outer");
+        assertThat(spans.get(0).depth).isEqualTo(1);
+        assertThat(spans.get(1).name).isEqualTo("outer");
+        assertThat(spans.get(1).parentName).isNull();
+        assertThat(spans.get(1).depth).isEqualTo(0);
+        assertThat(spans.get(1).startNanos).isAtMost(spans.get(0).startNanos);
+        assertThat(spans.get(1).endNanos).isAtLeast(spans.get(0).endNanos);
+    }
+
+    @Test
+    public void close_calledTwice_shouldRecordOnce() {
+        final StartupTracer.Span span = mTracer.begin("span");
+        span.close();
+        span.close();
+
+        assertThat(mTracer.getSpans()).hasSize(1);
+    }
+
+    @Test
+    public void getSpans_overCapacity_shouldKeepLatestSpans() {
+        for (int i = 0; i < StartupTracer.MAX_SPANS + 1; i++) {
+            mTracer.begin("span" + i).close();
+        }
+
+        final List<StartupTracer.SpanRecord> spans = mTracer.getSpans();
+        assertThat(spans).hasSize(StartupTracer.MAX_SPANS);
+        assertThat(spans.get(0).name).isEqualTo("span1");
+        assertThat(spans.get(spans.size() - 1).name).isEqualTo("span" + StartupTracer.MAX_SPANS);
+    }
+
+    @Test
+    public void toChromeTrace_shouldContainCompleteEvents() throws Exception {
+        mTracer.begin("span").close();
+
+        final JSONArray events = new JSONObject(mTracer.toChromeTrace())
+                .getJSONArray("traceEvents");
+        assertThat(events.length()).isEqualTo(1);
+        assertThat(events.getJSONObject(0).getString("name")).isEqualTo("span");
+        assertThat(events.getJSONObject(0).getString("ph")).isEqualTo("X");
+    }
+}
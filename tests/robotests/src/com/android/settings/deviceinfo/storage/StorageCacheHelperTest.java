@@ -24,10 +24,14 @@ import android.os.UserHandle;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 @RunWith(AndroidJUnit4.class)
 public class StorageCacheHelperTest {
     private static final long FAKE_IMAGES_SIZE = 7000L;
@@ -51,6 +55,11 @@ public class StorageCacheHelperTest {
         mHelper = new StorageCacheHelper(mContext, UserHandle.myUserId());
     }
 
+    @After
+    public void tearDown() {
+        StorageCacheHelper.clearInMemorySnapshots();
+    }
+
     @Test
     public void hasCachedSizeInfo_noCacheData_shouldReturnFalse() {
         assertThat(mHelper.hasCachedSizeInfo()).isFalse();
@@ -90,6 +99,101 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
     }
 
+    @Test
+    public void cacheSizeInfo_newHelperInstance_shouldShareSnapshot() {
+        mHelper.cacheSizeInfo(getFakeStorageCache());
+
+        StorageCacheHelper.StorageCache storageCache =
+                new StorageCacheHelper(mContext, UserHandle.myUserId()).retrieveCachedSize();
+
+        assertThat(storageCache.videosSize).isEqualTo(FAKE_VIDEOS_SIZE);
+        assertThat(storageCache.isStale()).isFalse();
+    }
+
+    @Test
+    public void cacheSizeInfo_otherVolume_shouldNotShareSnapshot() {
+        mHelper.cacheSizeInfo(getFakeStorageCache());
+
+        StorageCacheHelper otherVolumeHelper =
+                new StorageCacheHelper(mContext, UserHandle.myUserId(), "1234-5678");
+
+        assertThat(otherVolumeHelper.hasCachedSizeInfo()).isFalse();
+    }
+
+    @Test
+    public void cacheSizeInfo_shouldKeepTopApps() {
+        StorageCacheHelper.StorageCache data = getFakeStorageCache();
+        data.topApps = Collections.singletonList(
+                new StorageCacheHelper.AppSize("com.example.app", FAKE_APPS_SIZE));
+        mHelper.cacheSizeInfo(data);
+
+        StorageCacheHelper.StorageCache storageCache = mHelper.retrieveCachedSize();
+
+        assertThat(storageCache.topApps).hasSize(1);
+        assertThat(storageCache.topApps.get(0).packageName).isEqualTo("com.example.app");
+        assertThat(storageCache.topApps.get(0).size).isEqualTo(FAKE_APPS_SIZE);
+    }
+
+    @Test
+    public void retrieveCachedSize_afterProcessRestart_shouldReadSnapshotFromDisk() {
+        StorageCacheHelper.StorageCache data = getFakeStorageCache();
+        data.topApps = Arrays.asList(
+                new StorageCacheHelper.AppSize("com.example.app", FAKE_APPS_SIZE),
+                new StorageCacheHelper.AppSize("com.example.game", FAKE_GAMES_SIZE));
+        mHelper.cacheSizeInfo(data);
+        mHelper.cacheTotalSizeAndTotalUsedSize(FAKE_TOTAL_SIZE, FAKE_TOTAL_USED_SIZE);
+        mHelper.cacheUsedSize(FAKE_USED_SIZE);
+        final long lastUpdatedMillis = mHelper.retrieveCachedSize().lastUpdatedMillis;
+
+        StorageCacheHelper.clearInMemorySnapshots();
+        StorageCacheHelper helper = new StorageCacheHelper(mContext, UserHandle.myUserId());
+        StorageCacheHelper.StorageCache storageCache = helper.retrieveCachedSize();
+
+        assertThat(storageCache.lastUpdatedMillis).isEqualTo(lastUpdatedMillis);
+        assertThat(storageCache.totalSize).isEqualTo(FAKE_TOTAL_SIZE);
+        assertThat(storageCache.totalUsedSize).isEqualTo(FAKE_TOTAL_USED_SIZE);
+        assertThat(storageCache.imagesSize).isEqualTo(FAKE_IMAGES_SIZE);
+        assertThat(storageCache.videosSize).isEqualTo(FAKE_VIDEOS_SIZE);
+        assertThat(storageCache.audioSize).isEqualTo(FAKE_AUDIO_SIZE);
+        assertThat(storageCache.allAppsExceptGamesSize).isEqualTo(FAKE_APPS_SIZE);
+        assertThat(storageCache.gamesSize).isEqualTo(FAKE_GAMES_SIZE);
+        assertThat(storageCache.documentsAndOtherSize).isEqualTo(FAKE_DOCS_SIZE);
+        assertThat(storageCache.trashSize).isEqualTo(FAKE_TRASH_SIZE);
+        assertThat(storageCache.systemSize).isEqualTo(FAKE_SYSTEM_SIZE);
+        assertThat(helper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
+        assertThat(storageCache.topApps).hasSize(2);
+        assertThat(storageCache.topApps.get(1).packageName).isEqualTo("com.example.game");
+        assertThat(storageCache.topApps.get(1).size).isEqualTo(FAKE_GAMES_SIZE);
+    }
+
+    @Test
+    public void retrieveCachedSize_afterProcessRestart_shouldKeepVolumesApart() {
+        mHelper.forVolume("1234-5678").cacheUsedSize(FAKE_USED_SIZE);
+
+        StorageCacheHelper.clearInMemorySnapshots();
+
+        assertThat(mHelper.hasCachedSizeInfo()).isFalse();
+        assertThat(new StorageCacheHelper(mContext, UserHandle.myUserId(), "1234-5678")
+                .retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
+    }
+
+    @Test
+    public void forVolume_sameVolume_shouldReturnSameHelper() {
+        assertThat(mHelper.forVolume(null)).isSameInstanceAs(mHelper);
+        assertThat(mHelper.forVolume("1234-5678")).isNotSameInstanceAs(mHelper);
+    }
+
+    @Test
+    public void retrieveCachedSize_legacySharedPreferences_shouldMigrate() {
+        mContext.getSharedPreferences("StorageCache" + UserHandle.myUserId(),
+                Context.MODE_PRIVATE).edit().putLong("images_size_key", FAKE_IMAGES_SIZE).commit();
+
+        StorageCacheHelper.StorageCache storageCache = mHelper.retrieveCachedSize();
+
+        assertThat(storageCache.imagesSize).isEqualTo(FAKE_IMAGES_SIZE);
+        assertThat(storageCache.isStale()).isTrue();
+    }
+
     private StorageCacheHelper.StorageCache getFakeStorageCache() {
         StorageCacheHelper.StorageCache result = new StorageCacheHelper.StorageCache();
         result.trashSize = FAKE_TRASH_SIZE;
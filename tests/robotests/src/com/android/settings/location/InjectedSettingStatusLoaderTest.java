@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.location;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Intent;
+import android.location.SettingInjectorService;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.UserHandle;
+
+import androidx.preference.Preference;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.location.InjectedSetting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class InjectedSettingStatusLoaderTest {
+
+    private Application mContext;
+    private InjectedSettingStatusLoader mLoader;
+    private InjectedSetting mSlowSetting;
+    private InjectedSetting mFastSetting;
+    private Preference mSlowPreference;
+    private Preference mFastPreference;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mLoader = new InjectedSettingStatusLoader(mContext);
+        mSlowSetting = newSetting("com.slow");
+        mFastSetting = newSetting("com.fast");
+        mSlowPreference = new Preference(mContext);
+        mFastPreference = new Preference(mContext);
+        mLoader.add(mSlowSetting, mSlowPreference);
+        mLoader.add(mFastSetting, mFastPreference);
+    }
+
+    @After
+    public void tearDown() {
+        InjectedSettingStatusLoader.clearLastStatus();
+    }
+
+    @Test
+    public void reload_shouldStartAllServicesAtOnce() {
+        mLoader.reload();
+
+        assertThat(nextServicePackage()).isEqualTo("com.slow");
+        assertThat(nextServicePackage()).isEqualTo("com.fast");
+    }
+
+    @Test
+    public void reload_fastServiceAnswers_shouldNotWaitForSlowService() throws Exception {
+        mLoader.reload();
+        final Messenger slow = nextMessenger();
+        final Messenger fast = nextMessenger();
+
+        reply(fast, "Fast summary", false);
+
+        assertThat(mFastPreference.getSummary().toString()).isEqualTo("Fast summary");
+        assertThat(mFastPreference.isEnabled()).isFalse();
+        assertThat(mSlowPreference.getSummary()).isNull();
+
+        reply(slow, "Slow summary", true);
+
+        assertThat(mSlowPreference.getSummary().toString()).isEqualTo("Slow summary");
+    }
+
+    @Test
+    public void reload_serviceTimesOut_shouldCountTimeout() {
+        mLoader.reload();
+
+        ShadowLooper.idleMainLooper(InjectedSettingStatusLoader.STATUS_TIMEOUT_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(InjectedSettingStatusLoader.getLastStatus(mSlowSetting).mTimeoutCount)
+                .isEqualTo(1);
+        assertThat(InjectedSettingStatusLoader.getLastStatus(mFastSetting).mTimeoutCount)
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void showLastStatus_shouldShowStatusLoadedByOtherLoader() throws Exception {
+        mLoader.reload();
+        reply(nextMessenger(), "Slow summary", false);
+
+        final InjectedSettingStatusLoader loader = new InjectedSettingStatusLoader(mContext);
+        final Preference preference = new Preference(mContext);
+        loader.add(mSlowSetting, preference);
+        loader.showLastStatus();
+
+        assertThat(preference.getSummary().toString()).isEqualTo("Slow summary");
+        assertThat(preference.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void reload_answerForPreviousReload_shouldOnlyBeRemembered() throws Exception {
+        mLoader.reload();
+        final Messenger previous = nextMessenger();
+        mLoader.reload();
+
+        reply(previous, "Old summary", true);
+
+        assertThat(mSlowPreference.getSummary()).isNull();
+        assertThat(InjectedSettingStatusLoader.getLastStatus(mSlowSetting).mSummary)
+                .isEqualTo("Old summary");
+    }
+
+    private static InjectedSetting newSetting(String packageName) {
+        return new InjectedSetting.Builder()
+                .setPackageName(packageName)
+                .setClassName(packageName + ".Service")
+                .setTitle(packageName)
+                .setSettingsActivity(packageName + ".Activity")
+                .setUserHandle(UserHandle.of(UserHandle.myUserId()))
+                .build();
+    }
+
+    private String nextServicePackage() {
+        return shadowOf(mContext).getNextStartedService().getComponent().getPackageName();
+    }
+
+    private Messenger nextMessenger() {
+        final Intent intent = shadowOf(mContext).getNextStartedService();
+        return intent.getParcelableExtra(SettingInjectorService.MESSENGER_KEY);
+    }
+
+    private static void reply(Messenger messenger, String summary, boolean enabled)
+            throws RemoteException {
+        final Bundle data = new Bundle();
+        data.putString(SettingInjectorService.SUMMARY_KEY, summary);
+        data.putBoolean(SettingInjectorService.ENABLED_KEY, enabled);
+        final Message message = Message.obtain();
+        message.setData(data);
+        messenger.send(message);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
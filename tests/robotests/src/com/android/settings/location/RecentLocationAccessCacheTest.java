@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.location;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.UserHandle;
+import android.provider.Settings;
+
+import com.android.settingslib.applications.RecentAppOpsAccess;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class RecentLocationAccessCacheTest {
+
+    private static final RecentAppOpsAccess.Access ACCESS =
+            new RecentAppOpsAccess.Access("app", UserHandle.CURRENT, null, "app", "", 0);
+
+    @Mock
+    private RecentAppOpsAccess mRecentLocationApps;
+
+    private RecentLocationAccessCache mCache;
+    private final List<List<RecentAppOpsAccess.Access>> mLoaded = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mRecentLocationApps.getAppListSorted(false)).thenReturn(ImmutableList.of(ACCESS));
+        when(mRecentLocationApps.getAppListSorted(true)).thenReturn(ImmutableList.of());
+        mCache = new RecentLocationAccessCache(mRecentLocationApps);
+    }
+
+    @Test
+    public void load_twice_shouldQueryAccessesOnce() {
+        mCache.load(false, mLoaded::add);
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(1)).getAppListSorted(false);
+        assertThat(mLoaded).hasSize(2);
+        assertThat(mLoaded.get(1)).isSameInstanceAs(mLoaded.get(0));
+        assertThat(mLoaded.get(0)).containsExactly(ACCESS);
+    }
+
+    @Test
+    public void load_withAndWithoutSystem_shouldKeepBoth() {
+        mCache.load(false, mLoaded::add);
+        mCache.load(true, mLoaded::add);
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(1)).getAppListSorted(false);
+        verify(mRecentLocationApps, times(1)).getAppListSorted(true);
+        assertThat(mLoaded.get(1)).isEmpty();
+    }
+
+    @Test
+    public void load_afterMaxAge_shouldQueryAccessesAgain() {
+        mCache.load(false, mLoaded::add);
+
+        ShadowLooper.idleMainLooper(RecentLocationAccessCache.MAX_AGE_MS, TimeUnit.MILLISECONDS);
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(2)).getAppListSorted(false);
+    }
+
+    @Test
+    public void load_afterInvalidate_shouldQueryAccessesAgain() {
+        mCache.load(false, mLoaded::add);
+
+        mCache.invalidate();
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(2)).getAppListSorted(false);
+    }
+
+    @Test
+    public void onLocationModeChanged_sameMode_shouldKeepAccesses() {
+        mCache.onLocationModeChanged(Settings.Secure.LOCATION_MODE_ON);
+        mCache.load(false, mLoaded::add);
+
+        mCache.onLocationModeChanged(Settings.Secure.LOCATION_MODE_ON);
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(1)).getAppListSorted(false);
+    }
+
+    @Test
+    public void onLocationModeChanged_otherMode_shouldDropAccesses() {
+        mCache.onLocationModeChanged(Settings.Secure.LOCATION_MODE_ON);
+        mCache.load(false, mLoaded::add);
+
+        mCache.onLocationModeChanged(Settings.Secure.LOCATION_MODE_OFF);
+        mCache.load(false, mLoaded::add);
+
+        verify(mRecentLocationApps, times(2)).getAppListSorted(false);
+    }
+}
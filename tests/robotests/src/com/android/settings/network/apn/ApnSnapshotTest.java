@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.MatrixCursor;
+import android.provider.Telephony;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ApnSnapshotTest {
+
+    private static final int SUB_ID = 1;
+
+    @After
+    public void tearDown() {
+        ApnSnapshot.clearCache();
+    }
+
+    @Test
+    public void fromCursor_shouldCopyAllRows() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, "1", "Internet", "internet.apn", "default,supl");
+        addRow(cursor, "2", "MMS", "mms.apn", "mms");
+
+        final ApnSnapshot snapshot =
+                ApnSnapshot.fromCursor(SUB_ID, false /* hideImsApn */, cursor, "1");
+
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.getSelectedKey()).isEqualTo("1");
+        assertThat(snapshot.getKey(1)).isEqualTo("2");
+        assertThat(snapshot.getName(1)).isEqualTo("MMS");
+        assertThat(snapshot.getApn(1)).isEqualTo("mms.apn");
+        assertThat(snapshot.getType(1)).isEqualTo("mms");
+        assertThat(snapshot.getEditedStatus(1)).isEqualTo(Telephony.Carriers.UNEDITED);
+    }
+
+    @Test
+    public void isSameAs_sameRows_returnTrue() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, "1", "Internet", "internet.apn", "default");
+
+        final ApnSnapshot snapshot1 = ApnSnapshot.fromCursor(SUB_ID, false, cursor, "1");
+        final ApnSnapshot snapshot2 = ApnSnapshot.fromCursor(SUB_ID, false, cursor, "1");
+
+        assertThat(snapshot1.isSameAs(snapshot2)).isTrue();
+    }
+
+    @Test
+    public void isSameAs_selectedKeyChanged_returnFalse() {
+        final MatrixCursor cursor = createCursor();
+        addRow(cursor, "1", "Internet", "internet.apn", "default");
+        addRow(cursor, "2", "Internet 2", "internet2.apn", "default");
+
+        final ApnSnapshot snapshot1 = ApnSnapshot.fromCursor(SUB_ID, false, cursor, "1");
+        final ApnSnapshot snapshot2 = ApnSnapshot.fromCursor(SUB_ID, false, cursor, "2");
+
+        assertThat(snapshot1.isSameAs(snapshot2)).isFalse();
+        assertThat(snapshot1.isSameRow(0, snapshot2, 0)).isTrue();
+    }
+
+    @Test
+    public void isSameRow_apnChanged_returnFalse() {
+        final MatrixCursor cursor1 = createCursor();
+        addRow(cursor1, "1", "Internet", "internet.apn", "default");
+        final MatrixCursor cursor2 = createCursor();
+        addRow(cursor2, "1", "Internet", "other.apn", "default");
+
+        final ApnSnapshot snapshot1 = ApnSnapshot.fromCursor(SUB_ID, false, cursor1, "1");
+        final ApnSnapshot snapshot2 = ApnSnapshot.fromCursor(SUB_ID, false, cursor2, "1");
+
+        assertThat(snapshot1.isSameRow(0, snapshot2, 0)).isFalse();
+        assertThat(snapshot1.isSameAs(snapshot2)).isFalse();
+    }
+
+    @Test
+    public void getCached_nothingQueried_returnNull() {
+        assertThat(ApnSnapshot.getCached(SUB_ID, false /* hideImsApn */)).isNull();
+    }
+
+    private static MatrixCursor createCursor() {
+        return new MatrixCursor(ApnSnapshot.CARRIERS_PROJECTION);
+    }
+
+    private static void addRow(MatrixCursor cursor, String id, String name, String apn,
+            String type) {
+        cursor.addRow(new Object[] {id, name, apn, type, "" /* mvnoType */,
+                "" /* mvnoMatchData */, Telephony.Carriers.UNEDITED});
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class PanelSlicesLoaderCountdownLatchTest {
+
+    private static final Uri URI_1 = Uri.parse("content://com.android.settings.slices/1");
+    private static final Uri URI_2 = Uri.parse("content://com.android.settings.slices/2");
+    private static final Uri URI_3 = Uri.parse("content://com.android.settings.slices/3");
+
+    private PanelSlicesLoaderCountdownLatch mLatch;
+
+    @Before
+    public void setUp() {
+        mLatch = new PanelSlicesLoaderCountdownLatch(Arrays.asList(URI_1, URI_2, URI_3));
+    }
+
+    @Test
+    public void isPanelReadyToReveal_laterSliceLoaded_shouldReturnFalse() {
+        mLatch.markSliceLoaded(URI_2);
+
+        assertThat(mLatch.isPanelReadyToReveal()).isFalse();
+        assertThat(mLatch.getLoadedPrefixCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void isPanelReadyToReveal_firstSliceLoaded_shouldReturnTrueOnce() {
+        mLatch.markSliceLoaded(URI_1);
+
+        assertThat(mLatch.isPanelReadyToReveal()).isTrue();
+        assertThat(mLatch.isPanelReadyToReveal()).isFalse();
+        assertThat(mLatch.isPanelReadyToLoad()).isFalse();
+    }
+
+    @Test
+    public void getLoadedPrefixCount_shouldStopAtFirstPendingSlice() {
+        mLatch.markSliceLoaded(URI_1);
+        mLatch.markSliceLoaded(URI_3);
+
+        assertThat(mLatch.getLoadedPrefixCount()).isEqualTo(1);
+
+        mLatch.markSliceLoaded(URI_2);
+
+        assertThat(mLatch.getLoadedPrefixCount()).isEqualTo(3);
+        assertThat(mLatch.isPanelReadyToLoad()).isTrue();
+    }
+
+    @Test
+    public void markSliceMissedDeadline_pendingSlice_shouldBeTracked() {
+        assertThat(mLatch.markSliceMissedDeadline(URI_1)).isTrue();
+
+        assertThat(mLatch.isSliceLoaded(URI_1)).isTrue();
+        assertThat(mLatch.getMissedDeadlineSlices()).containsExactly(URI_1);
+    }
+
+    @Test
+    public void markSliceMissedDeadline_loadedSlice_shouldBeIgnored() {
+        mLatch.markSliceLoaded(URI_1);
+
+        assertThat(mLatch.markSliceMissedDeadline(URI_1)).isFalse();
+        assertThat(mLatch.getMissedDeadlineSlices()).isEmpty();
+        assertThat(mLatch.getLoadLatencyMs(URI_1)).isAtLeast(0L);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.password;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.admin.PasswordMetrics;
+
+import com.android.internal.widget.LockscreenCredential;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+public class IncrementalPasswordMetricsTest {
+
+    private static final String ALPHABET = "abcdefxyzABCXYZ0123456789!@# é中";
+
+    private final IncrementalPasswordMetrics mMetrics = new IncrementalPasswordMetrics();
+
+    @Test
+    public void getMetrics_empty_matchesPlatform() {
+        assertMatchesPlatform("");
+    }
+
+    @Test
+    public void getMetrics_typedAtEnd_matchesPlatform() {
+        final StringBuilder text = new StringBuilder();
+        for (char c : "abcd1234cba!!Zy9".toCharArray()) {
+            final int start = text.length();
+            text.append(c);
+            mMetrics.onTextChanged(text, start);
+            assertMatchesPlatform(text.toString());
+        }
+    }
+
+    @Test
+    public void getMetrics_randomEdits_matchesPlatform() {
+        final Random random = new Random(42);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            final int start = random.nextInt(text.length() + 1);
+            final int before = Math.min(random.nextInt(3), text.length() - start);
+            final StringBuilder inserted = new StringBuilder();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                inserted.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            text.replace(start, start + before, inserted.toString());
+            mMetrics.onTextChanged(text, start);
+            assertMatchesPlatform(text.toString());
+        }
+    }
+
+    @Test
+    public void hasInvalidCharacters_nonLatin1_returnsTrue() {
+        mMetrics.reset("abc中");
+
+        assertThat(mMetrics.hasInvalidCharacters()).isTrue();
+    }
+
+    @Test
+    public void hasInvalidCharacters_invalidCharacterDeleted_returnsFalse() {
+        mMetrics.reset("abc中");
+
+        mMetrics.onTextChanged("abc", 3);
+
+        assertThat(mMetrics.hasInvalidCharacters()).isFalse();
+    }
+
+    @Test
+    public void clear_resetsLength() {
+        mMetrics.reset("password");
+
+        mMetrics.clear();
+
+        assertThat(mMetrics.length()).isEqualTo(0);
+        assertThat(mMetrics.getMetrics(false).length).isEqualTo(0);
+    }
+
+    private void assertMatchesPlatform(String text) {
+        assertThat(mMetrics.length()).isEqualTo(text.length());
+        final byte[] bytes = LockscreenCredential.createPasswordOrNone(text).getCredential();
+        for (boolean isPin : new boolean[] {false, true}) {
+            final PasswordMetrics expected = PasswordMetrics.computeForPasswordOrPin(bytes, isPin);
+            final PasswordMetrics actual = mMetrics.getMetrics(isPin);
+            assertThat(actual.credType).isEqualTo(expected.credType);
+            assertThat(actual.length).isEqualTo(expected.length);
+            assertThat(actual.letters).isEqualTo(expected.letters);
+            assertThat(actual.upperCase).isEqualTo(expected.upperCase);
+            assertThat(actual.lowerCase).isEqualTo(expected.lowerCase);
+            assertThat(actual.numeric).isEqualTo(expected.numeric);
+            assertThat(actual.symbols).isEqualTo(expected.symbols);
+            assertThat(actual.nonLetter).isEqualTo(expected.nonLetter);
+            assertThat(actual.nonNumeric).isEqualTo(expected.nonNumeric);
+            assertThat(actual.seqLength).isEqualTo(expected.seqLength);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -225,6 +226,82 @@ public class SettingsSliceProviderTest {
         assertThat(cachedData).isNull();
     }
 
+    @Test
+    public void testLoadSlice_shouldCompileDescriptor() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        final SliceDescriptor descriptor = mProvider.mSliceDescriptors.get(INTENT_SLICE_URI);
+        assertThat(descriptor.getSliceData())
+                .isSameInstanceAs(mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void onBindSlice_boundTwice_shouldReuseDescriptor() {
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+
+        mProvider.onBindSlice(data.getUri());
+        final SliceDescriptor descriptor = mProvider.mSliceDescriptors.get(data.getUri());
+        mProvider.onBindSlice(data.getUri());
+
+        assertThat(descriptor).isNotNull();
+        assertThat(mProvider.mSliceDescriptors.get(data.getUri())).isSameInstanceAs(descriptor);
+    }
+
+    @Test
+    public void onBindSlice_sliceDataReloaded_shouldCompileNewDescriptor() {
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+        final SliceData newData = getMockData();
+        mProvider.mSliceWeakDataCache.put(newData.getUri(), newData);
+
+        mProvider.onBindSlice(newData.getUri());
+
+        assertThat(mProvider.mSliceDescriptors.get(newData.getUri()).getSliceData())
+                .isSameInstanceAs(newData);
+    }
+
+    @Test
+    public void onBindSlice_sliceDataCollected_shouldRemoveDescriptor() {
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+        mProvider.mSliceWeakDataCache.remove(data.getUri());
+        doNothing().when(mProvider).loadSliceInBackground(any());
+
+        mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.mSliceDescriptors.get(data.getUri())).isNull();
+    }
+
+    @Test
+    public void getSliceDescriptor_manySlices_shouldKeepMostRecentDescriptors() {
+        final SliceData data = getMockData();
+        for (int i = 0; i <= SettingsSliceProvider.MAX_SLICE_DESCRIPTORS; i++) {
+            mProvider.getSliceDescriptor(
+                    data.getUri().buildUpon().appendPath(String.valueOf(i)).build(), data);
+        }
+
+        assertThat(mProvider.mSliceDescriptors.size())
+                .isEqualTo(SettingsSliceProvider.MAX_SLICE_DESCRIPTORS);
+        assertThat(mProvider.mSliceDescriptors.get(
+                data.getUri().buildUpon().appendPath("0").build())).isNull();
+    }
+
+    @Test
+    public void onSliceUnpinned_shouldRemoveDescriptor() {
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+
+        mProvider.onSliceUnpinned(data.getUri());
+
+        assertThat(mProvider.mSliceDescriptors.get(data.getUri())).isNull();
+    }
+
     @Test
     public void onBindSlice_mainThread_shouldNotOverrideStrictMode() {
         ShadowThreadUtils.setIsMainThread(true);
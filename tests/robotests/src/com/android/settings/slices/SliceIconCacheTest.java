@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Color;
+
+import androidx.core.graphics.drawable.IconCompat;
+
+import com.android.settings.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceIconCacheTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        SliceIconCache.clear();
+    }
+
+    @Test
+    public void getIcon_sameDrawableAndTint_returnsCachedIcon() {
+        final IconCompat icon = SliceIconCache.getIcon(mContext, R.drawable.ic_settings_accent,
+                Color.RED);
+
+        assertThat(icon.getBitmap()).isNotNull();
+        assertThat(SliceIconCache.getIcon(mContext, R.drawable.ic_settings_accent, Color.RED))
+                .isSameInstanceAs(icon);
+    }
+
+    @Test
+    public void getIcon_otherTint_returnsOtherIcon() {
+        final IconCompat icon = SliceIconCache.getIcon(mContext, R.drawable.ic_settings_accent,
+                Color.RED);
+
+        assertThat(SliceIconCache.getIcon(mContext, R.drawable.ic_settings_accent, Color.BLUE))
+                .isNotSameInstanceAs(icon);
+    }
+
+    @Test
+    public void getEmptyIcon_returnsSharedIcon() {
+        assertThat(SliceIconCache.getEmptyIcon().getBitmap()).isNotNull();
+        assertThat(SliceIconCache.getEmptyIcon()).isSameInstanceAs(SliceIconCache.getEmptyIcon());
+    }
+}
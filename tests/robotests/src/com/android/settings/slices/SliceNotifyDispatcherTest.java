@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Looper;
+
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceNotifyDispatcherTest {
+
+    private static final Uri URI_1 = Uri.parse("content://com.android.settings.slices/action/1");
+    private static final Uri URI_2 = Uri.parse("content://com.android.settings.slices/action/2");
+
+    @Mock
+    private ContentResolver mResolver;
+
+    private SliceNotifyDispatcher mDispatcher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mDispatcher = new SliceNotifyDispatcher(Looper.getMainLooper());
+    }
+
+    @Test
+    public void requestNotify_firstRequest_isPostponed() {
+        mDispatcher.requestNotify(mResolver, URI_1);
+
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.THROTTLE_INTERVAL_MS / 2,
+                TimeUnit.MILLISECONDS);
+        verify(mResolver, never()).notifyChange(URI_1, null);
+
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.THROTTLE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        verify(mResolver).notifyChange(URI_1, null);
+    }
+
+    @Test
+    public void requestNotify_burst_notifiesOnce() {
+        mDispatcher.requestNotify(mResolver, URI_1);
+        mDispatcher.requestNotify(mResolver, URI_1);
+        mDispatcher.requestNotify(mResolver, URI_1);
+
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.THROTTLE_INTERVAL_MS * 2,
+                TimeUnit.MILLISECONDS);
+
+        verify(mResolver, times(1)).notifyChange(URI_1, null);
+        assertThat(mDispatcher.getNotifyCount(URI_1)).isEqualTo(1);
+    }
+
+    @Test
+    public void requestNotify_closeRequestsOfTwoUris_dispatchedTogether() {
+        mDispatcher.requestNotify(mResolver, URI_1);
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.BATCH_WINDOW_MS / 2,
+                TimeUnit.MILLISECONDS);
+        mDispatcher.requestNotify(mResolver, URI_2);
+
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.THROTTLE_INTERVAL_MS * 2,
+                TimeUnit.MILLISECONDS);
+
+        verify(mResolver).notifyChange(URI_1, null);
+        verify(mResolver).notifyChange(URI_2, null);
+        assertThat(mDispatcher.getDispatchCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void cancelNotify_pendingRequest_isDropped() {
+        mDispatcher.requestNotify(mResolver, URI_1);
+        mDispatcher.cancelNotify(URI_1);
+
+        ShadowLooper.idleMainLooper(SliceNotifyDispatcher.THROTTLE_INTERVAL_MS * 2,
+                TimeUnit.MILLISECONDS);
+
+        verify(mResolver, never()).notifyChange(URI_1, null);
+    }
+
+    @Test
+    public void dumpStatsJson_containsUriCounts() throws JSONException {
+        mDispatcher.requestNotify(mResolver, URI_1);
+        mDispatcher.requestNotify(mResolver, URI_1);
+        mDispatcher.recordUnchangedResults(URI_1);
+
+        final String dump = mDispatcher.dumpStatsJson().getJSONObject("uris")
+                .getJSONObject(URI_1.toString()).toString();
+
+        assertThat(dump).contains("\"coalesced\":1");
+        assertThat(dump).contains("\"unchanged\":1");
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.UserManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserAvatarCacheTest {
+
+    private static final int USER_ID = 10;
+    private static final int ICON_SIZE = 40;
+
+    @Mock
+    private UserManager mUserManager;
+
+    private Resources mResources;
+    private UserAvatarCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mResources = RuntimeEnvironment.application.getResources();
+        UserAvatarCache.resetInstance();
+        mCache = UserAvatarCache.getInstance();
+        doReturn(Bitmap.createBitmap(400, 400, Bitmap.Config.ARGB_8888))
+                .when(mUserManager).getUserIcon(USER_ID);
+    }
+
+    @Test
+    public void loadUserAvatar_shouldScaleDownToRequestedSize() {
+        final Bitmap avatar = mCache.loadUserAvatar(mResources, mUserManager, USER_ID, ICON_SIZE);
+
+        assertThat(avatar.getWidth()).isEqualTo(ICON_SIZE);
+        assertThat(avatar.getHeight()).isEqualTo(ICON_SIZE);
+        assertThat(mCache.getCachedUserAvatar(USER_ID, ICON_SIZE)).isSameInstanceAs(avatar);
+    }
+
+    @Test
+    public void loadUserAvatar_alreadyLoaded_shouldNotDecodeAgain() {
+        mCache.loadUserAvatar(mResources, mUserManager, USER_ID, ICON_SIZE);
+        mCache.loadUserAvatar(mResources, mUserManager, USER_ID, ICON_SIZE);
+
+        verify(mUserManager, times(1)).getUserIcon(USER_ID);
+    }
+
+    @Test
+    public void invalidateUser_shouldDropCachedAvatar() {
+        mCache.loadUserAvatar(mResources, mUserManager, USER_ID, ICON_SIZE);
+
+        mCache.invalidateUser(USER_ID);
+
+        assertThat(mCache.getCachedUserAvatar(USER_ID, ICON_SIZE)).isNull();
+        mCache.loadUserAvatar(mResources, mUserManager, USER_ID, ICON_SIZE);
+        verify(mUserManager, times(2)).getUserIcon(USER_ID);
+    }
+
+    @Test
+    public void putAccountAvatar_largeAvatar_shouldScaleDown() {
+        final Bitmap avatar = mCache.putAccountAvatar(
+                Bitmap.createBitmap(400, 400, Bitmap.Config.ARGB_8888), ICON_SIZE);
+
+        assertThat(avatar.getWidth()).isEqualTo(ICON_SIZE);
+        assertThat(mCache.getCachedAccountAvatar(ICON_SIZE)).isSameInstanceAs(avatar);
+    }
+}
@@ -61,6 +61,7 @@ import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.SubSettings;
 import com.android.settings.testutils.shadow.SettingsShadowResources;
@@ -142,6 +143,7 @@ public class UserSettingsTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        UserAvatarCache.resetInstance();
         mActivity = spy(ActivityController.of(new FragmentActivity()).get());
         mContext = spy(RuntimeEnvironment.application);
         mUserCapabilities = UserCapabilities.create(mContext);
@@ -726,6 +728,41 @@ public class UserSettingsTest {
         verify(mUserManager, times(2)).getAliveUsers();
     }
 
+    @Test
+    public void updateUserList_cachedIconUpToDate_shouldNotReloadIcon() {
+        UserInfo currentUser = getAdminUser(true);
+        currentUser.iconPath = "/data/system/users/0/photo.png";
+        givenUsers(currentUser);
+        doReturn(Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888))
+                .when(mUserManager).getUserIcon(ACTIVE_USER_ID);
+        UserAvatarCache.getInstance().loadUserAvatar(mContext.getResources(), mUserManager,
+                ACTIVE_USER_ID, getUserIconSize());
+
+        mFragment.updateUserList();
+
+        // Only loaded once, by the other screen
+        verify(mUserManager).getUserIcon(ACTIVE_USER_ID);
+        // updateUserList should be called only once
+        verify(mUserManager).getAliveUsers();
+    }
+
+    @Test
+    public void updateUserList_cachedIconOutdated_shouldReloadIcon() {
+        UserInfo currentUser = getAdminUser(true);
+        currentUser.iconPath = "/data/system/users/0/photo.png";
+        givenUsers(currentUser);
+        UserAvatarCache.getInstance().putUserAvatar(ACTIVE_USER_ID,
+                Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888), getUserIconSize());
+        doReturn(Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888))
+                .when(mUserManager).getUserIcon(ACTIVE_USER_ID);
+
+        mFragment.updateUserList();
+
+        verify(mUserManager).getUserIcon(ACTIVE_USER_ID);
+        // updateUserList should be called another time after reloading the icon
+        verify(mUserManager, times(2)).getAliveUsers();
+    }
+
     @Test
     public void onPreferenceClick_addGuestClicked_createGuestAndOpenDetails() {
         UserInfo createdGuest = getGuest(false);
@@ -864,6 +901,11 @@ public class UserSettingsTest {
                 doReturn(user).when(mUserManager).getUserInfo(user.id));
     }
 
+    private int getUserIconSize() {
+        return mContext.getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+    }
+
     private static void removeFlag(UserInfo userInfo, int flag) {
         userInfo.flags &= ~flag;
     }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.slice;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class WifiSliceItemStoreTest {
+
+    private Context mContext;
+    private WifiSliceItemStore mStore;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mStore = new WifiSliceItemStore();
+    }
+
+    @Test
+    public void update_firstTime_shouldCreateItems() {
+        final WifiEntry entry1 = createWifiEntry("key1", "ap1", WifiEntry.WIFI_LEVEL_MAX);
+        final WifiEntry entry2 = createWifiEntry("key2", "ap2", WifiEntry.WIFI_LEVEL_MIN);
+
+        assertThat(mStore.update(mContext, Arrays.asList(entry1, entry2))).isTrue();
+
+        final List<WifiSliceItem> items = mStore.getItems();
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).getKey()).isEqualTo("key1");
+        assertThat(items.get(1).getKey()).isEqualTo("key2");
+        assertThat(mStore.getAddedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void update_unchangedEntries_shouldKeepItems() {
+        final List<WifiEntry> entries = Arrays.asList(
+                createWifiEntry("key1", "ap1", WifiEntry.WIFI_LEVEL_MAX),
+                createWifiEntry("key2", "ap2", WifiEntry.WIFI_LEVEL_MIN));
+        mStore.update(mContext, entries);
+        final List<WifiSliceItem> items = mStore.getItems();
+
+        assertThat(mStore.update(mContext, entries)).isFalse();
+
+        assertThat(mStore.getItems()).isSameInstanceAs(items);
+        assertThat(mStore.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void update_levelChanged_shouldOnlyReplaceChangedItem() {
+        final WifiEntry entry1 = createWifiEntry("key1", "ap1", WifiEntry.WIFI_LEVEL_MAX);
+        final WifiEntry entry2 = createWifiEntry("key2", "ap2", WifiEntry.WIFI_LEVEL_MIN);
+        mStore.update(mContext, Arrays.asList(entry1, entry2));
+        final WifiSliceItem item1 = mStore.getItems().get(0);
+        final WifiSliceItem item2 = mStore.getItems().get(1);
+
+        when(entry2.getLevel()).thenReturn(WifiEntry.WIFI_LEVEL_MAX);
+
+        assertThat(mStore.update(mContext, Arrays.asList(entry1, entry2))).isTrue();
+        assertThat(mStore.getItems().get(0)).isSameInstanceAs(item1);
+        assertThat(mStore.getItems().get(1)).isNotSameInstanceAs(item2);
+        assertThat(mStore.getItems().get(1).getLevel()).isEqualTo(WifiEntry.WIFI_LEVEL_MAX);
+        assertThat(mStore.getChangedCount()).isEqualTo(1);
+        assertThat(mStore.getAddedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void update_entryRemovedAndReordered_shouldReuseItems() {
+        final WifiEntry entry1 = createWifiEntry("key1", "ap1", WifiEntry.WIFI_LEVEL_MAX);
+        final WifiEntry entry2 = createWifiEntry("key2", "ap2", WifiEntry.WIFI_LEVEL_MIN);
+        final WifiEntry entry3 = createWifiEntry("key3", "ap3", WifiEntry.WIFI_LEVEL_MIN);
+        mStore.update(mContext, Arrays.asList(entry1, entry2, entry3));
+        final WifiSliceItem item1 = mStore.getItems().get(0);
+        final WifiSliceItem item3 = mStore.getItems().get(2);
+
+        assertThat(mStore.update(mContext, Arrays.asList(entry3, entry1))).isTrue();
+
+        assertThat(mStore.getItems()).containsExactly(item3, item1).inOrder();
+        assertThat(mStore.getRemovedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void update_afterClear_shouldReportChange() {
+        mStore.update(mContext, Collections.emptyList());
+        mStore.clear();
+
+        assertThat(mStore.update(mContext, Collections.emptyList())).isTrue();
+        assertThat(mStore.getItems()).isEmpty();
+    }
+
+    private static WifiEntry createWifiEntry(String key, String title, int level) {
+        final WifiEntry wifiEntry = mock(WifiEntry.class);
+        when(wifiEntry.getKey()).thenReturn(key);
+        when(wifiEntry.getTitle()).thenReturn(title);
+        when(wifiEntry.getLevel()).thenReturn(level);
+        when(wifiEntry.getConnectedState()).thenReturn(WifiEntry.CONNECTED_STATE_DISCONNECTED);
+        when(wifiEntry.getSecurity()).thenReturn(WifiEntry.SECURITY_NONE);
+        when(wifiEntry.getSummary(false /* concise */)).thenReturn("");
+        return wifiEntry;
+    }
+}
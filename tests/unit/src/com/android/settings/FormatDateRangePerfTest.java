@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static android.text.format.DateUtils.FORMAT_ABBREV_MONTH;
+import static android.text.format.DateUtils.FORMAT_SHOW_DATE;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Measures the throughput of {@link Utils#formatDateRange} with several loaders formatting data
+ * usage cycles in parallel, against a formatter shared under a lock.
+ *
+ * <p>Runs in SettingsUnitTests, which instruments the Settings app, so that {@link Utils} is
+ * loaded. The results are logged and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FormatDateRangePerfTest {
+    private static final String TAG = "FormatDateRangePerfTest";
+
+    private static final int THREAD_COUNT = 4;
+    private static final int ITERATIONS = 2000;
+    // A year of monthly cycles, like the data usage cycle spinner.
+    private static final int CYCLE_COUNT = 12;
+    private static final long CYCLE_START = 1672531200000L;
+    private static final long CYCLE_LENGTH = 30 * DateUtils.DAY_IN_MILLIS;
+
+    private final StringBuilder mSharedBuilder = new StringBuilder(50);
+    private final java.util.Formatter mSharedFormatter =
+            new java.util.Formatter(mSharedBuilder, Locale.getDefault());
+
+    private Context mContext;
+    private Bundle mBundle;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mBundle = new Bundle();
+    }
+
+    @After
+    public void tearDown() {
+        getInstrumentation().sendStatus(0, mBundle);
+    }
+
+    @Test
+    public void formatDateRange_repeatedCycles() throws Exception {
+        putResult("shared_lock_cycles", measure(this::formatWithSharedLock, true));
+        putResult("thread_local_cycles", measure(this::formatWithUtils, true));
+    }
+
+    @Test
+    public void formatDateRange_distinctRanges() throws Exception {
+        putResult("shared_lock_distinct", measure(this::formatWithSharedLock, false));
+        putResult("thread_local_distinct", measure(this::formatWithUtils, false));
+    }
+
+    private long formatWithUtils(long start, long end) {
+        return Utils.formatDateRange(mContext, start, end).length();
+    }
+
+    // How Utils.formatDateRange used to format ranges.
+    private long formatWithSharedLock(long start, long end) {
+        synchronized (mSharedBuilder) {
+            mSharedBuilder.setLength(0);
+            return DateUtils.formatDateRange(mContext, mSharedFormatter, start, end,
+                    FORMAT_SHOW_DATE | FORMAT_ABBREV_MONTH, null).toString().length();
+        }
+    }
+
+    /** Returns the number of ranges formatted per millisecond by all the threads. */
+    private double measure(LongBinaryOperator format, boolean repeatCycles) throws Exception {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREAD_COUNT);
+        final List<Thread> threads = new ArrayList<>(THREAD_COUNT);
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < ITERATIONS; i++) {
+                    // Distinct ranges never repeat, across threads either.
+                    final long offset = repeatCycles ? 0
+                            : (thread * ITERATIONS + i) * DateUtils.DAY_IN_MILLIS;
+                    final long start = CYCLE_START + (i % CYCLE_COUNT) * CYCLE_LENGTH + offset;
+                    format.applyAsLong(start, start + CYCLE_LENGTH);
+                }
+                doneLatch.countDown();
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        final long startTime = SystemClock.elapsedRealtime();
+        startLatch.countDown();
+        doneLatch.await();
+        final long elapsed = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+        return (double) THREAD_COUNT * ITERATIONS / elapsed;
+    }
+
+    private void putResult(String name, double opsPerMs) {
+        Log.d(TAG, String.format("%s: %.1f ops/ms", name, opsPerMs));
+        mBundle.putString(String.format("FormatDateRangePerfTest_%s_%s", name, "ops_per_ms"),
+                String.format(Locale.US, "%.1f", opsPerMs));
+    }
+}
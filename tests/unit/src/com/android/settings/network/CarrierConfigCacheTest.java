@@ -18,6 +18,8 @@ package com.android.settings.network;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,6 +46,10 @@ public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int SUBSET_SUB_ID = 13;
+    static final int SUBSETS_SUB_ID = 14;
+    static final String KEY_1 = "key_1";
+    static final String KEY_2 = "key_2";
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +104,35 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_withKeysTwice_onlyGetKeysOnceFromManager() {
+        when(mCarrierConfigManager.getConfigForSubId(SUBSET_SUB_ID, KEY_1))
+                .thenReturn(mCarrierConfig);
+
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(SUBSET_SUB_ID, KEY_1);
+        mCarrierConfigCache.getConfigForSubId(SUBSET_SUB_ID, KEY_1);
+
+        assertThat(config).isEqualTo(mCarrierConfig);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(SUBSET_SUB_ID, KEY_1);
+        verify(mCarrierConfigManager, never()).getConfigForSubId(anyInt());
+    }
+
+    @Test
+    public void getConfigForSubId_withOtherKeys_getEachKeySetOnceFromManager() {
+        PersistableBundle otherConfig = new PersistableBundle();
+        when(mCarrierConfigManager.getConfigForSubId(SUBSETS_SUB_ID, KEY_1))
+                .thenReturn(mCarrierConfig);
+        when(mCarrierConfigManager.getConfigForSubId(SUBSETS_SUB_ID, KEY_1, KEY_2))
+                .thenReturn(otherConfig);
+
+        mCarrierConfigCache.getConfigForSubId(SUBSETS_SUB_ID, KEY_1);
+        mCarrierConfigCache.getConfigForSubId(SUBSETS_SUB_ID, KEY_1, KEY_2);
+        PersistableBundle config =
+                mCarrierConfigCache.getConfigForSubId(SUBSETS_SUB_ID, KEY_2, KEY_1);
+
+        assertThat(config).isEqualTo(otherConfig);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(SUBSETS_SUB_ID, KEY_1);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(SUBSETS_SUB_ID, KEY_1, KEY_2);
+    }
 }
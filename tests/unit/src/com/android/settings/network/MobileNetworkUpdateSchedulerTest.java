@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class MobileNetworkUpdateSchedulerTest {
+
+    private final List<Runnable> mExecutorTasks = new ArrayList<>();
+    private final List<String> mRuns = new ArrayList<>();
+    private MobileNetworkUpdateScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new MobileNetworkUpdateScheduler(mExecutorTasks::add);
+    }
+
+    @Test
+    public void scheduleRefresh_burst_runsOnce() {
+        mScheduler.scheduleRefresh(() -> mRuns.add("refresh1"));
+        mScheduler.scheduleRefresh(() -> mRuns.add("refresh2"));
+        mScheduler.scheduleRefresh(() -> mRuns.add("refresh3"));
+
+        runExecutorTasks();
+
+        assertThat(mRuns).containsExactly("refresh3");
+        assertThat(mScheduler.getRefreshCount()).isEqualTo(1);
+        assertThat(mScheduler.getCoalescedRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void scheduleUpdate_refreshPending_runsUpdateFirst() {
+        mScheduler.scheduleRefresh(() -> mRuns.add("refresh"));
+        mScheduler.scheduleUpdate("sub1", () -> mRuns.add("update1"));
+
+        runExecutorTasks();
+
+        assertThat(mRuns).containsExactly("update1", "refresh").inOrder();
+    }
+
+    @Test
+    public void scheduleUpdate_sameKey_keepsLatestUpdate() {
+        mScheduler.scheduleUpdate("sub1", () -> mRuns.add("update1"));
+        mScheduler.scheduleUpdate("sub2", () -> mRuns.add("update2"));
+        mScheduler.scheduleUpdate("sub1", () -> mRuns.add("update1b"));
+
+        runExecutorTasks();
+
+        assertThat(mRuns).containsExactly("update1b", "update2").inOrder();
+        assertThat(mScheduler.getMaxQueueDepth()).isEqualTo(2);
+    }
+
+    @Test
+    public void scheduleRefresh_whileRunning_runsAgainAfterwards() {
+        mScheduler.scheduleRefresh(() -> {
+            mRuns.add("refresh1");
+            mScheduler.scheduleRefresh(() -> mRuns.add("refresh2"));
+        });
+
+        runExecutorTasks();
+
+        assertThat(mRuns).containsExactly("refresh1", "refresh2").inOrder();
+        assertThat(mScheduler.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void scheduleUpdate_previousUpdateFailed_keepsRunning() {
+        mScheduler.scheduleUpdate("sub1", () -> {
+            throw new IllegalStateException();
+        });
+        mScheduler.scheduleUpdate("sub2", () -> mRuns.add("update2"));
+
+        runExecutorTasks();
+
+        assertThat(mRuns).containsExactly("update2");
+    }
+
+    private void runExecutorTasks() {
+        while (!mExecutorTasks.isEmpty()) {
+            mExecutorTasks.remove(0).run();
+        }
+    }
+}
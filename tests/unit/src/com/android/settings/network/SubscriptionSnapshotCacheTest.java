@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class SubscriptionSnapshotCacheTest {
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+    @Mock
+    SubscriptionManager mSubscriptionManager;
+    @Mock
+    SubscriptionInfo mSubscriptionInfo;
+
+    Context mContext;
+    TestSnapshotCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = spy(ApplicationProvider.getApplicationContext());
+        when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        mCache = new TestSnapshotCache(mContext);
+    }
+
+    @Test
+    public void getSnapshot_notHeld_returnsNull() {
+        assertThat(mCache.getSnapshot()).isNull();
+        assertThat(mCache.mLoadCount).isEqualTo(0);
+    }
+
+    @Test
+    public void getSnapshot_held_loadsOnce() {
+        mCache.acquire();
+
+        final SubscriptionSnapshot snapshot = mCache.getSnapshot();
+
+        assertThat(mCache.getSnapshot()).isSameInstanceAs(snapshot);
+        assertThat(mCache.mLoadCount).isEqualTo(1);
+        verify(mSubscriptionManager).addOnSubscriptionsChangedListener(any(), any());
+    }
+
+    @Test
+    public void getSnapshot_afterInvalidate_loadsNewerVersion() {
+        mCache.acquire();
+        final SubscriptionSnapshot snapshot = mCache.getSnapshot();
+
+        mCache.invalidate();
+
+        final SubscriptionSnapshot newSnapshot = mCache.getSnapshot();
+        assertThat(newSnapshot).isNotSameInstanceAs(snapshot);
+        assertThat(newSnapshot.getVersion()).isGreaterThan(snapshot.getVersion());
+        assertThat(mCache.mLoadCount).isEqualTo(2);
+    }
+
+    @Test
+    public void getSnapshot_releasedByAllHolders_returnsNull() {
+        mCache.acquire();
+        mCache.acquire();
+        mCache.getSnapshot();
+
+        mCache.release();
+        assertThat(mCache.getSnapshot()).isNotNull();
+
+        mCache.release();
+        assertThat(mCache.getSnapshot()).isNull();
+        verify(mSubscriptionManager).removeOnSubscriptionsChangedListener(any());
+    }
+
+    @Test
+    public void getActiveSubscriptions_listChangedAfterLoad_snapshotUnchanged() {
+        final List<SubscriptionInfo> subscriptions = new ArrayList<>(
+                Arrays.asList(mSubscriptionInfo));
+        final SubscriptionSnapshot snapshot =
+                new SubscriptionSnapshot(1, subscriptions, null, null);
+
+        subscriptions.clear();
+
+        assertThat(snapshot.getActiveSubscriptions()).containsExactly(mSubscriptionInfo);
+        assertThat(snapshot.getSelectableSubscriptions()).isNull();
+    }
+
+    private static class TestSnapshotCache extends SubscriptionSnapshotCache {
+        int mLoadCount;
+
+        TestSnapshotCache(Context context) {
+            super(context);
+        }
+
+        @Override
+        SubscriptionSnapshot loadSnapshot(long version) {
+            mLoadCount++;
+            return new SubscriptionSnapshot(version, null, null, null);
+        }
+    }
+}
@@ -47,6 +47,8 @@ import androidx.test.annotation.UiThreadTest;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.internal.net.LegacyVpnInfo;
+import com.android.internal.net.VpnProfile;
 import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.Before;
@@ -59,7 +61,9 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @RunWith(AndroidJUnit4.class)
@@ -282,4 +286,54 @@ public class VpnSettingsTest {
 
         verify(mContext, never()).startActivityAsUser(any(), any());
     }
+
+    @Test
+    public void getRescanDelayMs_legacyVpnConnecting_pollsQuickly() {
+        LegacyVpnInfo info = new LegacyVpnInfo();
+        info.key = "key";
+        info.state = LegacyVpnInfo.STATE_CONNECTING;
+
+        assertThat(VpnSettings.getRescanDelayMs(Collections.singletonMap(info.key, info)))
+                .isEqualTo(VpnSettings.RESCAN_INTERVAL_MS);
+    }
+
+    @Test
+    public void getRescanDelayMs_noTransitionalLegacyVpn_usesSafetyNetInterval() {
+        LegacyVpnInfo info = new LegacyVpnInfo();
+        info.key = "key";
+        info.state = LegacyVpnInfo.STATE_CONNECTED;
+
+        assertThat(VpnSettings.getRescanDelayMs(Collections.emptyMap()))
+                .isEqualTo(VpnSettings.SAFETY_NET_RESCAN_INTERVAL_MS);
+        assertThat(VpnSettings.getRescanDelayMs(Collections.singletonMap(info.key, info)))
+                .isEqualTo(VpnSettings.SAFETY_NET_RESCAN_INTERVAL_MS);
+    }
+
+    @Test
+    public void vpnListState_sameContent_isEqual() {
+        assertThat(createListState("server", LegacyVpnInfo.STATE_CONNECTED))
+                .isEqualTo(createListState("server", LegacyVpnInfo.STATE_CONNECTED));
+    }
+
+    @Test
+    public void vpnListState_profileOrStateChanged_isNotEqual() {
+        assertThat(createListState("server", LegacyVpnInfo.STATE_CONNECTED))
+                .isNotEqualTo(createListState("other.server", LegacyVpnInfo.STATE_CONNECTED));
+        assertThat(createListState("server", LegacyVpnInfo.STATE_CONNECTED))
+                .isNotEqualTo(createListState("server", LegacyVpnInfo.STATE_DISCONNECTED));
+    }
+
+    private static VpnSettings.VpnListState createListState(String server, int legacyState) {
+        VpnProfile profile = new VpnProfile("key");
+        profile.server = server;
+        LegacyVpnInfo info = new LegacyVpnInfo();
+        info.key = profile.key;
+        info.state = legacyState;
+        Map<String, LegacyVpnInfo> connectedLegacyVpns = Collections.singletonMap(info.key, info);
+        List<AppVpnInfo> vpnApps = new ArrayList<>();
+        vpnApps.add(new AppVpnInfo(USER_ID_1, VPN_PACKAGE_NAME));
+        return new VpnSettings.VpnListState(Collections.singletonList(profile), vpnApps,
+                connectedLegacyVpns, Collections.emptySet(), Collections.emptySet(),
+                /* lockdownVpnKey= */ null);
+    }
 }